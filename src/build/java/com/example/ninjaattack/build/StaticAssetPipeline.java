@@ -0,0 +1,258 @@
+package com.example.ninjaattack.build;
+
+import com.aayushatharva.brotli4j.Brotli4jLoader;
+import com.aayushatharva.brotli4j.encoder.Encoder;
+import org.springframework.util.DigestUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Build step for the static files, launched by Maven as a single source file in
+ * {@code process-classes} (see pom.xml):
+ * {@code StaticAssetPipeline <source static dir> <output static dir>}. It is not
+ * part of the application and is never packaged.
+ * <ul>
+ * <li>Every asset is copied into {@value #DIST_DIR}/ under a content-hashed name
+ * ({@code css/game.css} becomes {@code dist/css/game-<hash>.css}), with CSS
+ * {@code url()}s and relative JS module imports rewritten to the hashed names
+ * first, so a change anywhere changes the hash of everything that includes it.</li>
+ * <li>{@code href}/{@code src} attributes in the HTML pages are pointed at the
+ * hashed copies.</li>
+ * <li>Text files (pages, scripts, styles, SVG) get {@code .gz} and {@code .br}
+ * variants next to them, served by {@code StaticResourceConfig} to clients
+ * that accept them.</li>
+ * </ul>
+ * Assets also keep their plain names, so the pages work when this step has not
+ * run (IDE launches) and paths built in scripts at runtime (avatars) resolve.
+ */
+public final class StaticAssetPipeline {
+
+    // Must match StaticResourceConfig and the /dist/** rule in SecurityConfig
+    public static final String DIST_DIR = "dist";
+
+    private static final Set<String> TEXT_TYPES = Set.of("html", "css", "js", "svg", "json", "txt");
+    // A variant must save at least this share of the original to be worth a lookup
+    private static final double MIN_SAVING = 0.1;
+
+    private static final Pattern HTML_REF = Pattern.compile("\\b(href|src)=\"([^\"#?:]+)(\\?[^\"]*)?\"");
+    private static final Pattern CSS_URL = Pattern.compile("url\\(\\s*(['\"]?)([^'\")?#:]+)\\1\\s*\\)");
+    private static final Pattern JS_IMPORT = Pattern.compile("(\\b(?:from|import)\\s*\\(?\\s*)(['\"])(\\.{1,2}/[^'\"]+)\\2");
+
+    private final Path sourceRoot;
+    private final Path outputRoot;
+    private final Path distRoot;
+    private final boolean brotli;
+
+    // Source path (relative to the root) -> hashed path (relative to dist/)
+    private final Map<Path, Path> fingerprinted = new HashMap<>();
+    private final Set<Path> inProgress = new HashSet<>();
+    private final List<String> warnings = new ArrayList<>();
+
+    public StaticAssetPipeline(Path sourceRoot, Path outputRoot) {
+        this.sourceRoot = sourceRoot.toAbsolutePath().normalize();
+        this.outputRoot = outputRoot.toAbsolutePath().normalize();
+        this.distRoot = this.outputRoot.resolve(DIST_DIR);
+        this.brotli = Brotli4jLoader.isAvailable();
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            throw new IllegalArgumentException("Usage: StaticAssetPipeline <source static dir> <output static dir>");
+        }
+        StaticAssetPipeline pipeline = new StaticAssetPipeline(Path.of(args[0]), Path.of(args[1]));
+        pipeline.run();
+        pipeline.warnings.forEach(warning -> System.out.println("StaticAssetPipeline: " + warning));
+    }
+
+    /**
+     * @return number of compressed variants written
+     */
+    public int run() throws IOException {
+        deleteRecursively(distRoot);
+        List<Path> sources;
+        try (Stream<Path> files = Files.walk(sourceRoot)) {
+            sources = files.filter(Files::isRegularFile).map(sourceRoot::relativize).sorted().toList();
+        }
+        for (Path source : sources) {
+            if ("html".equals(extension(source))) {
+                writePage(source);
+            } else {
+                fingerprint(source);
+            }
+        }
+        if (!brotli) {
+            warnings.add("brotli encoder not available on this platform; writing gzip variants only");
+        }
+        return compressAll();
+    }
+
+    public List<String> getWarnings() {
+        return warnings;
+    }
+
+    private Path fingerprint(Path source) throws IOException {
+        Path done = fingerprinted.get(source);
+        if (done != null) {
+            return done;
+        }
+        if (!inProgress.add(source)) {
+            throw new IllegalStateException("Import cycle through " + source);
+        }
+        byte[] content = Files.readAllBytes(sourceRoot.resolve(source));
+        String type = extension(source);
+        if ("css".equals(type)) {
+            content = rewrite(source, content, CSS_URL, 2, false);
+        } else if ("js".equals(type)) {
+            content = rewrite(source, content, JS_IMPORT, 3, false);
+        }
+        String hash = DigestUtils.md5DigestAsHex(content).substring(0, 12);
+        Path hashed = source.resolveSibling(withSuffix(source.getFileName().toString(), "-" + hash));
+        Path target = distRoot.resolve(hashed);
+        Files.createDirectories(target.getParent());
+        Files.write(target, content);
+        inProgress.remove(source);
+        fingerprinted.put(source, hashed);
+        return hashed;
+    }
+
+    private void writePage(Path page) throws IOException {
+        byte[] content = rewrite(page, Files.readAllBytes(sourceRoot.resolve(page)), HTML_REF, 2, true);
+        Path target = outputRoot.resolve(page);
+        Files.createDirectories(target.getParent());
+        Files.write(target, content);
+    }
+
+    /**
+     * Replace each reference (capture {@code group} of {@code pattern}) that names
+     * an existing asset with its hashed copy. Pages link into dist/; assets are
+     * already in dist/, where the hashed copy sits beside the same relative path.
+     * Query strings on page references (old manual cache busters) are dropped.
+     */
+    private byte[] rewrite(Path from, byte[] content, Pattern pattern, int group, boolean page) throws IOException {
+        String text = new String(content, StandardCharsets.UTF_8);
+        Matcher matcher = pattern.matcher(text);
+        StringBuilder out = new StringBuilder(text.length() + 256);
+        int last = 0;
+        while (matcher.find()) {
+            String ref = matcher.group(group);
+            Path asset = resolve(from, ref);
+            if (asset == null || "html".equals(extension(asset))) {
+                continue;
+            }
+            if (!Files.isRegularFile(sourceRoot.resolve(asset))) {
+                warnings.add(from + " refers to missing " + ref);
+                continue;
+            }
+            Path hashed = fingerprint(asset);
+            String replacement;
+            if (ref.startsWith("/")) {
+                replacement = "/" + DIST_DIR + "/" + slashes(hashed);
+            } else if (page) {
+                Path pageDir = outputRoot.resolve(from).getParent();
+                replacement = slashes(pageDir.relativize(distRoot.resolve(hashed)));
+            } else {
+                replacement = ref.substring(0, ref.lastIndexOf('/') + 1) + hashed.getFileName();
+            }
+            out.append(text, last, matcher.start(group)).append(replacement);
+            last = page && matcher.group(3) != null ? matcher.end(3) : matcher.end(group);
+        }
+        out.append(text, last, text.length());
+        return out.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    // Path of a reference relative to the static root, or null if it points outside it
+    private Path resolve(Path from, String ref) {
+        Path base = ref.startsWith("/") ? sourceRoot : sourceRoot.resolve(from).getParent();
+        Path resolved = base.resolve(ref.startsWith("/") ? ref.substring(1) : ref).normalize();
+        return resolved.startsWith(sourceRoot) && !resolved.equals(sourceRoot) ? sourceRoot.relativize(resolved) : null;
+    }
+
+    private int compressAll() throws IOException {
+        List<Path> texts;
+        try (Stream<Path> files = Files.walk(outputRoot)) {
+            texts = files.filter(Files::isRegularFile)
+                    .filter(file -> TEXT_TYPES.contains(extension(file)))
+                    .toList();
+        }
+        int written = 0;
+        for (Path file : texts) {
+            byte[] content = Files.readAllBytes(file);
+            written += writeVariant(file, ".gz", content, gzip(content));
+            if (brotli) {
+                written += writeVariant(file, ".br", content, Encoder.compress(content,
+                        new Encoder.Parameters().setQuality(11).setMode(Encoder.Mode.TEXT)));
+            }
+        }
+        return written;
+    }
+
+    private static int writeVariant(Path file, String suffix, byte[] original, byte[] compressed) throws IOException {
+        Path variant = file.resolveSibling(file.getFileName() + suffix);
+        if (compressed.length > original.length * (1 - MIN_SAVING)) {
+            Files.deleteIfExists(variant);
+            return 0;
+        }
+        Files.write(variant, compressed);
+        return 1;
+    }
+
+    private static byte[] gzip(byte[] content) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(content.length / 2);
+        try (GZIPOutputStream out = new GZIPOutputStream(bytes) {
+            {
+                def.setLevel(Deflater.BEST_COMPRESSION);
+            }
+        }) {
+            out.write(content);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static void deleteRecursively(Path dir) throws IOException {
+        if (!Files.exists(dir)) {
+            return;
+        }
+        try (Stream<Path> files = Files.walk(dir)) {
+            files.sorted(Comparator.reverseOrder()).forEach(file -> {
+                try {
+                    Files.delete(file);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        }
+    }
+
+    private static String extension(Path file) {
+        String name = file.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        return dot < 0 ? "" : name.substring(dot + 1).toLowerCase(Locale.ROOT);
+    }
+
+    private static String withSuffix(String name, String suffix) {
+        int dot = name.lastIndexOf('.');
+        return dot < 0 ? name + suffix : name.substring(0, dot) + suffix + name.substring(dot);
+    }
+
+    private static String slashes(Path path) {
+        return path.toString().replace('\\', '/');
+    }
+}
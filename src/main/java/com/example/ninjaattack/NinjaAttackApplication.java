@@ -1,7 +1,9 @@
 package com.example.ninjaattack;
 
+import com.example.ninjaattack.diagnostics.StartupPhaseLogger;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.context.metrics.buffering.BufferingApplicationStartup;
 import org.springframework.scheduling.annotation.EnableAsync;
 import org.springframework.scheduling.annotation.EnableScheduling;
 
@@ -11,7 +13,11 @@ import org.springframework.scheduling.annotation.EnableScheduling;
 public class NinjaAttackApplication {
 
     public static void main(String[] args) {
-        SpringApplication.run(NinjaAttackApplication.class, args);
+        SpringApplication application = new SpringApplication(NinjaAttackApplication.class);
+        // Startup steps are kept for /actuator/startup and the phase summary
+        application.setApplicationStartup(new BufferingApplicationStartup(10_000));
+        application.addListeners(new StartupPhaseLogger());
+        application.run(args);
     }
 
 }
\ No newline at end of file
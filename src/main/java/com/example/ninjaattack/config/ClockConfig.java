@@ -0,0 +1,20 @@
+package com.example.ninjaattack.config;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Clock;
+
+/**
+ * Time source for game deadlines, timer checks and idle tracking. Services read
+ * it instead of {@code System.currentTimeMillis()}, so tests can drive games on
+ * virtual time together with a matching {@code TaskScheduler}.
+ */
+@Configuration
+public class ClockConfig {
+
+    @Bean
+    public Clock clock() {
+        return Clock.systemUTC();
+    }
+}
@@ -0,0 +1,214 @@
+package com.example.ninjaattack.config;
+
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.WebSocketSessionDecorator;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Outbound buffer of one WebSocket session with latest-wins coalescing.
+ * <p>
+ * Every STOMP MESSAGE frame for {@code /user/queue/game/{gameId}} is a full
+ * game state, so while a slow client still has an older one queued, the newer frame
+ * replaces it in place instead of queueing behind it. Other frames keep their
+ * order.
+ * <p>
+ * {@link #sendMessage} only enqueues; frames are written by one drain task at a
+ * time on the dispatcher's pool. It has to return immediately because Spring's
+ * own session decorator above this one lets a single thread send at a time and
+ * would otherwise build up its (non-coalescing) buffer instead of ours.
+ * <p>
+ * If the client still falls behind (buffered bytes over the limit, or one write
+ * blocked for longer than the time limit) the session is closed; the client
+ * reconnects and resumes. The time limit is checked when the next frame is
+ * queued and by the dispatcher's watchdog, so a stalled write is cut off even
+ * when nothing else is sent to the session.
+ */
+class CoalescingSessionDecorator extends WebSocketSessionDecorator {
+
+    // Per-user destinations reach the client under their original /user name
+    private static final String GAME_STATE_PREFIX = "/user/queue/game/";
+
+    private static class Pending {
+        private WebSocketMessage<?> message;
+        private final String coalesceKey;
+
+        Pending(WebSocketMessage<?> message, String coalesceKey) {
+            this.message = message;
+            this.coalesceKey = coalesceKey;
+        }
+    }
+
+    private final OutboundFrameDispatcher dispatcher;
+
+    // Guarded by "this"
+    private final Deque<Pending> queue = new ArrayDeque<>();
+    private final Map<String, Pending> queuedByKey = new HashMap<>();
+    private long bufferedBytes;
+    private boolean draining;
+
+    private volatile long sendStartedAt;
+    private volatile boolean closing;
+
+    CoalescingSessionDecorator(WebSocketSession delegate, OutboundFrameDispatcher dispatcher) {
+        super(delegate);
+        this.dispatcher = dispatcher;
+    }
+
+    @Override
+    public void sendMessage(WebSocketMessage<?> message) {
+        if (closing) {
+            return;
+        }
+
+        String key = coalesceKey(message);
+        boolean overLimit;
+        boolean startDrain = false;
+        synchronized (this) {
+            Pending older = key != null ? queuedByKey.get(key) : null;
+            if (older != null) {
+                dispatcher.bufferedBytesChanged(message.getPayloadLength() - older.message.getPayloadLength());
+                bufferedBytes += message.getPayloadLength() - older.message.getPayloadLength();
+                older.message = message;
+                dispatcher.frameCoalesced();
+            } else {
+                Pending pending = new Pending(message, key);
+                queue.addLast(pending);
+                if (key != null) {
+                    queuedByKey.put(key, pending);
+                }
+                dispatcher.bufferedBytesChanged(message.getPayloadLength());
+                bufferedBytes += message.getPayloadLength();
+            }
+            overLimit = bufferedBytes > dispatcher.getBufferSizeLimit();
+            if (!draining && !overLimit) {
+                draining = true;
+                startDrain = true;
+            }
+        }
+
+        if (overLimit) {
+            closeSlowSession("buffer over " + dispatcher.getBufferSizeLimit() + " bytes");
+        } else if (sendTooSlow()) {
+            closeSlowSession("write blocked over " + dispatcher.getSendTimeLimitMillis() + " ms");
+        } else if (startDrain) {
+            dispatcher.execute(this::drain);
+        }
+    }
+
+    private void drain() {
+        while (!closing) {
+            Pending next;
+            synchronized (this) {
+                next = queue.pollFirst();
+                if (next == null) {
+                    draining = false;
+                    return;
+                }
+                if (next.coalesceKey != null) {
+                    queuedByKey.remove(next.coalesceKey);
+                }
+                bufferedBytes -= next.message.getPayloadLength();
+                dispatcher.bufferedBytesChanged(-next.message.getPayloadLength());
+            }
+
+            sendStartedAt = System.currentTimeMillis();
+            dispatcher.writeStarted(this);
+            try {
+                getDelegate().sendMessage(next.message);
+                dispatcher.frameSent();
+            } catch (IOException | RuntimeException e) {
+                closeSlowSession("write failed: " + e.getMessage());
+                return;
+            } finally {
+                sendStartedAt = 0;
+                dispatcher.writeFinished(this);
+            }
+        }
+    }
+
+    /**
+     * Called by the dispatcher's watchdog for sessions with a write in progress.
+     * Closing the underlying session makes the blocked write fail.
+     */
+    void closeIfWriteBlocked() {
+        if (!closing && sendTooSlow()) {
+            closeSlowSession("write blocked over " + dispatcher.getSendTimeLimitMillis() + " ms");
+        }
+    }
+
+    private boolean sendTooSlow() {
+        long started = sendStartedAt;
+        return started != 0 && System.currentTimeMillis() - started > dispatcher.getSendTimeLimitMillis();
+    }
+
+    private void closeSlowSession(String reason) {
+        synchronized (this) {
+            if (closing) {
+                return;
+            }
+            closing = true;
+            dispatcher.bufferedBytesChanged(-bufferedBytes);
+            queue.clear();
+            queuedByKey.clear();
+            bufferedBytes = 0;
+            draining = false;
+        }
+        dispatcher.sessionClosed();
+        System.err.println("Closing slow WebSocket session " + getId() + ": " + reason);
+        try {
+            getDelegate().close(CloseStatus.SESSION_NOT_RELIABLE);
+        } catch (IOException e) {
+            System.err.println("Failed to close session " + getId() + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Drop whatever is still queued once the connection is gone.
+     */
+    void discard() {
+        synchronized (this) {
+            closing = true;
+            dispatcher.bufferedBytesChanged(-bufferedBytes);
+            queue.clear();
+            queuedByKey.clear();
+            bufferedBytes = 0;
+        }
+    }
+
+    /**
+     * The destination of a STOMP MESSAGE frame carrying a game state, else null.
+     * Only the header block is scanned.
+     */
+    static String coalesceKey(WebSocketMessage<?> message) {
+        if (!(message instanceof TextMessage text)) {
+            return null;
+        }
+        String payload = text.getPayload();
+        if (!payload.startsWith("MESSAGE\n")) {
+            return null;
+        }
+        int lineStart = 8;
+        while (lineStart < payload.length()) {
+            int lineEnd = payload.indexOf('\n', lineStart);
+            if (lineEnd < 0 || lineEnd == lineStart) {
+                return null; // end of headers
+            }
+            if (payload.startsWith("destination:", lineStart)) {
+                String destination = payload.substring(lineStart + 12, lineEnd);
+                boolean gameState = destination.startsWith(GAME_STATE_PREFIX)
+                        && destination.indexOf('/', GAME_STATE_PREFIX.length()) < 0;
+                return gameState ? destination : null;
+            }
+            lineStart = lineEnd + 1;
+        }
+        return null;
+    }
+}
@@ -0,0 +1,146 @@
+package com.example.ninjaattack.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.util.AntPathMatcher;
+
+import java.security.Principal;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Token-bucket limit on inbound STOMP SEND frames, checked on the inbound
+ * channel before the message reaches any controller (and so before any game
+ * lock or the matchmaking monitor is taken). Over-budget frames are dropped;
+ * game commands are retried by the client until acknowledged anyway.
+ * <p>
+ * Budgets are configured per destination pattern in
+ * {@code websocket.inbound.limits} as {@code pattern|burst|perSecond} entries.
+ * There is one bucket per rule and user, so opening more sessions does not buy
+ * a bigger budget; sessions without a principal get one per session.
+ * <p>
+ * Each bucket is a single {@link AtomicLong} holding the time at which it will
+ * be full again (GCRA), so checking it is one CAS and never blocks.
+ */
+@Component
+public class InboundRateLimiter implements ChannelInterceptor {
+
+    private static final AntPathMatcher MATCHER = new AntPathMatcher();
+
+    record Rule(String pattern, long intervalNanos, long burstNanos, AtomicLong rejected) {
+
+        static Rule parse(String spec) {
+            String[] parts = spec.trim().split("\\|");
+            if (parts.length != 3) {
+                throw new IllegalArgumentException("Expected pattern|burst|perSecond but got: " + spec);
+            }
+            int burst = Integer.parseInt(parts[1].trim());
+            double perSecond = Double.parseDouble(parts[2].trim());
+            if (burst < 1 || perSecond <= 0) {
+                throw new IllegalArgumentException("Burst and rate must be positive: " + spec);
+            }
+            long interval = (long) (TimeUnit.SECONDS.toNanos(1) / perSecond);
+            return new Rule(parts[0].trim(), interval, interval * burst, new AtomicLong());
+        }
+    }
+
+    private final List<Rule> rules = new ArrayList<>();
+    // "ruleIndex:user" -> nanoTime at which the bucket is full again
+    private final Map<String, AtomicLong> buckets = new ConcurrentHashMap<>();
+    private final AtomicLong allowed = new AtomicLong();
+
+    public InboundRateLimiter(
+            @Value("${websocket.inbound.limits:/app/game/*/place|5|4,/app/game/*/ambush|5|4,/app/game/*/ready|3|1,/app/matchmaking/find|3|0.5}")
+            String[] limits) {
+        for (String spec : limits) {
+            if (!spec.isBlank()) {
+                rules.add(Rule.parse(spec));
+            }
+        }
+    }
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        SimpMessageType type = SimpMessageHeaderAccessor.getMessageType(message.getHeaders());
+        if (type != SimpMessageType.MESSAGE) {
+            return message;
+        }
+        String destination = SimpMessageHeaderAccessor.getDestination(message.getHeaders());
+        if (destination == null) {
+            return message;
+        }
+        for (int i = 0; i < rules.size(); i++) {
+            Rule rule = rules.get(i);
+            if (MATCHER.match(rule.pattern(), destination)) {
+                if (tryAcquire(i + ":" + callerOf(message), rule, System.nanoTime())) {
+                    allowed.incrementAndGet();
+                    return message;
+                }
+                rule.rejected().incrementAndGet();
+                return null;
+            }
+        }
+        return message;
+    }
+
+    private static String callerOf(Message<?> message) {
+        Principal user = SimpMessageHeaderAccessor.getUser(message.getHeaders());
+        if (user != null) {
+            return "u:" + user.getName();
+        }
+        return "s:" + SimpMessageHeaderAccessor.getSessionId(message.getHeaders());
+    }
+
+    boolean tryAcquire(String key, Rule rule, long now) {
+        AtomicLong bucket = buckets.computeIfAbsent(key, k -> new AtomicLong(now));
+        while (true) {
+            long fullAt = bucket.get();
+            long start = Math.max(fullAt, now);
+            long next = start + rule.intervalNanos();
+            if (next - now > rule.burstNanos()) {
+                return false;
+            }
+            if (bucket.compareAndSet(fullAt, next)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Drop buckets that have refilled completely; they behave exactly like a
+     * missing one.
+     */
+    @Scheduled(fixedDelayString = "${websocket.inbound.prune-interval-ms:60000}")
+    public void pruneFullBuckets() {
+        long now = System.nanoTime();
+        buckets.entrySet().removeIf(entry -> entry.getValue().get() - now <= 0);
+    }
+
+    public long getAllowed() {
+        return allowed.get();
+    }
+
+    /** Rejections per destination pattern, in configuration order. */
+    public Map<String, Long> getRejected() {
+        Map<String, Long> rejected = new LinkedHashMap<>();
+        for (Rule rule : rules) {
+            rejected.put(rule.pattern(), rule.rejected().get());
+        }
+        return rejected;
+    }
+
+    public int getBucketCount() {
+        return buckets.size();
+    }
+}
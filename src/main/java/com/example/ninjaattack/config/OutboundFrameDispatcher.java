@@ -0,0 +1,170 @@
+package com.example.ninjaattack.config;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.WebSocketHandlerDecorator;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Owns the per-session {@link CoalescingSessionDecorator}s: the pool their
+ * frames are written on, their limits, and counters for the admin endpoint.
+ * <p>
+ * Writes block, so a client that stops reading holds a writer thread. A
+ * watchdog checks the writes in progress every
+ * {@code websocket.outbound.send-check-interval-ms} and closes sessions whose
+ * write has been blocked for longer than the send time limit, which fails the
+ * write and frees its thread even if no further frame is ever queued for it.
+ */
+@Component
+public class OutboundFrameDispatcher {
+
+    private final int bufferSizeLimit;
+    private final long sendTimeLimitMillis;
+    private final ExecutorService writers;
+    private final ScheduledExecutorService sendWatchdog;
+
+    private final Map<String, CoalescingSessionDecorator> sessions = new ConcurrentHashMap<>();
+    // Sessions with a write in progress
+    private final Set<CoalescingSessionDecorator> writing = ConcurrentHashMap.newKeySet();
+
+    private final AtomicLong framesSent = new AtomicLong();
+    private final AtomicLong framesCoalesced = new AtomicLong();
+    private final AtomicLong sessionsClosedSlow = new AtomicLong();
+    private final AtomicLong bufferedBytes = new AtomicLong();
+
+    public OutboundFrameDispatcher(
+            @Value("${websocket.outbound.buffer-size-limit:524288}") int bufferSizeLimit,
+            @Value("${websocket.outbound.send-time-limit-ms:10000}") long sendTimeLimitMillis,
+            @Value("${websocket.outbound.writer-threads:0}") int writerThreads,
+            @Value("${websocket.outbound.send-check-interval-ms:1000}") long sendCheckIntervalMillis) {
+        this.bufferSizeLimit = bufferSizeLimit;
+        this.sendTimeLimitMillis = sendTimeLimitMillis;
+        int threads = writerThreads > 0 ? writerThreads : Runtime.getRuntime().availableProcessors() * 2;
+        AtomicInteger counter = new AtomicInteger();
+        this.writers = Executors.newFixedThreadPool(threads, r -> {
+            Thread t = new Thread(r, "ws-writer-" + counter.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        this.sendWatchdog = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "ws-send-watchdog");
+            t.setDaemon(true);
+            return t;
+        });
+        sendWatchdog.scheduleWithFixedDelay(this::closeBlockedSessions, sendCheckIntervalMillis,
+                sendCheckIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Wraps the STOMP handler so every session it sees sends through a
+     * coalescing buffer.
+     */
+    WebSocketHandler decorate(WebSocketHandler handler) {
+        return new WebSocketHandlerDecorator(handler) {
+            @Override
+            public void afterConnectionEstablished(WebSocketSession session) throws Exception {
+                CoalescingSessionDecorator decorated = new CoalescingSessionDecorator(session,
+                        OutboundFrameDispatcher.this);
+                sessions.put(session.getId(), decorated);
+                super.afterConnectionEstablished(decorated);
+            }
+
+            @Override
+            public void afterConnectionClosed(WebSocketSession session, CloseStatus closeStatus) throws Exception {
+                CoalescingSessionDecorator decorated = sessions.remove(session.getId());
+                if (decorated != null) {
+                    decorated.discard();
+                }
+                super.afterConnectionClosed(session, closeStatus);
+            }
+        };
+    }
+
+    void execute(Runnable drain) {
+        writers.execute(drain);
+    }
+
+    void writeStarted(CoalescingSessionDecorator session) {
+        writing.add(session);
+    }
+
+    void writeFinished(CoalescingSessionDecorator session) {
+        writing.remove(session);
+    }
+
+    private void closeBlockedSessions() {
+        try {
+            for (CoalescingSessionDecorator session : writing) {
+                session.closeIfWriteBlocked();
+            }
+        } catch (RuntimeException e) {
+            System.err.println("WebSocket send watchdog failed: " + e.getMessage());
+        }
+    }
+
+    int getBufferSizeLimit() {
+        return bufferSizeLimit;
+    }
+
+    long getSendTimeLimitMillis() {
+        return sendTimeLimitMillis;
+    }
+
+    void frameSent() {
+        framesSent.incrementAndGet();
+    }
+
+    void frameCoalesced() {
+        framesCoalesced.incrementAndGet();
+    }
+
+    void sessionClosed() {
+        sessionsClosedSlow.incrementAndGet();
+    }
+
+    void bufferedBytesChanged(long delta) {
+        bufferedBytes.addAndGet(delta);
+    }
+
+    // --- Metrics ---
+
+    public int getSessionCount() {
+        return sessions.size();
+    }
+
+    public long getFramesSent() {
+        return framesSent.get();
+    }
+
+    public long getFramesCoalesced() {
+        return framesCoalesced.get();
+    }
+
+    public long getSessionsClosedSlow() {
+        return sessionsClosedSlow.get();
+    }
+
+    /** Bytes queued across all sessions and not yet written. */
+    public long getBufferedBytes() {
+        return bufferedBytes.get();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        sendWatchdog.shutdownNow();
+        writers.shutdownNow();
+    }
+}
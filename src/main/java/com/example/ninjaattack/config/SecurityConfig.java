@@ -1,18 +1,25 @@
 package com.example.ninjaattack.config;
 
 import com.example.ninjaattack.service.UserService;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.annotation.Order;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.AuthenticationProvider;
+import org.springframework.security.authentication.ProviderManager;
 import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
 import org.springframework.security.config.annotation.authentication.configuration.AuthenticationConfiguration;
+import org.springframework.security.config.Customizer;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.annotation.web.configurers.AbstractHttpConfigurer;
+import org.springframework.security.config.http.SessionCreationPolicy;
+import org.springframework.security.core.userdetails.User;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.provisioning.InMemoryUserDetailsManager;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.web.context.HttpSessionSecurityContextRepository;
 
@@ -45,6 +52,37 @@ public class SecurityConfig {
         return config.getAuthenticationManager();
     }
 
+    /**
+     * The Prometheus scrape endpoint: the scraper has no login session and
+     * authenticates with HTTP Basic as {@code game.metrics.scrape-username}.
+     * Without a configured scrape password nobody can read it.
+     */
+    @Bean
+    @Order(1)
+    public SecurityFilterChain prometheusFilterChain(HttpSecurity http,
+            @Value("${game.metrics.scrape-username:prometheus}") String username,
+            @Value("${game.metrics.scrape-password:}") String password) throws Exception {
+        InMemoryUserDetailsManager scrapers = new InMemoryUserDetailsManager();
+        if (!password.isBlank()) {
+            scrapers.createUser(User.withUsername(username)
+                    .password(passwordEncoder().encode(password))
+                    .roles("METRICS")
+                    .build());
+        }
+        DaoAuthenticationProvider provider = new DaoAuthenticationProvider();
+        provider.setUserDetailsService(scrapers);
+        provider.setPasswordEncoder(passwordEncoder());
+
+        http
+                .securityMatcher("/actuator/prometheus")
+                .csrf(AbstractHttpConfigurer::disable)
+                .authorizeHttpRequests(auth -> auth.anyRequest().hasRole("METRICS"))
+                .authenticationManager(new ProviderManager(provider))
+                .httpBasic(Customizer.withDefaults())
+                .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS));
+        return http.build();
+    }
+
     /**
      * Configure HTTP Security Rules (SecurityFilterChain)
      */
@@ -55,6 +93,13 @@ public class SecurityConfig {
 
                 // Define which URLs require/don't require login
                 .authorizeHttpRequests(auth -> auth
+                        // Offline admin tooling (Elo recomputation etc.)
+                        .requestMatchers("/api/admin/**").hasRole("ADMIN")
+                        // Probes have no session; other actuator endpoints need a login
+                        // (/actuator/prometheus has its own chain above)
+                        .requestMatchers("/actuator/health/**").permitAll()
+                        // Startup step timeline (bean names, timings)
+                        .requestMatchers("/actuator/startup").hasRole("ADMIN")
                         .requestMatchers(
                                 // Static resources and public APIs must be allowed
                                 "/",
@@ -64,6 +109,8 @@ public class SecurityConfig {
                                 "/css/**",
                                 "/js/**",
                                 "/assets/**",
+                                // Content-hashed copies of the above, written by the build
+                                "/dist/**",
                                 "/ws/**",
                                 "/api/auth/**",
                                 "/api/leaderboard",
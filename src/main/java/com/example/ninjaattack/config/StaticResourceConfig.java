@@ -0,0 +1,39 @@
+package com.example.ninjaattack.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.CacheControl;
+import org.springframework.web.servlet.config.annotation.ResourceHandlerRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+import org.springframework.web.servlet.resource.EncodedResourceResolver;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serves the content-hashed copies written by the build (StaticAssetPipeline in
+ * src/build/java) under /dist/ as immutable: a hashed name never changes content, so browsers and
+ * proxies keep them without revalidating. The precompressed {@code .br}/{@code .gz}
+ * variants are picked by Accept-Encoding (with {@code Vary: Accept-Encoding}).
+ * <p>
+ * Everything else (pages, plain asset paths) stays on Spring Boot's default
+ * handler, which {@code spring.web.resources.*} sets to revalidate every time
+ * and to serve the same precompressed variants.
+ */
+@Configuration
+public class StaticResourceConfig implements WebMvcConfigurer {
+
+    // Where the build writes the hashed copies, under static/
+    private static final String DIST_DIR = "dist";
+
+    @Value("${game.static.immutable-max-age-days:365}")
+    private long immutableMaxAgeDays;
+
+    @Override
+    public void addResourceHandlers(ResourceHandlerRegistry registry) {
+        registry.addResourceHandler("/" + DIST_DIR + "/**")
+                .addResourceLocations("classpath:/static/" + DIST_DIR + "/")
+                .setCacheControl(CacheControl.maxAge(immutableMaxAgeDays, TimeUnit.DAYS).cachePublic().immutable())
+                .resourceChain(true)
+                .addResolver(new EncodedResourceResolver());
+    }
+}
@@ -1,10 +1,12 @@
 package com.example.ninjaattack.config;
 
 import org.springframework.context.annotation.Configuration;
+import org.springframework.messaging.simp.config.ChannelRegistration;
 import org.springframework.messaging.simp.config.MessageBrokerRegistry;
 import org.springframework.web.socket.config.annotation.EnableWebSocketMessageBroker;
 import org.springframework.web.socket.config.annotation.StompEndpointRegistry;
 import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerConfigurer;
+import org.springframework.web.socket.config.annotation.WebSocketTransportRegistration;
 
 // (关键修复) 删除了所有有问题的 import，只保留核心配置
 
@@ -12,6 +14,14 @@ import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerCo
 @EnableWebSocketMessageBroker
 public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
 
+    private final OutboundFrameDispatcher outboundFrameDispatcher;
+    private final InboundRateLimiter inboundRateLimiter;
+
+    public WebSocketConfig(OutboundFrameDispatcher outboundFrameDispatcher, InboundRateLimiter inboundRateLimiter) {
+        this.outboundFrameDispatcher = outboundFrameDispatcher;
+        this.inboundRateLimiter = inboundRateLimiter;
+    }
+
     @Override
     public void configureMessageBroker(MessageBrokerRegistry registry) {
         registry.enableSimpleBroker("/topic", "/queue");
@@ -26,4 +36,16 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
                 .setAllowedOriginPatterns("*")
                 .withSockJS();
     }
-}
\ No newline at end of file
+
+    @Override
+    public void configureWebSocketTransport(WebSocketTransportRegistration registration) {
+        // (新增) 慢客户端: 同一游戏的旧状态帧在发送前被新状态替换, 见 CoalescingSessionDecorator
+        registration.addDecoratorFactory(outboundFrameDispatcher::decorate);
+    }
+
+    @Override
+    public void configureClientInboundChannel(ChannelRegistration registration) {
+        // (新增) 超出令牌桶预算的指令在进入控制器前直接丢弃, 见 InboundRateLimiter
+        registration.interceptors(inboundRateLimiter);
+    }
+}
@@ -0,0 +1,53 @@
+package com.example.ninjaattack.controller;
+
+import com.example.ninjaattack.model.dto.EloSweepRequest;
+import com.example.ninjaattack.model.dto.EloSweepResult;
+import com.example.ninjaattack.service.EloRecomputeService;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+/**
+ * Offline Elo tooling: replays the finished game history. Read-only, it never
+ * touches the live ratings. Restricted to ROLE_ADMIN in SecurityConfig.
+ */
+@RestController
+@RequestMapping("/api/admin/elo")
+public class EloAdminController {
+
+    private final EloRecomputeService eloRecomputeService;
+
+    public EloAdminController(EloRecomputeService eloRecomputeService) {
+        this.eloRecomputeService = eloRecomputeService;
+    }
+
+    /**
+     * Ratings every player would have if all history were replayed with the
+     * current elo.* configuration.
+     */
+    @GetMapping("/recompute")
+    public ResponseEntity<?> recompute() {
+        try {
+            return ResponseEntity.ok(eloRecomputeService.recompute());
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(e.getMessage());
+        }
+    }
+
+    /**
+     * Score every parameter combination in the grid by log-loss, best first.
+     */
+    @PostMapping("/sweep")
+    public ResponseEntity<?> sweep(@RequestBody EloSweepRequest request) {
+        try {
+            List<EloSweepResult> results = eloRecomputeService.sweep(request);
+            return ResponseEntity.ok(results);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package com.example.ninjaattack.controller;
+
+import com.example.ninjaattack.service.GameService;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * Operational view of the live-game map. Restricted to ROLE_ADMIN in SecurityConfig.
+ */
+@RestController
+@RequestMapping("/api/admin/games")
+public class GameAdminController {
+
+    private final GameService gameService;
+
+    public GameAdminController(GameService gameService) {
+        this.gameService = gameService;
+    }
+
+    /**
+     * Estimated heap held by live games, refreshed on every eviction pass.
+     */
+    @GetMapping("/memory")
+    public GameService.LiveGameFootprint memory() {
+        return gameService.getLiveGameFootprint();
+    }
+}
@@ -1,10 +1,13 @@
 package com.example.ninjaattack.controller;
 
+import com.example.ninjaattack.model.dto.GameResumeDTO;
 import com.example.ninjaattack.model.dto.GameStateDTO;
 import com.example.ninjaattack.service.GameService;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 import java.security.Principal;
@@ -31,4 +34,25 @@ public class GameController {
             return ResponseEntity.noContent().build();
         }
     }
+
+    /**
+     * Called by a client after reconnecting: the broadcasts it missed since
+     * {@code since} (its last seen seq), or a snapshot if they are gone.
+     */
+    @GetMapping("/{gameId}/resume")
+    public ResponseEntity<GameResumeDTO> resume(@PathVariable String gameId,
+            @RequestParam(defaultValue = "0") long since, Principal principal) {
+        if (principal == null) {
+            return ResponseEntity.status(401).build();
+        }
+        try {
+            GameResumeDTO resume = gameService.resume(gameId, principal.getName(), since);
+            if (resume == null) {
+                return ResponseEntity.notFound().build();
+            }
+            return ResponseEntity.ok(resume);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(403).build();
+        }
+    }
 }
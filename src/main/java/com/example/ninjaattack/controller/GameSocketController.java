@@ -1,9 +1,12 @@
 package com.example.ninjaattack.controller;
 
+import com.example.ninjaattack.model.dto.CommandAck;
 import com.example.ninjaattack.model.dto.MoveRequest;
+import com.example.ninjaattack.service.GameMetrics;
 import com.example.ninjaattack.service.GameService;
 import org.springframework.messaging.handler.annotation.DestinationVariable;
 import org.springframework.messaging.handler.annotation.MessageMapping;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.stereotype.Controller;
 
 import java.security.Principal; // (新增)
@@ -12,9 +15,14 @@ import java.security.Principal; // (新增)
 public class GameSocketController {
 
     private final GameService gameService;
+    private final SimpMessagingTemplate messagingTemplate;
+    private final GameMetrics gameMetrics;
 
-    public GameSocketController(GameService gameService) {
+    public GameSocketController(GameService gameService, SimpMessagingTemplate messagingTemplate,
+            GameMetrics gameMetrics) {
         this.gameService = gameService;
+        this.messagingTemplate = messagingTemplate;
+        this.gameMetrics = gameMetrics;
     }
 
     /**
@@ -48,12 +56,17 @@ public class GameSocketController {
         if (principal == null)
             return; // (新增) 安全检查
 
+        long received = System.nanoTime();
+        CommandAck.Status status;
         try {
-            gameService.placeAmbush(gameId, move, principal.getName());
+            status = gameService.placeAmbush(gameId, move, principal.getName());
+            acknowledge(gameId, move, status, null, principal);
         } catch (Exception e) {
             System.err.println("Ambush error: " + e.getMessage());
-            // (TODO) 在未来，我们应该将这个错误私信发回给 `principal.getName()`
+            status = CommandAck.Status.REJECTED;
+            acknowledge(gameId, move, status, e.getMessage(), principal);
         }
+        gameMetrics.moveHandled("ambush", status, System.nanoTime() - received);
     }
 
     /**
@@ -65,11 +78,31 @@ public class GameSocketController {
         if (principal == null)
             return; // (新增) 安全检查
 
+        long received = System.nanoTime();
+        CommandAck.Status status;
         try {
-            gameService.placePiece(gameId, move, principal.getName());
+            status = gameService.placePiece(gameId, move, principal.getName());
+            acknowledge(gameId, move, status, null, principal);
         } catch (Exception e) {
             System.err.println("Place error: " + e.getMessage());
-            // (TODO) 在未来，我们应该将这个错误私信发回给 `principal.getName()`
+            status = CommandAck.Status.REJECTED;
+            acknowledge(gameId, move, status, e.getMessage(), principal);
         }
+        gameMetrics.moveHandled("piece", status, System.nanoTime() - received);
+    }
+
+    /**
+     * (新增) 回执: 客户端据此停止重试
+     * 与游戏状态相同, 只发给发送者本人的会话 (/user/queue/game-ack/{gameId}),
+     * 其他用户无法订阅, 也无法通过伪造 playerId 把回执转给别人
+     * 旧客户端 (没有 clientSeq) 不订阅回执, 因此不发送
+     */
+    private void acknowledge(String gameId, MoveRequest move, CommandAck.Status status, String message,
+            Principal principal) {
+        if (move.getClientSeq() <= 0) {
+            return;
+        }
+        messagingTemplate.convertAndSendToUser(principal.getName(), "/queue/game-ack/" + gameId,
+                new CommandAck(gameId, move.getClientSeq(), status, message));
     }
 }
\ No newline at end of file
@@ -4,12 +4,23 @@ import com.example.ninjaattack.model.domain.Game;
 import com.example.ninjaattack.model.entity.ReplayCollection;
 import com.example.ninjaattack.repository.ReplayCollectionRepository;
 import com.example.ninjaattack.service.GamePersistenceService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
+// Not needed to play: created on the first replay request instead of at startup.
+// Only the controller itself is deferred; the repositories it uses are
+// bootstrapped eagerly with the rest of the context.
+@Lazy
 @RestController
 @RequestMapping("/api/replays")
 public class ReplayController {
@@ -17,6 +28,11 @@ public class ReplayController {
     private final GamePersistenceService gamePersistenceService;
     private final ReplayCollectionRepository replayCollectionRepository;
 
+    // Browsers revalidate after max-age; revalidation is answered from the tag alone.
+    // Replays need a login, so shared caches (CDN, proxies) must not keep them.
+    @Value("${replay.cache.max-age-seconds:3600}")
+    private long maxAgeSeconds;
+
     public ReplayController(GamePersistenceService gamePersistenceService,
             ReplayCollectionRepository replayCollectionRepository) {
         this.gamePersistenceService = gamePersistenceService;
@@ -37,13 +53,63 @@ public class ReplayController {
         return gamePersistenceService.loadFinishedGames();
     }
 
+    /**
+     * A finished game is written once more when its rating changes arrive, and
+     * never after that. Its tag is derived from the id (and the JSON layout)
+     * alone and only handed out once the result is rated: a request presenting
+     * it is answered 304 without reading the game. Games awaiting their rating
+     * get neither a tag nor a cacheable response.
+     * <p>
+     * Games still in progress are not replays: their stored JSON holds the hidden
+     * ambushes and command seqs of both players, so they are answered 404.
+     * <p>
+     * The body is the stored JSON, passed through as is (see
+     * {@link GamePersistenceService#loadGameJson(String)}).
+     */
     @GetMapping("/{gameId}")
-    public ResponseEntity<Game> getReplay(@PathVariable String gameId) {
-        Game game = gamePersistenceService.loadGame(gameId);
-        if (game != null) {
-            return ResponseEntity.ok(game);
+    public ResponseEntity<String> getReplay(@PathVariable String gameId,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        String etag = "\"replay-" + gameId + "-v" + Game.CURRENT_SCHEMA_VERSION + "-rated\"";
+        if (ifNoneMatch != null && matchesWeakly(ifNoneMatch, etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                    .eTag(etag)
+                    .cacheControl(finishedReplayCacheControl())
+                    .build();
+        }
+
+        GamePersistenceService.StoredGameJson replay = gamePersistenceService.loadGameJson(gameId);
+        if (replay == null || !replay.finished()) {
+            return ResponseEntity.notFound().build();
         }
-        return ResponseEntity.notFound().build();
+        if (!replay.rated()) {
+            return ResponseEntity.ok()
+                    .cacheControl(CacheControl.noStore())
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .body(replay.json());
+        }
+        return ResponseEntity.ok()
+                .eTag(etag)
+                .cacheControl(finishedReplayCacheControl())
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(replay.json());
+    }
+
+    // Weak comparison against each listed tag; "*" is not honoured, since it would need the game
+    private static boolean matchesWeakly(String ifNoneMatch, String etag) {
+        for (String tag : ifNoneMatch.split(",")) {
+            tag = tag.trim();
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if (tag.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private CacheControl finishedReplayCacheControl() {
+        return CacheControl.maxAge(maxAgeSeconds, TimeUnit.SECONDS).cachePrivate();
     }
 
     // --- Replay Collection ---
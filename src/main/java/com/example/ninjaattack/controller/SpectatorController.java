@@ -0,0 +1,47 @@
+package com.example.ninjaattack.controller;
+
+import com.example.ninjaattack.model.dto.GameStateDTO;
+import com.example.ninjaattack.service.GameService;
+import com.example.ninjaattack.service.SpectatorService;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * Entry point for viewers: the current redacted snapshot of a game, to show
+ * right away before the next update arrives on /topic/spectate/{gameId}.
+ */
+@RestController
+@RequestMapping("/api/spectate")
+public class SpectatorController {
+
+    private final GameService gameService;
+    private final SpectatorService spectatorService;
+
+    public SpectatorController(GameService gameService, SpectatorService spectatorService) {
+        this.gameService = gameService;
+        this.spectatorService = spectatorService;
+    }
+
+    @GetMapping(value = "/{gameId}", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<String> snapshot(@PathVariable String gameId) {
+        String json = spectatorService.getLatestSnapshot(gameId);
+        if (json == null) {
+            if (spectatorService.isDelayed()) {
+                // Nothing old enough to show yet; the live state would defeat the delay
+                return ResponseEntity.noContent().build();
+            }
+            GameStateDTO state = gameService.getStateForSpectators(gameId);
+            if (state == null) {
+                return ResponseEntity.notFound().build();
+            }
+            json = spectatorService.toSnapshot(state);
+        }
+        return ResponseEntity.ok()
+                .header("X-Spectators", String.valueOf(spectatorService.getSpectatorCount(gameId)))
+                .body(json);
+    }
+}
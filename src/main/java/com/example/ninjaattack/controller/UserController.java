@@ -2,13 +2,20 @@ package com.example.ninjaattack.controller;
 
 import com.example.ninjaattack.model.domain.User;
 import com.example.ninjaattack.service.UserService;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import java.util.List;
 import java.util.Map;
 
+// Leaderboard and history are not needed to play: the controller is created on
+// first request (UserService itself is created at startup for login)
+@Lazy
 @RestController
 @RequestMapping("/api/leaderboard")
 public class UserController {
@@ -19,9 +26,16 @@ public class UserController {
         this.userService = userService;
     }
 
+    // Revalidated on every load, but answered 304 from the version counter while
+    // no game has ended (and no player changed) since the client's copy
     @GetMapping
-    public ResponseEntity<List<User>> getLeaderboard() {
-        return ResponseEntity.ok(userService.getLeaderboard());
+    public ResponseEntity<List<User>> getLeaderboard(WebRequest request) {
+        String etag = "W/\"leaderboard-" + userService.getLeaderboardVersion() + "\"";
+        CacheControl cacheControl = CacheControl.noCache().cachePublic();
+        if (request.checkNotModified(etag, userService.getLeaderboardChangedAt())) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).cacheControl(cacheControl).build();
+        }
+        return ResponseEntity.ok().cacheControl(cacheControl).body(userService.getLeaderboard());
     }
 
     @PutMapping("/avatar")
@@ -0,0 +1,47 @@
+package com.example.ninjaattack.controller;
+
+import com.example.ninjaattack.config.InboundRateLimiter;
+import com.example.ninjaattack.config.OutboundFrameDispatcher;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Outbound WebSocket buffer and inbound rate limit statistics. Restricted to ROLE_ADMIN in SecurityConfig.
+ */
+@RestController
+@RequestMapping("/api/admin/websocket")
+public class WebSocketAdminController {
+
+    private final OutboundFrameDispatcher outboundFrameDispatcher;
+    private final InboundRateLimiter inboundRateLimiter;
+
+    public WebSocketAdminController(OutboundFrameDispatcher outboundFrameDispatcher,
+            InboundRateLimiter inboundRateLimiter) {
+        this.outboundFrameDispatcher = outboundFrameDispatcher;
+        this.inboundRateLimiter = inboundRateLimiter;
+    }
+
+    @GetMapping("/outbound")
+    public Map<String, Object> outbound() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("sessions", outboundFrameDispatcher.getSessionCount());
+        stats.put("bufferedBytes", outboundFrameDispatcher.getBufferedBytes());
+        stats.put("framesSent", outboundFrameDispatcher.getFramesSent());
+        stats.put("framesCoalesced", outboundFrameDispatcher.getFramesCoalesced());
+        stats.put("sessionsClosedSlow", outboundFrameDispatcher.getSessionsClosedSlow());
+        return stats;
+    }
+
+    @GetMapping("/inbound")
+    public Map<String, Object> inbound() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("allowed", inboundRateLimiter.getAllowed());
+        stats.put("rejected", inboundRateLimiter.getRejected());
+        stats.put("buckets", inboundRateLimiter.getBucketCount());
+        return stats;
+    }
+}
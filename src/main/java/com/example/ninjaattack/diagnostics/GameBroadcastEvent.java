@@ -0,0 +1,34 @@
+package com.example.ninjaattack.diagnostics;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * One game state broadcast: rendering both player views and handing them to the
+ * broker.
+ */
+@Name("ninjaattack.GameBroadcast")
+@Label("Game Broadcast")
+@Category({ "Ninja Attack", "Game" })
+@StackTrace(false)
+public class GameBroadcastEvent extends Event {
+
+    @Label("Game Id")
+    public String gameId;
+
+    @Label("Sequence")
+    public long seq;
+
+    @Label("Payload Size")
+    @DataAmount
+    public long payloadBytes;
+
+    @Label("Serialization Time")
+    @Timespan(Timespan.NANOSECONDS)
+    public long serializeTime;
+}
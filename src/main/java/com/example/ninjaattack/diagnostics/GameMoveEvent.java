@@ -0,0 +1,39 @@
+package com.example.ninjaattack.diagnostics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * One ambush or piece command applied by GameService, from lookup to broadcast.
+ * The broadcast inside it is recorded separately as {@link GameBroadcastEvent}
+ * on the same thread.
+ */
+@Name("ninjaattack.GameMove")
+@Label("Game Move")
+@Category({ "Ninja Attack", "Game" })
+@StackTrace(false)
+public class GameMoveEvent extends Event {
+
+    @Label("Game Id")
+    public String gameId;
+
+    @Label("Player Id")
+    public String playerId;
+
+    @Label("Move Type")
+    public String moveType;
+
+    @Label("Outcome")
+    @Description("APPLIED, DUPLICATE or REJECTED")
+    public String outcome;
+
+    @Label("Lock Wait")
+    @Description("Time spent waiting for the game monitor")
+    @Timespan(Timespan.NANOSECONDS)
+    public long lockWait;
+}
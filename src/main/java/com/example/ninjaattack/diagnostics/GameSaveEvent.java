@@ -0,0 +1,28 @@
+package com.example.ninjaattack.diagnostics;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * One game written to the database by GamePersistenceService.
+ */
+@Name("ninjaattack.GameSave")
+@Label("Game Save")
+@Category({ "Ninja Attack", "Persistence" })
+@StackTrace(false)
+public class GameSaveEvent extends Event {
+
+    @Label("Game Id")
+    public String gameId;
+
+    @Label("Bytes Written")
+    @DataAmount
+    public long bytesWritten;
+
+    @Label("Succeeded")
+    public boolean succeeded;
+}
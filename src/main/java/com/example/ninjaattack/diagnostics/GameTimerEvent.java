@@ -0,0 +1,39 @@
+package com.example.ninjaattack.diagnostics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * A game timer firing or being cancelled. For a fire the event spans the
+ * timeout handling; lateness is how long after its deadline it ran (negative
+ * if early). For a cancel, lateness is minus the time it had left.
+ */
+@Name("ninjaattack.GameTimer")
+@Label("Game Timer")
+@Category({ "Ninja Attack", "Timer" })
+@StackTrace(false)
+public class GameTimerEvent extends Event {
+
+    @Label("Game Id")
+    public String gameId;
+
+    @Label("Timer")
+    @Description("TURN, AMBUSH or MATCH")
+    public String timer;
+
+    @Label("Action")
+    @Description("FIRE or CANCEL")
+    public String action;
+
+    @Label("Player Id")
+    public String playerId;
+
+    @Label("Lateness")
+    @Timespan(Timespan.MILLISECONDS)
+    public long lateness;
+}
@@ -0,0 +1,209 @@
+package com.example.ninjaattack.diagnostics;
+
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Summarizes a flight recording into per-game move latency breakdowns.
+ * <p>
+ * Each move's duration is split into time waiting for the game lock, time in
+ * the broadcasts it triggered (serialization plus handing the frames to the
+ * broker) and the rest (engine, timers, bookkeeping). Database writes are async,
+ * so saves are reported next to the moves rather than inside them.
+ * <p>
+ * Usage, against a recording taken with
+ * {@code -XX:StartFlightRecording:filename=game.jfr}:
+ *
+ * <pre>
+ * java -cp target/classes com.example.ninjaattack.diagnostics.JfrReport game.jfr [games]
+ * </pre>
+ */
+public class JfrReport {
+
+    static final String MOVE = "ninjaattack.GameMove";
+    static final String BROADCAST = "ninjaattack.GameBroadcast";
+    static final String SAVE = "ninjaattack.GameSave";
+    static final String TIMER = "ninjaattack.GameTimer";
+
+    record Move(long threadId, Instant start, Instant end, long totalNanos, long lockWaitNanos, String outcome) {
+    }
+
+    record Span(Instant start, Instant end, long nanos) {
+    }
+
+    /** Breakdown of one game; times in nanoseconds, lateness in milliseconds. */
+    record GameSummary(String gameId, int moves, long p50, long p99, long max,
+            long avgLockWait, long avgBroadcast, long avgOther,
+            int saves, long avgSave, long maxSave, long avgSaveBytes,
+            int timerFires, long maxTimerLateness) {
+    }
+
+    private final Map<String, List<Move>> movesByGame = new HashMap<>();
+    private final Map<Long, List<Span>> broadcastsByThread = new HashMap<>();
+    private final Map<String, List<long[]>> savesByGame = new HashMap<>();
+    private final Map<String, List<Long>> timerLatenessByGame = new HashMap<>();
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("Usage: JfrReport <recording.jfr> [games]");
+            System.exit(2);
+        }
+        int top = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+        JfrReport report = JfrReport.read(Path.of(args[0]));
+        report.print(System.out, top);
+    }
+
+    public static JfrReport read(Path recording) throws IOException {
+        JfrReport report = new JfrReport();
+        try (RecordingFile file = new RecordingFile(recording)) {
+            while (file.hasMoreEvents()) {
+                report.accept(file.readEvent());
+            }
+        }
+        return report;
+    }
+
+    void accept(RecordedEvent event) {
+        switch (event.getEventType().getName()) {
+            case MOVE -> movesByGame.computeIfAbsent(event.getString("gameId"), id -> new ArrayList<>())
+                    .add(new Move(threadId(event), event.getStartTime(), event.getEndTime(),
+                            event.getDuration().toNanos(), event.getLong("lockWait"), event.getString("outcome")));
+            case BROADCAST -> broadcastsByThread.computeIfAbsent(threadId(event), id -> new ArrayList<>())
+                    .add(new Span(event.getStartTime(), event.getEndTime(), event.getDuration().toNanos()));
+            case SAVE -> savesByGame.computeIfAbsent(event.getString("gameId"), id -> new ArrayList<>())
+                    .add(new long[] { event.getDuration().toNanos(), event.getLong("bytesWritten") });
+            case TIMER -> {
+                if ("FIRE".equals(event.getString("action"))) {
+                    timerLatenessByGame.computeIfAbsent(event.getString("gameId"), id -> new ArrayList<>())
+                            .add(event.getLong("lateness"));
+                }
+            }
+            default -> {
+            }
+        }
+    }
+
+    private static long threadId(RecordedEvent event) {
+        return event.getThread() == null ? -1 : event.getThread().getJavaThreadId();
+    }
+
+    public List<GameSummary> summarize() {
+        broadcastsByThread.values().forEach(spans -> spans.sort(Comparator.comparing(Span::start)));
+
+        List<GameSummary> summaries = new ArrayList<>();
+        for (Map.Entry<String, List<Move>> entry : movesByGame.entrySet()) {
+            String gameId = entry.getKey();
+            List<Move> moves = entry.getValue();
+
+            long[] totals = moves.stream().mapToLong(Move::totalNanos).sorted().toArray();
+            long lockWait = 0;
+            long broadcast = 0;
+            long other = 0;
+            for (Move move : moves) {
+                long inBroadcast = broadcastNanosWithin(move);
+                lockWait += move.lockWaitNanos();
+                broadcast += inBroadcast;
+                other += Math.max(0, move.totalNanos() - move.lockWaitNanos() - inBroadcast);
+            }
+
+            List<long[]> saves = savesByGame.getOrDefault(gameId, List.of());
+            long saveTotal = 0;
+            long saveMax = 0;
+            long saveBytes = 0;
+            for (long[] save : saves) {
+                saveTotal += save[0];
+                saveMax = Math.max(saveMax, save[0]);
+                saveBytes += save[1];
+            }
+            List<Long> lateness = timerLatenessByGame.getOrDefault(gameId, List.of());
+
+            int n = moves.size();
+            summaries.add(new GameSummary(gameId, n, percentile(totals, 0.50), percentile(totals, 0.99),
+                    totals[totals.length - 1], lockWait / n, broadcast / n, other / n,
+                    saves.size(), saves.isEmpty() ? 0 : saveTotal / saves.size(), saveMax,
+                    saves.isEmpty() ? 0 : saveBytes / saves.size(),
+                    lateness.size(), lateness.stream().mapToLong(Long::longValue).max().orElse(0)));
+        }
+        summaries.sort(Comparator.comparingLong(GameSummary::p99).reversed());
+        return summaries;
+    }
+
+    // Broadcasts are recorded on the thread that applied the move, inside its span
+    private long broadcastNanosWithin(Move move) {
+        long total = 0;
+        for (Span span : broadcastsByThread.getOrDefault(move.threadId(), List.of())) {
+            if (span.start().isBefore(move.start())) {
+                continue;
+            }
+            if (span.end().isAfter(move.end())) {
+                break;
+            }
+            total += span.nanos();
+        }
+        return total;
+    }
+
+    /**
+     * Where the slowest 1% of all moves spent their time: total lock wait,
+     * broadcast and other nanoseconds, summed over those moves.
+     */
+    public long[] tailBreakdown() {
+        broadcastsByThread.values().forEach(spans -> spans.sort(Comparator.comparing(Span::start)));
+        List<Move> all = movesByGame.values().stream().flatMap(List::stream)
+                .sorted(Comparator.comparingLong(Move::totalNanos)).toList();
+        long[] breakdown = new long[3];
+        if (all.isEmpty()) {
+            return breakdown;
+        }
+        long threshold = percentile(all.stream().mapToLong(Move::totalNanos).toArray(), 0.99);
+        for (Move move : all) {
+            if (move.totalNanos() >= threshold) {
+                long inBroadcast = broadcastNanosWithin(move);
+                breakdown[0] += move.lockWaitNanos();
+                breakdown[1] += inBroadcast;
+                breakdown[2] += Math.max(0, move.totalNanos() - move.lockWaitNanos() - inBroadcast);
+            }
+        }
+        return breakdown;
+    }
+
+    static long percentile(long[] sorted, double p) {
+        int index = (int) Math.ceil(p * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, index))];
+    }
+
+    public void print(PrintStream out, int top) {
+        List<GameSummary> summaries = summarize();
+        long moves = summaries.stream().mapToLong(GameSummary::moves).sum();
+        out.printf("%d moves in %d games (slowest %d by p99 shown, times in ms)%n", moves, summaries.size(),
+                Math.min(top, summaries.size()));
+        long[] tail = tailBreakdown();
+        long tailTotal = Math.max(1, tail[0] + tail[1] + tail[2]);
+        out.printf("Slowest 1%% of moves: lock wait %d%%, broadcast %d%%, other %d%%%n",
+                100 * tail[0] / tailTotal, 100 * tail[1] / tailTotal, 100 * tail[2] / tailTotal);
+        out.printf("%-36s %6s %8s %8s %8s | %8s %8s %8s | %5s %8s %8s %8s | %6s %8s%n",
+                "game", "moves", "p50", "p99", "max", "avgLock", "avgBcast", "avgOther",
+                "saves", "save", "saveMax", "bytes", "timers", "late");
+        for (GameSummary s : summaries.subList(0, Math.min(top, summaries.size()))) {
+            out.printf("%-36s %6d %8s %8s %8s | %8s %8s %8s | %5d %8s %8s %8d | %6d %8d%n",
+                    s.gameId(), s.moves(), ms(s.p50()), ms(s.p99()), ms(s.max()),
+                    ms(s.avgLockWait()), ms(s.avgBroadcast()), ms(s.avgOther()),
+                    s.saves(), ms(s.avgSave()), ms(s.maxSave()), s.avgSaveBytes(),
+                    s.timerFires(), s.maxTimerLateness());
+        }
+    }
+
+    private static String ms(long nanos) {
+        return String.format("%.2f", nanos / 1_000_000.0);
+    }
+}
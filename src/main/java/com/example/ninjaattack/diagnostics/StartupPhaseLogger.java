@@ -0,0 +1,95 @@
+package com.example.ninjaattack.diagnostics;
+
+import org.springframework.boot.context.event.ApplicationEnvironmentPreparedEvent;
+import org.springframework.boot.context.event.ApplicationPreparedEvent;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.boot.context.event.ApplicationStartedEvent;
+import org.springframework.boot.context.event.ApplicationStartingEvent;
+import org.springframework.boot.context.metrics.buffering.BufferingApplicationStartup;
+import org.springframework.boot.context.metrics.buffering.StartupTimeline;
+import org.springframework.boot.web.context.WebServerInitializedEvent;
+import org.springframework.context.ApplicationEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.core.metrics.ApplicationStartup;
+import org.springframework.core.metrics.StartupStep;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Prints where startup time went once the application is ready: each phase as
+ * milliseconds since JVM start, and the slowest bean initializations recorded
+ * by {@link BufferingApplicationStartup} (also served by /actuator/startup).
+ * <p>
+ * The span between "started" and "ready" is startup recovery and the JIT
+ * warm-up, which log their own totals. Registered in {@code main}, since the
+ * first events fire before the context exists.
+ */
+public class StartupPhaseLogger implements ApplicationListener<ApplicationEvent> {
+
+    private static final int SLOWEST_BEANS = 10;
+
+    private record Phase(String name, long uptimeMillis) {
+    }
+
+    private final List<Phase> phases = new ArrayList<>();
+
+    @Override
+    public void onApplicationEvent(ApplicationEvent event) {
+        if (event instanceof ApplicationStartingEvent) {
+            mark("main() entered (JVM start, class loading)");
+        } else if (event instanceof ApplicationEnvironmentPreparedEvent) {
+            mark("environment prepared");
+        } else if (event instanceof ApplicationPreparedEvent) {
+            mark("context prepared");
+        } else if (event instanceof WebServerInitializedEvent) {
+            mark("web server started");
+        } else if (event instanceof ContextRefreshedEvent) {
+            mark("context refreshed (JPA, security, broker, beans)");
+        } else if (event instanceof ApplicationStartedEvent) {
+            mark("started");
+        } else if (event instanceof ApplicationReadyEvent ready) {
+            mark("ready (after recovery and warm-up)");
+            print(ready.getApplicationContext().getApplicationStartup());
+        }
+    }
+
+    private synchronized void mark(String phase) {
+        phases.add(new Phase(phase, ManagementFactory.getRuntimeMXBean().getUptime()));
+    }
+
+    private synchronized void print(ApplicationStartup startup) {
+        StringBuilder out = new StringBuilder("Startup phases (ms since JVM start, +ms since previous):\n");
+        long previous = 0;
+        for (Phase phase : phases) {
+            out.append(String.format("  %7d  +%6d  %s%n", phase.uptimeMillis(), phase.uptimeMillis() - previous,
+                    phase.name()));
+            previous = phase.uptimeMillis();
+        }
+
+        if (startup instanceof BufferingApplicationStartup buffering) {
+            List<StartupTimeline.TimelineEvent> beans = buffering.getBufferedTimeline().getEvents().stream()
+                    .filter(e -> "spring.beans.instantiate".equals(e.getStartupStep().getName()))
+                    .sorted(Comparator.comparing(StartupTimeline.TimelineEvent::getDuration).reversed())
+                    .limit(SLOWEST_BEANS)
+                    .toList();
+            out.append("Slowest bean initializations (including their dependencies):\n");
+            for (StartupTimeline.TimelineEvent bean : beans) {
+                out.append(String.format("  %7d ms  %s%n", bean.getDuration().toMillis(), beanName(bean)));
+            }
+        }
+        System.out.print(out);
+    }
+
+    private static String beanName(StartupTimeline.TimelineEvent event) {
+        for (StartupStep.Tag tag : event.getStartupStep().getTags()) {
+            if ("beanName".equals(tag.getKey())) {
+                return tag.getValue();
+            }
+        }
+        return "?";
+    }
+}
@@ -16,6 +16,23 @@ public class Board {
         }
     }
 
+    /**
+     * Detached copy, for keeping a past state around.
+     */
+    public Board copy() {
+        Board copy = new Board();
+        for (int i = 0; i < SIZE; i++) {
+            for (int j = 0; j < SIZE; j++) {
+                Square from = grid[i][j];
+                Square to = copy.grid[i][j];
+                to.setOwnerId(from.getOwnerId());
+                to.setP1Ambush(from.isP1Ambush());
+                to.setP2Ambush(from.isP2Ambush());
+            }
+        }
+        return copy;
+    }
+
     public Square getSquare(int r, int c) {
         if (r < 0 || r >= SIZE || c < 0 || c >= SIZE) {
             return null;
@@ -13,8 +13,13 @@ import java.util.concurrent.ScheduledFuture;
 @JsonIgnoreProperties(ignoreUnknown = true)
 public class Game {
 
+    // Version of the stored JSON layout written by this code. Rows in this version
+    // are served to replay clients exactly as stored, so bump it whenever a field
+    // is renamed, removed or changes meaning.
+    public static final int CURRENT_SCHEMA_VERSION = 1;
+
     // [NEW] Schema version for future migrations
-    private int schemaVersion = 1;
+    private int schemaVersion = CURRENT_SCHEMA_VERSION;
 
     private String gameId;
     private Player p1;
@@ -32,14 +37,48 @@ public class Game {
     private String placementRoundStarter;
     private int placementsMadeThisTurn;
 
-    // [NEW] Move History
-    private java.util.List<MoveRecord> history = new java.util.ArrayList<>();
+    // Highest client command seq applied per player, so retried moves are not applied twice
+    private long p1CommandSeq;
+    private long p2CommandSeq;
+    // Which of the COMMAND_WINDOW seqs below the highest were applied too (bit n = seq - 1 - n),
+    // so a command retried after a later one went through is still applied once
+    private long p1CommandWindow;
+    private long p2CommandWindow;
+
+    // Sequence number of the last game state broadcast; persisted so
+    // it keeps increasing across rehydration
+    private long broadcastSeq;
+
+    // [NEW] Move History (packed, see MoveHistory)
+    private MoveHistory history = new MoveHistory();
 
     // Timers (Not serializable)
     @JsonIgnore
     private transient ScheduledFuture<?> turnTimer;
     @JsonIgnore
     private transient ScheduledFuture<?> matchTimer;
+    // What the turn timer slot currently holds ("TURN" or "AMBUSH"), for diagnostics
+    @JsonIgnore
+    private transient String turnTimerKind;
+    // Deadline of the last timeout applied, to recognise a timer firing twice
+    @JsonIgnore
+    private transient long lastTimeoutDeadline;
+
+    // Idle eviction (Not serializable): last command or timeout, and whether this
+    // instance has been spilled out of the live map
+    @JsonIgnore
+    private transient long lastActivityAt;
+    @JsonIgnore
+    private transient boolean evicted;
+    // When this instance entered the live map; players who never subscribed to
+    // it since count as absent from then
+    @JsonIgnore
+    private transient long liveSince;
+
+    // Phase this instance is currently counted under in the active-games gauge
+    // (Not serializable), null while not in the live map
+    @JsonIgnore
+    private transient GamePhase metricsPhase;
 
     // Deadlines (Serializable, used for state recovery)
     private long p1ActionDeadline = Long.MAX_VALUE;
@@ -73,8 +112,7 @@ public class Game {
     }
 
     // --- 计时器辅助方法 ---
-    public void startTimer(String playerId, int seconds) {
-        long deadline = System.currentTimeMillis() + (seconds * 1000L);
+    public void armTimer(String playerId, long deadline) {
         if (playerId.equals("p1")) {
             this.p1ActionDeadline = deadline;
         } else {
@@ -82,6 +120,65 @@ public class Game {
         }
     }
 
+    public long getCommandSeq(String playerId) {
+        return playerId.equals("p1") ? p1CommandSeq : p2CommandSeq;
+    }
+
+    public void setCommandSeq(String playerId, long seq) {
+        if (playerId.equals("p1")) {
+            this.p1CommandSeq = seq;
+        } else {
+            this.p2CommandSeq = seq;
+        }
+    }
+
+    private static final int COMMAND_WINDOW = 64;
+
+    /**
+     * Whether a command seq of this player was already applied. Seqs too far below
+     * the highest one to be remembered count as applied.
+     */
+    public boolean isCommandApplied(String playerId, long seq) {
+        long highest = getCommandSeq(playerId);
+        if (seq >= highest) {
+            return seq == highest;
+        }
+        long distance = highest - seq - 1;
+        return distance >= COMMAND_WINDOW || (getCommandWindow(playerId) & (1L << distance)) != 0;
+    }
+
+    public void markCommandApplied(String playerId, long seq) {
+        long highest = getCommandSeq(playerId);
+        long window = getCommandWindow(playerId);
+        if (seq > highest) {
+            long shift = seq - highest;
+            window = shift >= COMMAND_WINDOW ? 0 : window << shift;
+            if (highest > 0 && shift <= COMMAND_WINDOW) {
+                window |= 1L << (shift - 1);
+            }
+            setCommandSeq(playerId, seq);
+        } else if (seq < highest && highest - seq - 1 < COMMAND_WINDOW) {
+            window |= 1L << (highest - seq - 1);
+        }
+        if (playerId.equals("p1")) {
+            this.p1CommandWindow = window;
+        } else {
+            this.p2CommandWindow = window;
+        }
+    }
+
+    private long getCommandWindow(String playerId) {
+        return playerId.equals("p1") ? p1CommandWindow : p2CommandWindow;
+    }
+
+    public void markActivity(long now) {
+        this.lastActivityAt = now;
+    }
+
+    public long getActionDeadline(String playerId) {
+        return playerId.equals("p1") ? this.p1ActionDeadline : this.p2ActionDeadline;
+    }
+
     public void disarmTimer(String playerId) {
         if (playerId.equals("p1")) {
             this.p1ActionDeadline = Long.MAX_VALUE;
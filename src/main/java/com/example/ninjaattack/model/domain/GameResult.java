@@ -11,4 +11,6 @@ public class GameResult {
     private int p2PieceCount;
     private int p1RatingChange;
     private int p2RatingChange;
+    // Set with the rating changes; until then the stored result is still written again
+    private boolean rated;
 }
\ No newline at end of file
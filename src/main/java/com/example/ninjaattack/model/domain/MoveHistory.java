@@ -0,0 +1,217 @@
+package com.example.ninjaattack.model.domain;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+
+import java.io.IOException;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Append-only move log packed into one {@code long} per move.
+ * <p>
+ * Bit layout, low to high: player (1, p2 = 1), type (1, AMBUSH = 1), row (3),
+ * column (3), then the signed millisecond delta from the first move (56).
+ * <p>
+ * The JSON form is unchanged: an array of {@link MoveRecord}-shaped objects,
+ * written straight from the packed values, so stored games, the archive and
+ * replay clients keep working.
+ * <p>
+ * Appends happen under the game lock; readers such as the async save may run
+ * concurrently and always see a consistent prefix.
+ */
+@JsonSerialize(using = MoveHistory.Serializer.class)
+@JsonDeserialize(using = MoveHistory.Deserializer.class)
+public class MoveHistory {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private long[] moves = new long[0];
+    private volatile int size;
+    private long baseTime;
+
+    public void add(String playerId, String type, int r, int c, long timestamp) {
+        if (r < 0 || r > 7 || c < 0 || c > 7) {
+            throw new IllegalArgumentException("Square out of range: " + r + "," + c);
+        }
+        int count = size;
+        if (count == 0) {
+            baseTime = timestamp;
+        }
+        long packed = ((timestamp - baseTime) << 8)
+                | ((long) c << 5)
+                | ((long) r << 2)
+                | (encodeType(type) << 1)
+                | encodePlayer(playerId);
+
+        long[] target = moves;
+        if (count == target.length) {
+            target = Arrays.copyOf(target, Math.max(INITIAL_CAPACITY, count + (count >> 1)));
+        }
+        target[count] = packed;
+        // Publish the array before the size so readers never index past it
+        moves = target;
+        size = count + 1;
+    }
+
+    public void add(MoveRecord record) {
+        add(record.getPlayerId(), record.getType(), record.getR(), record.getC(), record.getTimestamp());
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /** Number of allocated slots, for footprint estimates. */
+    public int capacity() {
+        return moves.length;
+    }
+
+    public String getPlayerId(int index) {
+        return (packed(index) & 1) == 0 ? "p1" : "p2";
+    }
+
+    public String getType(int index) {
+        return (packed(index) & 2) == 0 ? "PIECE" : "AMBUSH";
+    }
+
+    public int getR(int index) {
+        return (int) (packed(index) >>> 2) & 7;
+    }
+
+    public int getC(int index) {
+        return (int) (packed(index) >>> 5) & 7;
+    }
+
+    public long getTimestamp(int index) {
+        return baseTime + (packed(index) >> 8);
+    }
+
+    public MoveRecord get(int index) {
+        return new MoveRecord(getPlayerId(index), getType(index), getR(index), getC(index), getTimestamp(index));
+    }
+
+    /**
+     * Read-only {@link MoveRecord} view; records are created on access.
+     */
+    public List<MoveRecord> asList() {
+        return new AbstractList<>() {
+            @Override
+            public MoveRecord get(int index) {
+                return MoveHistory.this.get(index);
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    private long packed(int index) {
+        int count = size;
+        long[] snapshot = moves;
+        if (index < 0 || index >= count) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for length " + count);
+        }
+        return snapshot[index];
+    }
+
+    private static long encodePlayer(String playerId) {
+        if ("p1".equals(playerId)) {
+            return 0;
+        }
+        if ("p2".equals(playerId)) {
+            return 1;
+        }
+        throw new IllegalArgumentException("Unknown player: " + playerId);
+    }
+
+    private static long encodeType(String type) {
+        if ("PIECE".equals(type)) {
+            return 0;
+        }
+        if ("AMBUSH".equals(type)) {
+            return 1;
+        }
+        throw new IllegalArgumentException("Unknown move type: " + type);
+    }
+
+    static class Serializer extends JsonSerializer<MoveHistory> {
+        @Override
+        public void serialize(MoveHistory history, JsonGenerator gen, SerializerProvider provider) throws IOException {
+            int count = history.size;
+            long[] snapshot = history.moves;
+            long base = history.baseTime;
+
+            gen.writeStartArray(history, count);
+            for (int i = 0; i < count; i++) {
+                long packed = snapshot[i];
+                gen.writeStartObject();
+                gen.writeStringField("playerId", (packed & 1) == 0 ? "p1" : "p2");
+                gen.writeStringField("type", (packed & 2) == 0 ? "PIECE" : "AMBUSH");
+                gen.writeNumberField("r", (int) (packed >>> 2) & 7);
+                gen.writeNumberField("c", (int) (packed >>> 5) & 7);
+                gen.writeNumberField("timestamp", base + (packed >> 8));
+                gen.writeEndObject();
+            }
+            gen.writeEndArray();
+        }
+    }
+
+    static class Deserializer extends JsonDeserializer<MoveHistory> {
+        @Override
+        public MoveHistory deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+            MoveHistory history = new MoveHistory();
+            if (p.currentToken() != JsonToken.START_ARRAY) {
+                return (MoveHistory) ctxt.handleUnexpectedToken(MoveHistory.class, p);
+            }
+            while (p.nextToken() != JsonToken.END_ARRAY) {
+                if (p.currentToken() != JsonToken.START_OBJECT) {
+                    return (MoveHistory) ctxt.handleUnexpectedToken(MoveHistory.class, p);
+                }
+                String playerId = null;
+                String type = null;
+                int r = 0;
+                int c = 0;
+                long timestamp = 0;
+                while (p.nextToken() == JsonToken.FIELD_NAME) {
+                    String field = p.currentName();
+                    p.nextToken();
+                    switch (field) {
+                        case "playerId" -> playerId = p.getValueAsString();
+                        case "type" -> type = p.getValueAsString();
+                        case "r" -> r = p.getValueAsInt();
+                        case "c" -> c = p.getValueAsInt();
+                        case "timestamp" -> timestamp = p.getValueAsLong();
+                        default -> p.skipChildren();
+                    }
+                }
+                try {
+                    history.add(playerId, type, r, c, timestamp);
+                } catch (IllegalArgumentException e) {
+                    throw JsonMappingException.from(p, e.getMessage(), e);
+                }
+            }
+            return history;
+        }
+
+        @Override
+        public MoveHistory getNullValue(DeserializationContext ctxt) {
+            return new MoveHistory();
+        }
+    }
+}
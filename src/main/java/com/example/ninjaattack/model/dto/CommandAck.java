@@ -0,0 +1,23 @@
+package com.example.ninjaattack.model.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Reply to a move carrying a clientSeq, so the client can stop retrying it.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CommandAck {
+
+    public enum Status {
+        APPLIED, DUPLICATE, REJECTED
+    }
+
+    private String gameId;
+    private long clientSeq;
+    private Status status;
+    private String message;
+}
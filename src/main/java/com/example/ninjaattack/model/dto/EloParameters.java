@@ -0,0 +1,7 @@
+package com.example.ninjaattack.model.dto;
+
+/**
+ * One set of Elo tuning parameters (mirrors the elo.* properties).
+ */
+public record EloParameters(int fmaBonus, int kFactorProvisional, int kFactorDefault, int provisionalThreshold) {
+}
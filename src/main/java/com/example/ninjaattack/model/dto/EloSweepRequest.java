@@ -0,0 +1,17 @@
+package com.example.ninjaattack.model.dto;
+
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * Parameter grid for an Elo sweep. Every combination of the listed values is
+ * evaluated; an empty or missing list means "use the configured value".
+ */
+@Data
+public class EloSweepRequest {
+    private List<Integer> fmaBonuses;
+    private List<Integer> provisionalKFactors;
+    private List<Integer> defaultKFactors;
+    private List<Integer> provisionalThresholds;
+}
@@ -0,0 +1,19 @@
+package com.example.ninjaattack.model.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Data;
+
+import java.util.Map;
+
+/**
+ * Outcome of replaying the game history under one parameter set.
+ */
+@Data
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class EloSweepResult {
+    private EloParameters parameters;
+    private long gamesProcessed;
+    private double logLoss; // mean log-loss of the pre-game prediction, lower is better
+    private double accuracy; // share of decisive games whose favourite won
+    private Map<String, Integer> ratings; // only filled for a full recompute
+}
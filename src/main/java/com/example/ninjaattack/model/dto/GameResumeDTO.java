@@ -0,0 +1,18 @@
+package com.example.ninjaattack.model.dto;
+
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * Answer to a reconnecting client: either the broadcasts it missed since its
+ * last sequence number, or (if they are no longer buffered) one full snapshot.
+ */
+@Data
+public class GameResumeDTO {
+    private String gameId;
+    private long latestSeq;
+    private boolean snapshot;
+    // GameStateDTOs as rendered for the requesting player
+    private List<RawJson> events;
+}
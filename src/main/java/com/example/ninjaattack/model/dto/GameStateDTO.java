@@ -3,10 +3,13 @@ package com.example.ninjaattack.model.dto;
 import com.example.ninjaattack.model.domain.Board;
 import com.example.ninjaattack.model.domain.GamePhase;
 import com.example.ninjaattack.model.domain.GameResult;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.Data;
 
 @Data
 public class GameStateDTO {
+    // Per-game broadcast sequence number (0 = not a broadcast)
+    private long seq;
     private String gameId;
     private String p1Username;
     private String p2Username;
@@ -27,4 +30,12 @@ public class GameStateDTO {
     private long p1TimeLeft = -1;
     private long p2TimeLeft = -1;
     // --- (新增) 结束 ---
+
+    // Highest command seq applied for the player this view is for (0 in shared
+    // views); the client numbers its next command after it
+    private long commandSeq;
+    @JsonIgnore
+    private long p1CommandSeq;
+    @JsonIgnore
+    private long p2CommandSeq;
 }
\ No newline at end of file
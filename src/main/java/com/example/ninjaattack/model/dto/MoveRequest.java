@@ -7,4 +7,6 @@ public class MoveRequest {
     private String playerId;
     private int r; // row
     private int c; // col
+    // Client-generated, increasing per player and game; 0 = legacy client (no dedup)
+    private long clientSeq;
 }
\ No newline at end of file
@@ -0,0 +1,21 @@
+package com.example.ninjaattack.model.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Committed Elo change for one finished game, sent on /topic/game/{gameId}/rating.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RatingUpdateDTO {
+    private String gameId;
+    private String p1Username;
+    private String p2Username;
+    private int p1RatingChange;
+    private int p2RatingChange;
+    private int p1NewRating;
+    private int p2NewRating;
+}
@@ -0,0 +1,11 @@
+package com.example.ninjaattack.model.dto;
+
+import com.fasterxml.jackson.annotation.JsonRawValue;
+import com.fasterxml.jackson.annotation.JsonValue;
+
+/**
+ * An already serialized JSON value, embedded as-is when the enclosing object is
+ * written.
+ */
+public record RawJson(@JsonValue @JsonRawValue String json) {
+}
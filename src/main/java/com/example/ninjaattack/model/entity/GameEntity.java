@@ -31,6 +31,13 @@ public class GameEntity {
     @UpdateTimestamp
     private LocalDateTime updatedAt;
 
+    // Set once, by the first write of the finished game; ratings are applied in this order
+    private LocalDateTime finishedAt;
+
+    // Set with the first write of the finished game, cleared by the write that stores
+    // its rating changes; null for games finished before the column existed
+    private Boolean ratingPending;
+
     // Statistical Columns
     private String winnerUsername;
     private String endReason; // "NORMAL", "TIMEOUT", "RESIGN"
@@ -0,0 +1,38 @@
+package com.example.ninjaattack.model.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.time.LocalDateTime;
+
+/**
+ * Rating applied for a finished game, inserted in the same transaction as the
+ * user rows it changed. A game with a row here is never rated again.
+ */
+@Entity
+@Table(name = "rated_games")
+@Data
+@NoArgsConstructor
+public class RatedGame {
+
+    @Id
+    private String gameId;
+
+    private int p1RatingChange;
+    private int p2RatingChange;
+    private int p1NewRating;
+    private int p2NewRating;
+
+    @CreationTimestamp
+    private LocalDateTime ratedAt;
+
+    public RatedGame(String gameId, int p1RatingChange, int p2RatingChange, int p1NewRating, int p2NewRating) {
+        this.gameId = gameId;
+        this.p1RatingChange = p1RatingChange;
+        this.p2RatingChange = p2RatingChange;
+        this.p1NewRating = p1NewRating;
+        this.p2NewRating = p2NewRating;
+    }
+}
@@ -0,0 +1,385 @@
+package com.example.ninjaattack.repository;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Repository;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.Stream;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Cold storage for finished games: append-only, compressed segment files on
+ * local disk, read through memory-mapped buffers.
+ * <p>
+ * Layout of {@code game.archive.dir}:
+ * <ul>
+ * <li>{@code seg-NNNNNN.dat}: records of {@code [msb][lsb][rawLength][compressedLength][deflated JSON]}</li>
+ * <li>{@code seg-NNNNNN.idx}: fixed 24-byte entries {@code [msb][lsb][offset][recordLength]} sorted by
+ * game id, so a lookup is a binary search over the mapped file and the index costs no heap.</li>
+ * </ul>
+ * Only the newest segment is written to; its index lives on the heap and is
+ * written to disk when the segment is sealed. On startup the newest segment is
+ * re-indexed from its data file, so a crash mid-batch only leaves a torn tail that
+ * is truncated. Game ids are UUIDs and are stored as two longs.
+ */
+@Repository
+public class GameArchiveRepository {
+
+    private static final int RECORD_HEADER_BYTES = 24;
+    private static final int INDEX_ENTRY_BYTES = 24;
+
+    private final Path directory;
+    private final long maxSegmentBytes;
+
+    // Immutable snapshot, oldest segment first; replaced on every write
+    private volatile List<Segment> segments = List.of();
+
+    // --- Writer state (guarded by this) ---
+    private FileChannel activeChannel;
+    private int activeSegmentId;
+    private List<IndexEntry> activeEntries = new ArrayList<>();
+
+    public GameArchiveRepository(@Value("${game.archive.dir:./data/archive}") String directory,
+            @Value("${game.archive.segment-max-bytes:268435456}") long maxSegmentBytes) {
+        this.directory = Paths.get(directory);
+        // A single MappedByteBuffer cannot exceed 2 GB
+        this.maxSegmentBytes = Math.min(maxSegmentBytes, Integer.MAX_VALUE);
+    }
+
+    private record IndexEntry(long msb, long lsb, int offset, int length) {
+    }
+
+    /**
+     * A read-only view of one segment at a point in time. The index is mapped for
+     * sealed segments and a heap buffer for the active one.
+     */
+    private record Segment(int id, MappedByteBuffer data, ByteBuffer index, int entryCount) {
+
+        /** @return position of the record in {@link #data}, or -1 */
+        int find(long msb, long lsb) {
+            int lo = 0;
+            int hi = entryCount - 1;
+            while (lo <= hi) {
+                int mid = (lo + hi) >>> 1;
+                int base = mid * INDEX_ENTRY_BYTES;
+                int cmp = compare(index.getLong(base), index.getLong(base + 8), msb, lsb);
+                if (cmp < 0) {
+                    lo = mid + 1;
+                } else if (cmp > 0) {
+                    hi = mid - 1;
+                } else {
+                    return index.getInt(base + 16);
+                }
+            }
+            return -1;
+        }
+    }
+
+    @PostConstruct
+    public synchronized void open() throws IOException {
+        Files.createDirectories(directory);
+
+        List<Integer> ids;
+        try (Stream<Path> files = Files.list(directory)) {
+            ids = files.map(p -> p.getFileName().toString())
+                    .filter(name -> name.startsWith("seg-") && name.endsWith(".dat"))
+                    .map(name -> Integer.parseInt(name.substring(4, name.length() - 4)))
+                    .sorted()
+                    .toList();
+        }
+
+        List<Segment> loaded = new ArrayList<>();
+        for (int i = 0; i < ids.size() - 1; i++) {
+            int id = ids.get(i);
+            if (!Files.exists(indexPath(id))) {
+                writeIndex(id, scan(id));
+            }
+            loaded.add(mapSealed(id));
+        }
+        segments = List.copyOf(loaded);
+
+        // The newest segment is the active one and may have been cut off mid-batch:
+        // trust only its data file
+        activeSegmentId = ids.isEmpty() ? 1 : ids.get(ids.size() - 1);
+        activeEntries = ids.isEmpty() ? new ArrayList<>() : scan(activeSegmentId);
+        activeChannel = FileChannel.open(dataPath(activeSegmentId), StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        activeChannel.position(activeChannel.size());
+        if (!activeEntries.isEmpty()) {
+            publishActive();
+        }
+    }
+
+    @PreDestroy
+    public synchronized void close() throws IOException {
+        if (activeChannel != null) {
+            activeChannel.close();
+        }
+    }
+
+    /**
+     * Append games to the archive and make them readable.
+     *
+     * @param games game id to stored JSON, in the order to write them
+     * @return ids that were durably archived (ids that are not UUIDs are skipped)
+     */
+    public synchronized List<String> append(Map<String, String> games) throws IOException {
+        List<String> archived = new ArrayList<>(games.size());
+        for (Map.Entry<String, String> game : games.entrySet()) {
+            UUID uuid;
+            try {
+                uuid = UUID.fromString(game.getKey());
+            } catch (IllegalArgumentException e) {
+                continue;
+            }
+
+            byte[] raw = game.getValue().getBytes(StandardCharsets.UTF_8);
+            byte[] compressed = deflate(raw);
+            int length = RECORD_HEADER_BYTES + compressed.length;
+
+            if (activeChannel.size() + length > maxSegmentBytes && !activeEntries.isEmpty()) {
+                rollSegment();
+            }
+
+            ByteBuffer record = ByteBuffer.allocate(length);
+            record.putLong(uuid.getMostSignificantBits())
+                    .putLong(uuid.getLeastSignificantBits())
+                    .putInt(raw.length)
+                    .putInt(compressed.length)
+                    .put(compressed)
+                    .flip();
+
+            int offset = (int) activeChannel.size();
+            while (record.hasRemaining()) {
+                activeChannel.write(record);
+            }
+            activeEntries.add(new IndexEntry(uuid.getMostSignificantBits(), uuid.getLeastSignificantBits(),
+                    offset, length));
+            archived.add(game.getKey());
+        }
+
+        if (!archived.isEmpty()) {
+            activeChannel.force(false);
+            publishActive();
+        }
+        return archived;
+    }
+
+    /**
+     * @return the archived JSON of a game, or null if it is not in the archive
+     */
+    public String read(String gameId) {
+        UUID uuid;
+        try {
+            uuid = UUID.fromString(gameId);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+
+        List<Segment> snapshot = segments;
+        // Newest first, so a game archived twice resolves to its latest copy
+        for (int i = snapshot.size() - 1; i >= 0; i--) {
+            Segment segment = snapshot.get(i);
+            int offset = segment.find(uuid.getMostSignificantBits(), uuid.getLeastSignificantBits());
+            if (offset >= 0) {
+                return decode(segment.data(), offset);
+            }
+        }
+        return null;
+    }
+
+    public boolean contains(String gameId) {
+        return read(gameId) != null;
+    }
+
+    /**
+     * Number of archived games. A game archived twice in different segments (after
+     * a crash between archiving and clearing its row) counts twice.
+     */
+    public long getGameCount() {
+        return segments.stream().mapToLong(Segment::entryCount).sum();
+    }
+
+    public int getSegmentCount() {
+        return segments.size();
+    }
+
+    // --- Internals ---
+
+    private void rollSegment() throws IOException {
+        activeChannel.force(false);
+        activeChannel.close();
+        writeIndex(activeSegmentId, activeEntries);
+
+        List<Segment> updated = new ArrayList<>(segments);
+        updated.removeIf(segment -> segment.id() == activeSegmentId);
+        updated.add(mapSealed(activeSegmentId));
+        segments = List.copyOf(updated);
+
+        activeSegmentId++;
+        activeEntries = new ArrayList<>();
+        activeChannel = FileChannel.open(dataPath(activeSegmentId), StandardOpenOption.CREATE_NEW,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+    }
+
+    private void publishActive() throws IOException {
+        ByteBuffer index = buildIndex(activeEntries);
+        MappedByteBuffer data = activeChannel.map(FileChannel.MapMode.READ_ONLY, 0, activeChannel.size());
+        Segment active = new Segment(activeSegmentId, data, index, index.limit() / INDEX_ENTRY_BYTES);
+
+        List<Segment> updated = new ArrayList<>(segments);
+        updated.removeIf(segment -> segment.id() == activeSegmentId);
+        updated.add(active);
+        segments = List.copyOf(updated);
+    }
+
+    private Segment mapSealed(int id) throws IOException {
+        try (FileChannel data = FileChannel.open(dataPath(id), StandardOpenOption.READ);
+                FileChannel index = FileChannel.open(indexPath(id), StandardOpenOption.READ)) {
+            MappedByteBuffer dataBuffer = data.map(FileChannel.MapMode.READ_ONLY, 0, data.size());
+            MappedByteBuffer indexBuffer = index.map(FileChannel.MapMode.READ_ONLY, 0, index.size());
+            return new Segment(id, dataBuffer, indexBuffer, (int) (index.size() / INDEX_ENTRY_BYTES));
+        }
+    }
+
+    /**
+     * Serialize entries sorted by id; for duplicates only the latest (highest
+     * offset) record is kept.
+     */
+    private static ByteBuffer buildIndex(List<IndexEntry> entries) {
+        IndexEntry[] sorted = entries.toArray(new IndexEntry[0]);
+        Arrays.sort(sorted, Comparator.comparingLong(IndexEntry::msb)
+                .thenComparingLong(IndexEntry::lsb)
+                .thenComparingInt(IndexEntry::offset));
+
+        ByteBuffer buffer = ByteBuffer.allocate(sorted.length * INDEX_ENTRY_BYTES);
+        for (int i = 0; i < sorted.length; i++) {
+            IndexEntry e = sorted[i];
+            boolean superseded = i + 1 < sorted.length
+                    && sorted[i + 1].msb() == e.msb() && sorted[i + 1].lsb() == e.lsb();
+            if (!superseded) {
+                buffer.putLong(e.msb()).putLong(e.lsb()).putInt(e.offset()).putInt(e.length());
+            }
+        }
+        return buffer.flip();
+    }
+
+    private void writeIndex(int id, List<IndexEntry> entries) throws IOException {
+        ByteBuffer buffer = buildIndex(entries);
+        Path tmp = directory.resolve(indexPath(id).getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(false);
+        }
+        Files.move(tmp, indexPath(id), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Rebuild the entries of a segment from its data file, truncating a torn
+     * last record. Reads through the channel rather than a mapping so the file
+     * can still be truncated on platforms that forbid it while mapped.
+     */
+    private List<IndexEntry> scan(int id) throws IOException {
+        List<IndexEntry> entries = new ArrayList<>();
+        try (FileChannel channel = FileChannel.open(dataPath(id), StandardOpenOption.READ,
+                StandardOpenOption.WRITE)) {
+            long size = channel.size();
+            ByteBuffer header = ByteBuffer.allocate(RECORD_HEADER_BYTES);
+            long position = 0;
+            while (position + RECORD_HEADER_BYTES <= size) {
+                header.clear();
+                while (header.hasRemaining() && channel.read(header, position + header.position()) > 0) {
+                    // keep reading until the header is complete
+                }
+                int compressedLength = header.getInt(20);
+                int length = RECORD_HEADER_BYTES + compressedLength;
+                if (compressedLength < 0 || position + length > size) {
+                    break;
+                }
+                entries.add(new IndexEntry(header.getLong(0), header.getLong(8), (int) position, length));
+                position += length;
+            }
+            if (position < size) {
+                System.err.println("Archive segment " + id + ": truncating " + (size - position) + " torn bytes");
+                channel.truncate(position);
+            }
+        }
+        return entries;
+    }
+
+    private static String decode(MappedByteBuffer data, int offset) {
+        int rawLength = data.getInt(offset + 16);
+        int compressedLength = data.getInt(offset + 20);
+        byte[] compressed = new byte[compressedLength];
+        data.get(offset + RECORD_HEADER_BYTES, compressed);
+
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(compressed);
+            byte[] raw = new byte[rawLength];
+            int read = 0;
+            while (read < rawLength && !inflater.finished()) {
+                read += inflater.inflate(raw, read, rawLength - read);
+            }
+            return new String(raw, 0, read, StandardCharsets.UTF_8);
+        } catch (DataFormatException e) {
+            throw new IllegalStateException("Corrupt archive record at offset " + offset, e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    private static byte[] deflate(byte[] raw) {
+        Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+        try {
+            deflater.setInput(raw);
+            deflater.finish();
+            byte[] buffer = new byte[Math.max(64, raw.length / 2)];
+            int length = 0;
+            while (!deflater.finished()) {
+                if (length == buffer.length) {
+                    buffer = Arrays.copyOf(buffer, buffer.length * 2);
+                }
+                length += deflater.deflate(buffer, length, buffer.length - length);
+            }
+            return Arrays.copyOf(buffer, length);
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static int compare(long msbA, long lsbA, long msbB, long lsbB) {
+        int cmp = Long.compare(msbA, msbB);
+        return cmp != 0 ? cmp : Long.compare(lsbA, lsbB);
+    }
+
+    private Path dataPath(int id) {
+        return directory.resolve(String.format("seg-%06d.dat", id));
+    }
+
+    private Path indexPath(int id) {
+        return directory.resolve(String.format("seg-%06d.idx", id));
+    }
+}
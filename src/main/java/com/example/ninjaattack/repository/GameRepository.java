@@ -1,15 +1,74 @@
 package com.example.ninjaattack.repository;
 
 import com.example.ninjaattack.model.entity.GameEntity;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface GameRepository extends JpaRepository<GameEntity, String> {
     List<GameEntity> findByStatus(String status);
 
+    // Finished games whose rating changes have not been stored with their result yet
+    List<GameEntity> findByStatusAndRatingPendingTrue(String status);
+
+    // Keyset pagination: next page of games with the given status after lastId
+    List<GameEntity> findByStatusAndIdGreaterThanOrderByIdAsc(String status, String lastId, Pageable pageable);
+
     // Find completed games for a player (either p1 or p2)
     List<GameEntity> findByP1UsernameOrP2UsernameOrderByCreatedAtDesc(String p1Username, String p2Username);
+
+    // Archive candidates: closed games last touched before the cutoff
+    List<GameEntity> findByStatusInAndUpdatedAtBeforeAndGameStateJsonIsNotNull(Collection<String> statuses,
+            LocalDateTime cutoff, Pageable pageable);
+
+    // Archived rows stay as index rows (players, result, times) with the JSON moved to the archive
+    @Modifying
+    @Transactional
+    @Query("update GameEntity g set g.gameStateJson = null where g.id in :ids")
+    int clearGameStateJson(@Param("ids") Collection<String> ids);
+
+    long countByGameStateJsonIsNull();
+
+    // Just the JSON of one game, without loading (and managing) the whole entity
+    @Query("select g.gameStateJson from GameEntity g where g.id = :id")
+    Optional<String> findGameStateJsonById(@Param("id") String id);
+
+    /**
+     * Read-only view of a stored game, used by batch jobs that only need the JSON.
+     */
+    interface GameStateRow {
+        String getId();
+
+        String getGameStateJson();
+    }
+
+    /**
+     * Stream games with the given status in the order they finished, which is the
+     * order their ratings were applied in. Rows written before finishedAt existed
+     * fall back to their last update. Archived games come with a null JSON. Rows are projections (not
+     * managed entities) and the MySQL driver streams them row by row
+     * (fetch size Integer.MIN_VALUE), so memory stays flat however many games
+     * there are. Must be consumed inside a transaction and closed.
+     */
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "-2147483648"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("select g.id as id, g.gameStateJson as gameStateJson from GameEntity g "
+            + "where g.status = :status order by coalesce(g.finishedAt, g.updatedAt) asc, g.id asc")
+    Stream<GameStateRow> streamByStatusInFinishOrder(@Param("status") String status);
 }
@@ -0,0 +1,7 @@
+package com.example.ninjaattack.repository;
+
+import com.example.ninjaattack.model.entity.RatedGame;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface RatedGameRepository extends JpaRepository<RatedGame, String> {
+}
@@ -1,7 +1,11 @@
 package com.example.ninjaattack.repository;
 
 import com.example.ninjaattack.model.domain.User;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository; // (修改)
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -18,6 +22,15 @@ public interface UserRepository extends JpaRepository<User, Long> {
      */
     Optional<User> findByUsername(String username);
 
+    /**
+     * Read a user for a read-modify-write of its row: "SELECT ... FOR UPDATE",
+     * held until the transaction ends, so no other writer can change the row in
+     * between.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT u FROM User u WHERE u.username = :username")
+    Optional<User> findForUpdateByUsername(@Param("username") String username);
+
     /**
      * 自动实现排行榜查询
      * "SELECT * FROM users ORDER BY score DESC"
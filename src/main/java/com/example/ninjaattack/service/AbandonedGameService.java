@@ -0,0 +1,57 @@
+package com.example.ninjaattack.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Finishes games once neither participant has been subscribed to the game's
+ * state queue for {@code game.abandon.grace-ms}, instead of letting the
+ * 15-second turn timers play them out one move at a time.
+ */
+@Service
+public class AbandonedGameService {
+
+    private final GameService gameService;
+    private final PlayerPresenceTracker playerPresenceTracker;
+
+    @Value("${game.abandon.enabled:true}")
+    private boolean enabled;
+
+    @Value("${game.abandon.grace-ms:60000}")
+    private long graceMillis;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    public AbandonedGameService(GameService gameService, PlayerPresenceTracker playerPresenceTracker) {
+        this.gameService = gameService;
+        this.playerPresenceTracker = playerPresenceTracker;
+    }
+
+    // @Async keeps the played-out games, saves and broadcasts off the scheduler
+    // thread the game timers use
+    @Async
+    @Scheduled(fixedDelayString = "${game.abandon.check-interval-ms:10000}",
+            initialDelayString = "${game.abandon.check-interval-ms:10000}")
+    public void resolveAbandonedGames() {
+        if (!enabled || !gameService.isRecoveryComplete() || !running.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            int resolved = gameService.resolveAbandonedGames((game, username) -> playerPresenceTracker
+                    .isAbsentFor(game.getGameId(), username, game.getLiveSince(), graceMillis));
+            if (resolved > 0) {
+                System.out.println("Resolved " + resolved + " abandoned games");
+            }
+            playerPresenceTracker.prune(graceMillis);
+        } catch (Exception e) {
+            System.err.println("Abandoned game resolution failed: " + e.getMessage());
+            e.printStackTrace();
+        } finally {
+            running.set(false);
+        }
+    }
+}
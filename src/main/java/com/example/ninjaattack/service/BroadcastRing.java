@@ -0,0 +1,45 @@
+package com.example.ninjaattack.service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The last few broadcasts of one game, indexed by sequence number, so a client
+ * that briefly lost its connection can be sent just what it missed. Guarded by
+ * the game lock.
+ */
+class BroadcastRing {
+
+    private final GameViews[] slots;
+    private long lastSeq;
+    private int count;
+
+    BroadcastRing(int capacity) {
+        this.slots = new GameViews[capacity];
+    }
+
+    void add(GameViews views) {
+        if (views.seq() != lastSeq + 1) {
+            // Not contiguous with what we hold: start over
+            count = 0;
+        }
+        lastSeq = views.seq();
+        slots[(int) (lastSeq % slots.length)] = views;
+        count = Math.min(count + 1, slots.length);
+    }
+
+    /**
+     * Broadcasts after {@code seq}, oldest first, or null if some of them have
+     * already been overwritten (or were sent before this ring existed).
+     */
+    List<GameViews> since(long seq) {
+        if (seq > lastSeq || seq < lastSeq - count) {
+            return null;
+        }
+        List<GameViews> missed = new ArrayList<>((int) (lastSeq - seq));
+        for (long s = seq + 1; s <= lastSeq; s++) {
+            missed.add(slots[(int) (s % slots.length)]);
+        }
+        return missed;
+    }
+}
@@ -1,6 +1,7 @@
 package com.example.ninjaattack.service;
 
 import com.example.ninjaattack.model.domain.GameResult;
+import com.example.ninjaattack.model.dto.EloParameters;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
@@ -19,6 +20,13 @@ public class EloRatingService {
     @Value("${elo.provisional-threshold:30}")
     private int provisionalThreshold;
 
+    /**
+     * Current configuration as an immutable parameter set.
+     */
+    public EloParameters getParameters() {
+        return new EloParameters(fmaBonus, kFactorProvisional, kFactorDefault, provisionalThreshold);
+    }
+
     /**
      * Calculate new rating for a player.
      *
@@ -31,20 +39,40 @@ public class EloRatingService {
      */
     public int calculateNewRating(int currentRating, int opponentRating, double actualScore, boolean isFirstMover,
             int gamesPlayed) {
-        // 1. Calculate Expected Score with First Mover Advantage (FMA)
-        double effectivePlayerRating = currentRating + (isFirstMover ? fmaBonus : 0);
-        double effectiveOpponentRating = opponentRating + (isFirstMover ? 0 : fmaBonus);
+        return calculateNewRating(getParameters(), currentRating, opponentRating, actualScore, isFirstMover,
+                gamesPlayed);
+    }
 
-        double expectedScore = 1.0 / (1.0 + Math.pow(10.0, (effectiveOpponentRating - effectivePlayerRating) / 400.0));
+    /**
+     * Calculate new rating for a player under an explicit parameter set.
+     * Used by the recomputation job to evaluate configurations other than the
+     * live one.
+     */
+    public static int calculateNewRating(EloParameters params, int currentRating, int opponentRating,
+            double actualScore, boolean isFirstMover, int gamesPlayed) {
+        // 1. Calculate Expected Score with First Mover Advantage (FMA)
+        double expectedScore = expectedScore(params, currentRating, opponentRating, isFirstMover);
 
         // 2. Determine K-Factor based on experience
-        int k = (gamesPlayed < provisionalThreshold) ? kFactorProvisional : kFactorDefault;
+        int k = (gamesPlayed < params.provisionalThreshold()) ? params.kFactorProvisional() : params.kFactorDefault();
 
         // 3. Calculate New Rating
         int change = (int) Math.round(k * (actualScore - expectedScore));
         return currentRating + change;
     }
 
+    /**
+     * Expected score (win probability, draws counting half) of a player,
+     * including the first mover bonus.
+     */
+    public static double expectedScore(EloParameters params, int currentRating, int opponentRating,
+            boolean isFirstMover) {
+        double effectivePlayerRating = currentRating + (isFirstMover ? params.fmaBonus() : 0);
+        double effectiveOpponentRating = opponentRating + (isFirstMover ? 0 : params.fmaBonus());
+
+        return 1.0 / (1.0 + Math.pow(10.0, (effectiveOpponentRating - effectivePlayerRating) / 400.0));
+    }
+
     // Legacy method for backward compatibility or simple tests (assumes no FMA,
     // established player)
     public int calculateNewRating(int currentRating, int opponentRating, double actualScore) {
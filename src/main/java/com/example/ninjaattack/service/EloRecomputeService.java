@@ -0,0 +1,277 @@
+package com.example.ninjaattack.service;
+
+import com.example.ninjaattack.model.domain.GameResult;
+import com.example.ninjaattack.model.dto.EloParameters;
+import com.example.ninjaattack.model.dto.EloSweepRequest;
+import com.example.ninjaattack.model.dto.EloSweepResult;
+import com.example.ninjaattack.repository.GameArchiveRepository;
+import com.example.ninjaattack.repository.GameRepository;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.Data;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Replays the finished game history to recompute ratings and to compare Elo
+ * parameter sets.
+ * <p>
+ * Games are streamed from the database in the order they finished (the order
+ * their ratings were applied in) and processed in fixed-size chunks: each chunk
+ * is parsed in parallel, then every parameter set replays the chunk in parallel
+ * with the others. Memory is bounded by the chunk size plus one rating per
+ * player per parameter set, independent of the number of games.
+ * <p>
+ * Archived games are read from {@link GameArchiveRepository} through their index
+ * rows. Games archived while archiving still deleted the rows cannot be placed in
+ * the history any more, so the replay refuses to run rather than report ratings
+ * that silently leave them out.
+ */
+@Service
+public class EloRecomputeService {
+
+    private static final int INITIAL_RATING = 1200;
+    private static final double MIN_PROBABILITY = 1e-9;
+
+    private final GameRepository gameRepository;
+    private final GameArchiveRepository gameArchiveRepository;
+    private final EloRatingService eloRatingService;
+    private final ObjectMapper objectMapper;
+
+    @Value("${elo.sweep.chunk-size:2000}")
+    private int chunkSize;
+
+    @Value("${elo.sweep.max-combinations:512}")
+    private int maxCombinations;
+
+    public EloRecomputeService(GameRepository gameRepository, GameArchiveRepository gameArchiveRepository,
+            EloRatingService eloRatingService) {
+        this.gameRepository = gameRepository;
+        this.gameArchiveRepository = gameArchiveRepository;
+        this.eloRatingService = eloRatingService;
+        this.objectMapper = new ObjectMapper()
+                .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+    }
+
+    /**
+     * Only the fields needed to replay a game; the rest of the JSON is skipped.
+     */
+    @Data
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    static class StoredOutcome {
+        private String firstMovePlayerId;
+        private StoredPlayer p1;
+        private StoredPlayer p2;
+        private GameResult result;
+    }
+
+    @Data
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    static class StoredPlayer {
+        private String username;
+    }
+
+    private record GameEvent(int p1, int p2, boolean p1First, double p1Score) {
+    }
+
+    /**
+     * Recompute every player's rating from scratch with the configured parameters.
+     */
+    @Transactional(readOnly = true)
+    public EloSweepResult recompute() {
+        Map<String, Integer> playerIndex = new LinkedHashMap<>();
+        Simulation simulation = replay(List.of(eloRatingService.getParameters()), playerIndex).get(0);
+
+        EloSweepResult result = simulation.toResult();
+        Map<String, Integer> ratings = new LinkedHashMap<>();
+        playerIndex.forEach((username, index) -> ratings.put(username, simulation.ratings[index]));
+        result.setRatings(ratings);
+        return result;
+    }
+
+    /**
+     * Evaluate every combination in the grid and return them best (lowest
+     * log-loss) first.
+     */
+    @Transactional(readOnly = true)
+    public List<EloSweepResult> sweep(EloSweepRequest request) {
+        List<EloParameters> candidates = expandGrid(request);
+        return replay(candidates, new HashMap<>()).stream()
+                .map(Simulation::toResult)
+                .sorted(Comparator.comparingDouble(EloSweepResult::getLogLoss))
+                .toList();
+    }
+
+    List<EloParameters> expandGrid(EloSweepRequest request) {
+        EloParameters current = eloRatingService.getParameters();
+        List<Integer> fma = orDefault(request.getFmaBonuses(), current.fmaBonus());
+        List<Integer> kProvisional = orDefault(request.getProvisionalKFactors(), current.kFactorProvisional());
+        List<Integer> kDefault = orDefault(request.getDefaultKFactors(), current.kFactorDefault());
+        List<Integer> threshold = orDefault(request.getProvisionalThresholds(), current.provisionalThreshold());
+
+        long combinations = (long) fma.size() * kProvisional.size() * kDefault.size() * threshold.size();
+        if (combinations > maxCombinations) {
+            throw new IllegalArgumentException(
+                    "Too many parameter combinations: " + combinations + " (max " + maxCombinations + ")");
+        }
+
+        List<EloParameters> candidates = new ArrayList<>((int) combinations);
+        for (int f : fma) {
+            for (int kp : kProvisional) {
+                for (int kd : kDefault) {
+                    for (int t : threshold) {
+                        candidates.add(new EloParameters(f, kp, kd, t));
+                    }
+                }
+            }
+        }
+        return candidates;
+    }
+
+    private static List<Integer> orDefault(List<Integer> values, int fallback) {
+        return (values == null || values.isEmpty()) ? List.of(fallback) : values;
+    }
+
+    private List<Simulation> replay(List<EloParameters> candidates, Map<String, Integer> playerIndex) {
+        long archived = gameArchiveRepository.getGameCount();
+        long indexed = gameRepository.countByGameStateJsonIsNull();
+        if (archived > indexed) {
+            throw new IllegalStateException((archived - indexed)
+                    + " archived games have no row in the games table; replaying without them gives wrong ratings");
+        }
+
+        List<Simulation> simulations = candidates.stream().map(Simulation::new).toList();
+        List<GameRepository.GameStateRow> chunk = new ArrayList<>(chunkSize);
+
+        try (Stream<GameRepository.GameStateRow> rows = gameRepository.streamByStatusInFinishOrder("FINISHED")) {
+            Iterator<GameRepository.GameStateRow> it = rows.iterator();
+            while (it.hasNext()) {
+                chunk.add(it.next());
+                if (chunk.size() == chunkSize) {
+                    replayChunk(chunk, simulations, playerIndex);
+                    chunk.clear();
+                }
+            }
+        }
+        if (!chunk.isEmpty()) {
+            replayChunk(chunk, simulations, playerIndex);
+        }
+        return simulations;
+    }
+
+    private void replayChunk(List<GameRepository.GameStateRow> chunk, List<Simulation> simulations,
+            Map<String, Integer> playerIndex) {
+        // Parsing dominates the cost, so do it in parallel; toList keeps finish order
+        List<StoredOutcome> outcomes = chunk.parallelStream().map(this::parse).toList();
+
+        List<GameEvent> events = new ArrayList<>(outcomes.size());
+        for (StoredOutcome outcome : outcomes) {
+            if (outcome == null) {
+                continue;
+            }
+            int p1 = playerIndex.computeIfAbsent(outcome.getP1().getUsername(), k -> playerIndex.size());
+            int p2 = playerIndex.computeIfAbsent(outcome.getP2().getUsername(), k -> playerIndex.size());
+            double p1Score = eloRatingService.getActualScore("p1", outcome.getResult());
+            events.add(new GameEvent(p1, p2, "p1".equals(outcome.getFirstMovePlayerId()), p1Score));
+        }
+
+        int playerCount = playerIndex.size();
+        simulations.parallelStream().forEach(sim -> sim.apply(events, playerCount));
+    }
+
+    private StoredOutcome parse(GameRepository.GameStateRow row) {
+        String json = row.getGameStateJson() != null ? row.getGameStateJson()
+                : gameArchiveRepository.read(row.getId());
+        if (json == null || json.isEmpty()) {
+            return null;
+        }
+        try {
+            StoredOutcome outcome = objectMapper.readValue(json, StoredOutcome.class);
+            if (outcome.getResult() == null || outcome.getP1() == null || outcome.getP2() == null) {
+                return null;
+            }
+            return outcome;
+        } catch (Exception e) {
+            System.err.println("Skipping unreadable game " + row.getId() + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Rating state of all players under one parameter set. Only ever touched by
+     * one thread at a time.
+     */
+    private static final class Simulation {
+        private final EloParameters params;
+        private int[] ratings = new int[0];
+        private int[] gamesPlayed = new int[0];
+
+        private long games;
+        private double logLossSum;
+        private long decisiveGames;
+        private long correctPredictions;
+
+        Simulation(EloParameters params) {
+            this.params = params;
+        }
+
+        void apply(List<GameEvent> events, int playerCount) {
+            ensureCapacity(playerCount);
+            for (GameEvent e : events) {
+                int r1 = ratings[e.p1()];
+                int r2 = ratings[e.p2()];
+
+                // Score the prediction made before the game is applied
+                double expected = EloRatingService.expectedScore(params, r1, r2, e.p1First());
+                double p = Math.min(1 - MIN_PROBABILITY, Math.max(MIN_PROBABILITY, expected));
+                logLossSum -= e.p1Score() * Math.log(p) + (1 - e.p1Score()) * Math.log(1 - p);
+                if (e.p1Score() != 0.5) {
+                    decisiveGames++;
+                    if ((expected > 0.5) == (e.p1Score() == 1.0)) {
+                        correctPredictions++;
+                    }
+                }
+                games++;
+
+                ratings[e.p1()] = EloRatingService.calculateNewRating(params, r1, r2, e.p1Score(), e.p1First(),
+                        gamesPlayed[e.p1()]);
+                ratings[e.p2()] = EloRatingService.calculateNewRating(params, r2, r1, 1 - e.p1Score(),
+                        !e.p1First(), gamesPlayed[e.p2()]);
+                gamesPlayed[e.p1()]++;
+                gamesPlayed[e.p2()]++;
+            }
+        }
+
+        private void ensureCapacity(int playerCount) {
+            if (playerCount <= ratings.length) {
+                return;
+            }
+            int newLength = Math.max(playerCount, ratings.length * 2);
+            int oldLength = ratings.length;
+            ratings = Arrays.copyOf(ratings, newLength);
+            gamesPlayed = Arrays.copyOf(gamesPlayed, newLength);
+            Arrays.fill(ratings, oldLength, newLength, INITIAL_RATING);
+        }
+
+        EloSweepResult toResult() {
+            EloSweepResult result = new EloSweepResult();
+            result.setParameters(params);
+            result.setGamesProcessed(games);
+            result.setLogLoss(games == 0 ? 0.0 : logLossSum / games);
+            result.setAccuracy(decisiveGames == 0 ? 0.0 : (double) correctPredictions / decisiveGames);
+            return result;
+        }
+    }
+}
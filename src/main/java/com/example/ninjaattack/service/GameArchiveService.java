@@ -0,0 +1,98 @@
+package com.example.ninjaattack.service;
+
+import com.example.ninjaattack.model.entity.GameEntity;
+import com.example.ninjaattack.repository.GameArchiveRepository;
+import com.example.ninjaattack.repository.GameRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Periodically moves the JSON of old FINISHED/CANCELLED games out of the games
+ * table into {@link GameArchiveRepository}. The rows themselves stay, with a null
+ * JSON, as the index that match history, the replay list and the rating recompute
+ * walk; readers then fetch the JSON from the archive. The JSON is cleared only
+ * after it has been durably written, so a crash can at worst archive a game twice.
+ */
+@Service
+public class GameArchiveService {
+
+    private static final List<String> ARCHIVABLE_STATUSES = List.of("FINISHED", "CANCELLED");
+
+    private final GameRepository gameRepository;
+    private final GameArchiveRepository gameArchiveRepository;
+
+    @Value("${game.archive.enabled:false}")
+    private boolean enabled;
+
+    @Value("${game.archive.min-age-days:90}")
+    private long minAgeDays;
+
+    @Value("${game.archive.batch-size:500}")
+    private int batchSize;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    public GameArchiveService(GameRepository gameRepository, GameArchiveRepository gameArchiveRepository) {
+        this.gameRepository = gameRepository;
+        this.gameArchiveRepository = gameArchiveRepository;
+    }
+
+    // @Async keeps this long-running job off the scheduler thread the game timers use
+    @Async
+    @Scheduled(fixedDelayString = "${game.archive.interval-ms:3600000}",
+            initialDelayString = "${game.archive.initial-delay-ms:300000}")
+    public void archiveOldGames() {
+        if (!enabled || !running.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            LocalDateTime cutoff = LocalDateTime.now().minusDays(minAgeDays);
+            PageRequest firstPage = PageRequest.of(0, batchSize, Sort.by("updatedAt"));
+            int total = 0;
+
+            while (true) {
+                List<GameEntity> batch = gameRepository
+                        .findByStatusInAndUpdatedAtBeforeAndGameStateJsonIsNotNull(ARCHIVABLE_STATUSES, cutoff,
+                                firstPage);
+                if (batch.isEmpty()) {
+                    break;
+                }
+
+                Map<String, String> payload = new LinkedHashMap<>();
+                for (GameEntity entity : batch) {
+                    payload.put(entity.getId(), entity.getGameStateJson());
+                }
+
+                List<String> archived = gameArchiveRepository.append(payload);
+                if (!archived.isEmpty()) {
+                    gameRepository.clearGameStateJson(archived);
+                }
+                total += archived.size();
+
+                // Rows that could not be archived would come back on the next page forever
+                if (archived.size() < batch.size()) {
+                    break;
+                }
+            }
+
+            if (total > 0) {
+                System.out.println("Archived " + total + " games older than " + cutoff);
+            }
+        } catch (Exception e) {
+            System.err.println("Game archiving failed: " + e.getMessage());
+            e.printStackTrace();
+        } finally {
+            running.set(false);
+        }
+    }
+}
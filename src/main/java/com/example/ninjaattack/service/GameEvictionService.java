@@ -0,0 +1,52 @@
+package com.example.ninjaattack.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Periodically spills games that nobody has touched for {@code game.eviction.idle-ms}
+ * out of the live map. They come back through {@code GameService.findGame} on the
+ * next command, with any deadline that expired meanwhile applied on the spot.
+ */
+@Service
+public class GameEvictionService {
+
+    private final GameService gameService;
+
+    @Value("${game.eviction.enabled:true}")
+    private boolean enabled;
+
+    @Value("${game.eviction.idle-ms:300000}")
+    private long idleMillis;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    public GameEvictionService(GameService gameService) {
+        this.gameService = gameService;
+    }
+
+    // @Async keeps the synchronous writes off the scheduler thread the game timers use
+    @Async
+    @Scheduled(fixedDelayString = "${game.eviction.interval-ms:60000}",
+            initialDelayString = "${game.eviction.interval-ms:60000}")
+    public void evictIdleGames() {
+        if (!enabled || !gameService.isRecoveryComplete() || !running.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            int evicted = gameService.evictIdleGames(idleMillis);
+            if (evicted > 0) {
+                System.out.println("Evicted " + evicted + " idle games from memory");
+            }
+        } catch (Exception e) {
+            System.err.println("Idle game eviction failed: " + e.getMessage());
+            e.printStackTrace();
+        } finally {
+            running.set(false);
+        }
+    }
+}
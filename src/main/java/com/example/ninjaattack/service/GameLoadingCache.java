@@ -0,0 +1,216 @@
+package com.example.ninjaattack.service;
+
+import com.example.ninjaattack.model.domain.Game;
+import com.example.ninjaattack.model.domain.GamePhase;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Clock;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.UnaryOperator;
+
+/**
+ * Loads games that are not in the live map, protecting the database from
+ * repeated or concurrent misses.
+ * <ul>
+ * <li>Concurrent misses for the same id share one load (single flight).</li>
+ * <li>Unknown ids are remembered for {@code game.lookup.negative-ttl-ms}.</li>
+ * <li>Games that can no longer be played are kept in a small read-only LRU tier
+ * and are never put back into the live map.</li>
+ * </ul>
+ */
+@Service
+public class GameLoadingCache {
+
+    private static class FinishedEntry {
+        private final Game game;
+        private final long cachedAt;
+
+        FinishedEntry(Game game, long cachedAt) {
+            this.game = game;
+            this.cachedAt = cachedAt;
+        }
+    }
+
+    private final GamePersistenceService gamePersistenceService;
+    private final Clock clock;
+
+    private final long negativeTtlMillis;
+    private final int negativeMaxSize;
+    private final long finishedTtlMillis;
+    private final int finishedMaxSize;
+
+    private final Map<String, CompletableFuture<Game>> inFlight = new ConcurrentHashMap<>();
+    private final Map<String, Long> missingUntil = new ConcurrentHashMap<>();
+    private final LinkedHashMap<String, FinishedEntry> finished;
+
+    private final AtomicLong loads = new AtomicLong();
+    private final AtomicLong coalescedLoads = new AtomicLong();
+    private final AtomicLong negativeHits = new AtomicLong();
+    private final AtomicLong finishedHits = new AtomicLong();
+
+    public GameLoadingCache(GamePersistenceService gamePersistenceService,
+            @Value("${game.lookup.negative-ttl-ms:10000}") long negativeTtlMillis,
+            @Value("${game.lookup.negative-max-size:10000}") int negativeMaxSize,
+            @Value("${game.lookup.finished-ttl-ms:600000}") long finishedTtlMillis,
+            @Value("${game.lookup.finished-max-size:1000}") int finishedMaxSize,
+            Clock clock) {
+        this.gamePersistenceService = gamePersistenceService;
+        this.clock = clock;
+        this.negativeTtlMillis = negativeTtlMillis;
+        this.negativeMaxSize = negativeMaxSize;
+        this.finishedTtlMillis = finishedTtlMillis;
+        this.finishedMaxSize = finishedMaxSize;
+        this.finished = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, FinishedEntry> eldest) {
+                return size() > GameLoadingCache.this.finishedMaxSize;
+            }
+        };
+    }
+
+    /**
+     * Resolve a game that missed the live map.
+     *
+     * @param adoptLive called (once per load) with a game that is still being
+     *                  played; returns the instance that callers should use,
+     *                  normally after registering it in the live map
+     * @return the live or finished game, or null if it does not exist
+     */
+    public Game get(String gameId, UnaryOperator<Game> adoptLive) {
+        if (!isWellFormed(gameId)) {
+            negativeHits.incrementAndGet();
+            return null;
+        }
+
+        Game cached = getFinished(gameId);
+        if (cached != null) {
+            finishedHits.incrementAndGet();
+            return cached;
+        }
+
+        Long until = missingUntil.get(gameId);
+        if (until != null) {
+            if (clock.millis() < until) {
+                negativeHits.incrementAndGet();
+                return null;
+            }
+            missingUntil.remove(gameId, until);
+        }
+
+        CompletableFuture<Game> future = new CompletableFuture<>();
+        CompletableFuture<Game> existing = inFlight.putIfAbsent(gameId, future);
+        if (existing != null) {
+            coalescedLoads.incrementAndGet();
+            return existing.join();
+        }
+
+        try {
+            loads.incrementAndGet();
+            Game game = gamePersistenceService.loadGame(gameId);
+            Game result;
+            if (game == null) {
+                putMissing(gameId);
+                result = null;
+            } else if (isLive(game)) {
+                result = adoptLive.apply(game);
+            } else {
+                putFinished(game);
+                result = game;
+            }
+            future.complete(result);
+            return result;
+        } catch (RuntimeException e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(gameId, future);
+        }
+    }
+
+    /**
+     * Remember a game that just ended so late commands for it never reach the DB.
+     */
+    public void putFinished(Game game) {
+        synchronized (finished) {
+            finished.put(game.getGameId(), new FinishedEntry(game, clock.millis()));
+        }
+    }
+
+    public void invalidate(String gameId) {
+        missingUntil.remove(gameId);
+        synchronized (finished) {
+            finished.remove(gameId);
+        }
+    }
+
+    // --- Metrics ---
+
+    public long getLoadCount() {
+        return loads.get();
+    }
+
+    public long getCoalescedLoadCount() {
+        return coalescedLoads.get();
+    }
+
+    public long getNegativeHitCount() {
+        return negativeHits.get();
+    }
+
+    public long getFinishedHitCount() {
+        return finishedHits.get();
+    }
+
+    // --- Internals ---
+
+    /**
+     * Only games in a playing phase belong in the live map. A stored PRE_GAME game
+     * was either cancelled or lost its ready state in a restart, so it cannot be
+     * resumed either.
+     */
+    static boolean isLive(Game game) {
+        GamePhase phase = game.getPhase();
+        return phase == GamePhase.AMBUSH || phase == GamePhase.PLACEMENT || phase == GamePhase.EXTRA_ROUNDS;
+    }
+
+    private static boolean isWellFormed(String gameId) {
+        // Game ids are always UUIDs; anything else cannot exist in storage
+        try {
+            return gameId != null && gameId.length() == 36 && UUID.fromString(gameId) != null;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    private Game getFinished(String gameId) {
+        synchronized (finished) {
+            FinishedEntry entry = finished.get(gameId);
+            if (entry == null) {
+                return null;
+            }
+            if (clock.millis() - entry.cachedAt >= finishedTtlMillis) {
+                finished.remove(gameId);
+                return null;
+            }
+            return entry.game;
+        }
+    }
+
+    private void putMissing(String gameId) {
+        long now = clock.millis();
+        if (missingUntil.size() >= negativeMaxSize) {
+            missingUntil.values().removeIf(until -> until <= now);
+            if (missingUntil.size() >= negativeMaxSize) {
+                // Under a flood of distinct bogus ids, start over rather than grow
+                missingUntil.clear();
+            }
+        }
+        missingUntil.put(gameId, now + negativeTtlMillis);
+    }
+}
@@ -0,0 +1,255 @@
+package com.example.ninjaattack.service;
+
+import com.example.ninjaattack.model.domain.Game;
+import com.example.ninjaattack.model.domain.GamePhase;
+import com.example.ninjaattack.model.dto.CommandAck;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Meters for the game hot path, exported on /actuator/prometheus.
+ * <p>
+ * Gauges are plain counters moved by the code that changes them (a game entering
+ * or leaving the live map, a phase change, a save queued or started, a player
+ * joining or leaving the matchmaking queue), so scraping never walks the live
+ * games or the queue.
+ */
+@Component
+public class GameMetrics {
+
+    public static final List<String> MOVE_TYPES = List.of("ambush", "piece");
+    public static final List<String> TIMERS = List.of(GameTimerService.TURN, GameTimerService.AMBUSH,
+            GameTimerService.MATCH);
+
+    /** What a turn or ambush timeout handler did when its timer fired. */
+    public enum TimerOutcome {
+        // Deadline reached, timeout moves applied
+        APPLIED,
+        // Fired before its deadline; re-armed for the deadline
+        EARLY,
+        // The timer was superseded (move made, game over, evicted) before it ran
+        STALE,
+        // The same deadline was already handled by an earlier fire
+        DOUBLE
+    }
+
+    private final Map<GamePhase, AtomicInteger> activeGames = new EnumMap<>(GamePhase.class);
+    private final Map<GamePhase, Counter> timeouts = new EnumMap<>(GamePhase.class);
+    private final AtomicInteger pendingSaves = new AtomicInteger();
+    private final AtomicInteger matchmakingQueue = new AtomicInteger();
+    private final Map<String, Map<CommandAck.Status, Timer>> moveTimers = new HashMap<>();
+    private final Map<String, Timer> timerLateness = new HashMap<>();
+    private final Map<String, Map<TimerOutcome, Counter>> timerFires = new HashMap<>();
+    private final Map<String, Counter> timersMissed = new HashMap<>();
+
+    private final Timer saveTimer;
+    private final Counter saveFailures;
+    private final Timer matchmakingWait;
+    private final Timer ratingBatch;
+    private final DistributionSummary broadcastBytes;
+
+    public GameMetrics(MeterRegistry registry) {
+        for (GamePhase phase : GamePhase.values()) {
+            AtomicInteger count = new AtomicInteger();
+            activeGames.put(phase, count);
+            Gauge.builder("game.active", count, AtomicInteger::get)
+                    .description("Games in the live map")
+                    .tag("phase", phase.name())
+                    .register(registry);
+            timeouts.put(phase, Counter.builder("game.timeouts")
+                    .description("Timeout moves applied")
+                    .tag("phase", phase.name())
+                    .register(registry));
+        }
+
+        for (String type : MOVE_TYPES) {
+            Map<CommandAck.Status, Timer> byOutcome = new EnumMap<>(CommandAck.Status.class);
+            for (CommandAck.Status outcome : CommandAck.Status.values()) {
+                byOutcome.put(outcome, Timer.builder("game.move")
+                        .description("Handling one move, from ingress to broadcast")
+                        .tag("type", type)
+                        .tag("outcome", outcome.name())
+                        .publishPercentileHistogram()
+                        .register(registry));
+            }
+            moveTimers.put(type, byOutcome);
+        }
+
+        for (String timer : TIMERS) {
+            timerLateness.put(timer, Timer.builder("game.timer.lateness")
+                    .description("How long after its deadline a game timer ran (early fires count as 0)")
+                    .tag("timer", timer)
+                    .publishPercentileHistogram()
+                    .register(registry));
+            Map<TimerOutcome, Counter> byOutcome = new EnumMap<>(TimerOutcome.class);
+            for (TimerOutcome outcome : TimerOutcome.values()) {
+                byOutcome.put(outcome, Counter.builder("game.timer.fires")
+                        .description("Timer fires by what the timeout handler did")
+                        .tag("timer", timer)
+                        .tag("outcome", outcome.name())
+                        .register(registry));
+            }
+            timerFires.put(timer, byOutcome);
+            timersMissed.put(timer, Counter.builder("game.timer.missed")
+                    .description("Deadlines found passed without a timeout by the watchdog")
+                    .tag("timer", timer)
+                    .register(registry));
+        }
+
+        Gauge.builder("game.save.queue", pendingSaves, AtomicInteger::get)
+                .description("Async game saves submitted but not yet started")
+                .register(registry);
+        saveTimer = Timer.builder("game.save")
+                .description("Writing one game to the database")
+                .publishPercentileHistogram()
+                .register(registry);
+        saveFailures = Counter.builder("game.save.failures")
+                .description("Game writes that threw and left the stored row behind")
+                .register(registry);
+
+        Gauge.builder("matchmaking.queue.size", matchmakingQueue, AtomicInteger::get)
+                .description("Players waiting for an opponent")
+                .register(registry);
+        matchmakingWait = Timer.builder("matchmaking.wait")
+                .description("Time from joining the queue to being matched")
+                .publishPercentileHistogram()
+                .register(registry);
+
+        ratingBatch = Timer.builder("rating.update")
+                .description("Applying Elo updates for one batch of finished games")
+                .publishPercentileHistogram()
+                .register(registry);
+
+        broadcastBytes = DistributionSummary.builder("game.broadcast.payload")
+                .description("Serialized game state size per player view")
+                .baseUnit("bytes")
+                .publishPercentileHistogram()
+                .register(registry);
+    }
+
+    // --- Active games ---
+
+    /** A game entered the live map. */
+    public void gameTracked(Game game) {
+        synchronized (game) {
+            if (game.getMetricsPhase() == null) {
+                game.setMetricsPhase(game.getPhase());
+                activeGames.get(game.getPhase()).incrementAndGet();
+            }
+        }
+    }
+
+    /** Called after any state change; moves the game to its new phase's count. Caller holds the game lock. */
+    public void phaseObserved(Game game) {
+        GamePhase counted = game.getMetricsPhase();
+        if (counted != null && counted != game.getPhase()) {
+            activeGames.get(counted).decrementAndGet();
+            activeGames.get(game.getPhase()).incrementAndGet();
+            game.setMetricsPhase(game.getPhase());
+        }
+    }
+
+    /** A game left the live map (finished, cancelled or evicted). */
+    public void gameUntracked(Game game) {
+        synchronized (game) {
+            GamePhase counted = game.getMetricsPhase();
+            if (counted != null) {
+                activeGames.get(counted).decrementAndGet();
+                game.setMetricsPhase(null);
+            }
+        }
+    }
+
+    public int getActiveGames(GamePhase phase) {
+        return activeGames.get(phase).get();
+    }
+
+    public void timeoutFired(GamePhase phase) {
+        timeouts.get(phase).increment();
+    }
+
+    // --- Timers ---
+
+    public void timerLateness(String timer, long latenessMillis) {
+        timerLateness.get(timer).record(Math.max(0, latenessMillis), TimeUnit.MILLISECONDS);
+    }
+
+    public void timerFired(String timer, TimerOutcome outcome) {
+        timerFires.get(timer).get(outcome).increment();
+    }
+
+    public void timerMissed(String timer) {
+        timersMissed.get(timer).increment();
+    }
+
+    public double getTimerFires(String timer, TimerOutcome outcome) {
+        return timerFires.get(timer).get(outcome).count();
+    }
+
+    // --- Moves and broadcasts ---
+
+    /**
+     * Command handling from the controller receiving it to the broadcast and ack.
+     *
+     * @param type one of {@link #MOVE_TYPES}
+     */
+    public void moveHandled(String type, CommandAck.Status outcome, long nanos) {
+        moveTimers.get(type).get(outcome).record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void broadcastSent(int bytes) {
+        broadcastBytes.record(bytes);
+    }
+
+    // --- Persistence ---
+
+    public void saveQueued() {
+        pendingSaves.incrementAndGet();
+    }
+
+    public void saveStarted() {
+        pendingSaves.decrementAndGet();
+    }
+
+    public int getPendingSaves() {
+        return pendingSaves.get();
+    }
+
+    public void saveCompleted(long nanos) {
+        saveTimer.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void saveFailed() {
+        saveFailures.increment();
+    }
+
+    public double getSaveFailures() {
+        return saveFailures.count();
+    }
+
+    // --- Matchmaking and rating ---
+
+    public void matchmakingJoined() {
+        matchmakingQueue.incrementAndGet();
+    }
+
+    public void matchmakingLeft(long waitedMillis) {
+        matchmakingQueue.decrementAndGet();
+        matchmakingWait.record(waitedMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public void ratingBatchProcessed(long nanos) {
+        ratingBatch.record(nanos, TimeUnit.NANOSECONDS);
+    }
+}
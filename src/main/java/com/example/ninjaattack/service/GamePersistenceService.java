@@ -1,97 +1,310 @@
 package com.example.ninjaattack.service;
 
+import com.example.ninjaattack.diagnostics.GameSaveEvent;
 import com.example.ninjaattack.model.domain.Game;
 import com.example.ninjaattack.model.domain.GamePhase;
+import com.example.ninjaattack.model.domain.GameResult;
 import com.example.ninjaattack.model.entity.GameEntity;
+import com.example.ninjaattack.repository.GameArchiveRepository;
 import com.example.ninjaattack.repository.GameRepository;
+import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import org.springframework.scheduling.annotation.Async;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 
+/**
+ * Reads and writes games in the games table (and, for old finished games, the
+ * cold archive).
+ * <p>
+ * All writes of one game go through the same single-threaded writer, chosen by
+ * game id, so they land in the order they were submitted: the async save of a
+ * move, the rating pipeline's write of the result and an eviction write can no
+ * longer interleave their read-modify-write of the row, or both insert it.
+ */
 @Service
 public class GamePersistenceService {
 
+    /**
+     * Stored JSON of a game for the replay API.
+     *
+     * @param json     the game in the current schema
+     * @param finished whether the game is over
+     * @param rated    whether the result carries its rating changes; a finished
+     *                 game is written once more when they arrive, and never after that
+     */
+    public record StoredGameJson(String json, boolean finished, boolean rated) {
+    }
+
     private final GameRepository gameRepository;
+    private final GameArchiveRepository gameArchiveRepository;
     private final ObjectMapper objectMapper;
+    private final GameMetrics gameMetrics;
+    private final ExecutorService[] writers;
 
-    public GamePersistenceService(GameRepository gameRepository, ObjectMapper objectMapper) {
+    public GamePersistenceService(GameRepository gameRepository, GameArchiveRepository gameArchiveRepository,
+            ObjectMapper objectMapper, GameMetrics gameMetrics,
+            @Value("${game.persistence.writer-threads:4}") int writerThreads) {
         this.gameRepository = gameRepository;
+        this.gameArchiveRepository = gameArchiveRepository;
         this.objectMapper = objectMapper;
+        this.gameMetrics = gameMetrics;
+        this.writers = new ExecutorService[Math.max(1, writerThreads)];
+        for (int i = 0; i < writers.length; i++) {
+            String name = "game-writer-" + (i + 1);
+            writers[i] = Executors.newSingleThreadExecutor(r -> new Thread(r, name));
+        }
         // Configure ObjectMapper to be lenient
         this.objectMapper.configure(com.fasterxml.jackson.databind.DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES,
                 false);
     }
 
-    @Async
+    /**
+     * Queue a write of the game on its writer and return. Callers count the save
+     * as queued ({@link GameMetrics#saveQueued()}) before handing it over.
+     * <p>
+     * The game is serialized here, on the caller's thread, so callers hold the
+     * game lock: the writer only ever sees the state as of this call, never a
+     * game the game thread is changing under it.
+     */
     public void saveGame(Game game) {
-        try {
-            GameEntity entity = gameRepository.findById(game.getGameId()).orElse(new GameEntity());
+        Snapshot snapshot = snapshot(game);
+        if (snapshot == null) {
+            // Never reaches the writer: take it off the pending count here
+            gameMetrics.saveStarted();
+            return;
+        }
+        writerFor(snapshot.gameId()).execute(() -> {
+            gameMetrics.saveStarted();
+            write(snapshot);
+        });
+    }
 
-            if (entity.getId() == null) {
-                entity.setId(game.getGameId());
+    /**
+     * Synchronous variant of {@link #saveGame(Game)} for callers that already run
+     * off the game thread and need the write to be ordered after their own work.
+     * Serializes the game, waits for the saves already queued for this game, then
+     * writes it.
+     */
+    public void writeGame(Game game) {
+        Snapshot snapshot = snapshot(game);
+        if (snapshot != null) {
+            runOnWriter(snapshot.gameId(), () -> write(snapshot));
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        // Let queued saves finish, so a clean shutdown does not lose the last moves
+        for (ExecutorService writer : writers) {
+            writer.shutdown();
+        }
+        for (ExecutorService writer : writers) {
+            if (!writer.awaitTermination(10, TimeUnit.SECONDS)) {
+                System.err.println("Game writer did not finish its queued saves in time.");
             }
+        }
+    }
 
-            entity.setP1Username(game.getP1().getUsername());
-            entity.setP2Username(game.getP2().getUsername());
-            entity.setStatus(game.getPhase() == GamePhase.GAME_OVER ? "FINISHED"
-                    : (game.getPhase() == GamePhase.PRE_GAME ? "PRE_GAME" : "IN_PROGRESS"));
+    private ExecutorService writerFor(String gameId) {
+        return writers[Math.floorMod(gameId.hashCode(), writers.length)];
+    }
 
-            // Populate statistics if game is over
-            if (game.getPhase() == GamePhase.GAME_OVER && game.getResult() != null) {
-                com.example.ninjaattack.model.domain.GameResult res = game.getResult();
+    private void runOnWriter(String gameId, Runnable write) {
+        try {
+            CompletableFuture.runAsync(write, writerFor(gameId)).join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException cause ? cause : e;
+        }
+    }
+
+    /**
+     * The game as it is at this moment: its JSON plus the fields the row's
+     * columns are filled from, so nothing is read off the live game later.
+     */
+    private record Snapshot(String gameId, String p1Username, String p2Username, GamePhase phase,
+            String winnerId, int p1PieceCount, int p2PieceCount, boolean hasResult, boolean rated, int currentRound,
+            String json) {
+    }
 
-                if ("DRAW".equals(res.getWinnerId())) {
+    private Snapshot snapshot(Game game) {
+        try {
+            GameResult res = game.getResult();
+            return new Snapshot(game.getGameId(), game.getP1().getUsername(), game.getP2().getUsername(),
+                    game.getPhase(), res == null ? null : res.getWinnerId(),
+                    res == null ? 0 : res.getP1PieceCount(), res == null ? 0 : res.getP2PieceCount(),
+                    res != null, res != null && res.isRated(), game.getCurrentRound(),
+                    objectMapper.writeValueAsString(game));
+        } catch (Exception e) {
+            gameMetrics.saveFailed();
+            System.err.println("Error serializing game state: " + e.getMessage());
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    private void write(Snapshot game) {
+        GameSaveEvent event = new GameSaveEvent();
+        event.begin();
+        long started = System.nanoTime();
+        String json = game.json();
+        try {
+            GameEntity entity = gameRepository.findById(game.gameId()).orElseGet(() -> {
+                GameEntity created = new GameEntity();
+                created.setId(game.gameId());
+                return created;
+            });
+
+            entity.setP1Username(game.p1Username());
+            entity.setP2Username(game.p2Username());
+            entity.setStatus(game.phase() == GamePhase.GAME_OVER ? "FINISHED"
+                    : (game.phase() == GamePhase.PRE_GAME ? "PRE_GAME" : "IN_PROGRESS"));
+
+            // Populate statistics if game is over
+            if (game.phase() == GamePhase.GAME_OVER && game.hasResult()) {
+                if ("DRAW".equals(game.winnerId())) {
                     entity.setWinnerUsername("DRAW");
-                } else if ("p1".equals(res.getWinnerId())) {
-                    entity.setWinnerUsername(game.getP1().getUsername());
-                } else if ("p2".equals(res.getWinnerId())) {
-                    entity.setWinnerUsername(game.getP2().getUsername());
+                } else if ("p1".equals(game.winnerId())) {
+                    entity.setWinnerUsername(game.p1Username());
+                } else if ("p2".equals(game.winnerId())) {
+                    entity.setWinnerUsername(game.p2Username());
                 }
 
-                entity.setP1Score(res.getP1PieceCount());
-                entity.setP2Score(res.getP2PieceCount());
-                entity.setTotalRounds(game.getCurrentRound());
+                entity.setP1Score(game.p1PieceCount());
+                entity.setP2Score(game.p2PieceCount());
+                entity.setTotalRounds(game.currentRound());
 
-                if (entity.getCreatedAt() != null) {
-                    java.time.Duration duration = java.time.Duration.between(entity.getCreatedAt(),
-                            java.time.LocalDateTime.now());
-                    entity.setDurationSeconds(duration.getSeconds());
+                // Pending from the write that stores GAME_OVER until the one that stores the
+                // rating changes; a restart re-queues the games still pending
+                if (game.rated()) {
+                    entity.setRatingPending(false);
+                }
+                // Later writes (the rating deltas) must not move the finish time
+                if (entity.getFinishedAt() == null) {
+                    entity.setRatingPending(!game.rated());
+                    entity.setFinishedAt(java.time.LocalDateTime.now());
+                    if (entity.getCreatedAt() != null) {
+                        java.time.Duration duration = java.time.Duration.between(entity.getCreatedAt(),
+                                entity.getFinishedAt());
+                        entity.setDurationSeconds(duration.getSeconds());
+                    }
                 }
             }
 
-            entity.setGameStateJson(objectMapper.writeValueAsString(game));
-            gameRepository.save(entity);
+            entity.setGameStateJson(json);
+            upsert(entity);
+            event.succeeded = true;
         } catch (Exception e) {
+            gameMetrics.saveFailed();
             System.err.println("Error saving game state: " + e.getMessage());
             e.printStackTrace();
+        } finally {
+            gameMetrics.saveCompleted(System.nanoTime() - started);
+            if (event.shouldCommit()) {
+                event.gameId = game.gameId();
+                event.bytesWritten = json.getBytes(StandardCharsets.UTF_8).length;
+                event.commit();
+            }
         }
     }
 
-    public void updateGameStatus(String gameId, String status) {
+    /**
+     * Insert or update the row. Writes of one game are serialized, so the insert
+     * only collides with a row written elsewhere (another node); it is then
+     * retried as an update of that row.
+     */
+    private void upsert(GameEntity entity) {
         try {
-            Optional<GameEntity> optionalEntity = gameRepository.findById(gameId);
-            if (optionalEntity.isPresent()) {
-                GameEntity entity = optionalEntity.get();
-                entity.setStatus(status);
-                gameRepository.save(entity);
+            gameRepository.save(entity);
+        } catch (DataIntegrityViolationException e) {
+            GameEntity existing = gameRepository.findById(entity.getId()).orElseThrow(() -> e);
+            entity.setCreatedAt(existing.getCreatedAt());
+            if (existing.getFinishedAt() != null) {
+                entity.setFinishedAt(existing.getFinishedAt());
             }
-        } catch (Exception e) {
+            gameRepository.save(entity);
+        }
+    }
+
+    /**
+     * Queue a status change of the game's row on its writer and return.
+     */
+    public void updateGameStatus(String gameId, String status) {
+        writerFor(gameId).execute(() -> {
+            try {
+                Optional<GameEntity> optionalEntity = gameRepository.findById(gameId);
+                if (optionalEntity.isPresent()) {
+                    GameEntity entity = optionalEntity.get();
+                    entity.setStatus(status);
+                    gameRepository.save(entity);
+                }
+            } catch (Exception e) {
+                gameMetrics.saveFailed();
+                e.printStackTrace();
+            }
+        });
+    }
+
+    /**
+     * Walk all IN_PROGRESS games one page at a time (keyset on id), so recovery
+     * never holds more than a page of rows. Rows are handed over unparsed so the
+     * caller can deserialize them in parallel with {@link #parseGame(GameEntity)}.
+     */
+    public void forEachActiveGamePage(int pageSize, Consumer<List<GameEntity>> pageConsumer) {
+        String lastId = "";
+        while (true) {
+            List<GameEntity> page = gameRepository.findByStatusAndIdGreaterThanOrderByIdAsc("IN_PROGRESS", lastId,
+                    PageRequest.of(0, pageSize));
+            if (page.isEmpty()) {
+                return;
+            }
+            pageConsumer.accept(page);
+            if (page.size() < pageSize) {
+                return;
+            }
+            lastId = page.get(page.size() - 1).getId();
+        }
+    }
+
+    public Game parseGame(GameEntity entity) {
+        try {
+            return objectMapper.readValue(entity.getGameStateJson(), Game.class);
+        } catch (JsonProcessingException | IllegalArgumentException e) {
+            System.err.println("Failed to parse game " + entity.getId());
             e.printStackTrace();
+            return null;
         }
     }
 
-    public List<Game> loadActiveGames() {
-        List<GameEntity> entities = gameRepository.findByStatus("IN_PROGRESS");
+    /**
+     * Finished games whose rating changes were never stored with their result:
+     * not rated yet, or rated without the write of the deltas having landed.
+     */
+    public List<Game> loadRatingPendingGames() {
         List<Game> games = new ArrayList<>();
-        for (GameEntity entity : entities) {
+        for (GameEntity entity : gameRepository.findByStatusAndRatingPendingTrue("FINISHED")) {
+            String json = readJson(entity);
+            if (json == null) {
+                continue;
+            }
             try {
-                Game game = objectMapper.readValue(entity.getGameStateJson(), Game.class);
-                games.add(game);
+                games.add(objectMapper.readValue(json, Game.class));
             } catch (JsonProcessingException e) {
                 System.err.println("Failed to parse game " + entity.getId());
                 e.printStackTrace();
@@ -104,8 +317,12 @@ public class GamePersistenceService {
         List<GameEntity> entities = gameRepository.findByStatus("FINISHED");
         List<Game> games = new ArrayList<>();
         for (GameEntity entity : entities) {
+            String json = readJson(entity);
+            if (json == null) {
+                continue;
+            }
             try {
-                Game game = objectMapper.readValue(entity.getGameStateJson(), Game.class);
+                Game game = objectMapper.readValue(json, Game.class);
                 games.add(game);
             } catch (JsonProcessingException e) {
                 System.err.println("Failed to parse game " + entity.getId());
@@ -115,14 +332,125 @@ public class GamePersistenceService {
         return games;
     }
 
+    /**
+     * Load a game to resume it. Waits for the writes already queued for the game
+     * first, so a game rehydrated right after its eviction sees the evicted state.
+     */
     public Game loadGame(String gameId) {
-        return gameRepository.findById(gameId).map(entity -> {
-            try {
-                return objectMapper.readValue(entity.getGameStateJson(), Game.class);
-            } catch (JsonProcessingException e) {
-                e.printStackTrace();
+        runOnWriter(gameId, () -> {
+        });
+        String json = readStoredJson(gameId);
+        if (json == null) {
+            return null;
+        }
+        try {
+            return objectMapper.readValue(json, Game.class);
+        } catch (JsonProcessingException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    /**
+     * JSON of a game for the replay API. A row written in the current schema is
+     * returned as stored, without binding it to a {@link Game} and writing it out
+     * again; only rows in another schema version are upgraded through {@link Game}.
+     *
+     * @return null if the game is unknown or its JSON cannot be read
+     */
+    public StoredGameJson loadGameJson(String gameId) {
+        String json = readStoredJson(gameId);
+        if (json == null) {
+            return null;
+        }
+        try {
+            StoredGameJson stored = readIfCurrentSchema(json);
+            if (stored != null) {
+                return stored;
+            }
+            Game game = objectMapper.readValue(json, Game.class);
+            game.setSchemaVersion(Game.CURRENT_SCHEMA_VERSION);
+            GameResult result = game.getResult();
+            return new StoredGameJson(objectMapper.writeValueAsString(game), game.getPhase() == GamePhase.GAME_OVER,
+                    result != null && isRated(result.isRated(), result.getP1RatingChange(), result.getP2RatingChange()));
+        } catch (IOException e) {
+            System.err.println("Failed to read game " + gameId);
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    /**
+     * JSON of a game row, or of its archived copy when the row has been archived.
+     */
+    public String readJson(GameEntity entity) {
+        return entity.getGameStateJson() != null ? entity.getGameStateJson()
+                : gameArchiveRepository.read(entity.getId());
+    }
+
+    // Old finished games live in the cold archive instead of the games table
+    private String readStoredJson(String gameId) {
+        return gameRepository.findGameStateJsonById(gameId).orElseGet(() -> gameArchiveRepository.read(gameId));
+    }
+
+    /**
+     * Scan the top-level fields for {@code schemaVersion}, {@code phase} and the
+     * rating fields of {@code result}, skipping other nested objects (board,
+     * history) token by token without building them. Rows written before the
+     * version field existed have no version and count as legacy.
+     *
+     * @return the stored JSON as is, or null if it is not in the current schema
+     */
+    private StoredGameJson readIfCurrentSchema(String json) throws IOException {
+        int schemaVersion = 0;
+        String phase = null;
+        boolean resultSeen = false;
+        boolean rated = false;
+        int p1RatingChange = 0;
+        int p2RatingChange = 0;
+        try (JsonParser parser = objectMapper.getFactory().createParser(json)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
                 return null;
             }
-        }).orElse(null);
+            while (parser.nextToken() == JsonToken.FIELD_NAME && (schemaVersion == 0 || phase == null || !resultSeen)) {
+                String field = parser.currentName();
+                JsonToken value = parser.nextToken();
+                if ("schemaVersion".equals(field)) {
+                    schemaVersion = parser.getValueAsInt();
+                } else if ("phase".equals(field)) {
+                    phase = parser.getValueAsString();
+                } else if ("result".equals(field)) {
+                    resultSeen = true;
+                    if (value != JsonToken.START_OBJECT) {
+                        continue;
+                    }
+                    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                        String resultField = parser.currentName();
+                        parser.nextToken();
+                        if ("rated".equals(resultField)) {
+                            rated = parser.getValueAsBoolean();
+                        } else if ("p1RatingChange".equals(resultField)) {
+                            p1RatingChange = parser.getValueAsInt();
+                        } else if ("p2RatingChange".equals(resultField)) {
+                            p2RatingChange = parser.getValueAsInt();
+                        } else {
+                            parser.skipChildren();
+                        }
+                    }
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        }
+        if (schemaVersion != Game.CURRENT_SCHEMA_VERSION) {
+            return null;
+        }
+        return new StoredGameJson(json, GamePhase.GAME_OVER.name().equals(phase),
+                isRated(rated, p1RatingChange, p2RatingChange));
+    }
+
+    // Results rated before the flag existed show it only through non-zero changes
+    private static boolean isRated(boolean rated, int p1RatingChange, int p2RatingChange) {
+        return rated || p1RatingChange != 0 || p2RatingChange != 0;
     }
 }
@@ -1,125 +1,358 @@
 package com.example.ninjaattack.service;
 
+import com.example.ninjaattack.diagnostics.GameBroadcastEvent;
+import com.example.ninjaattack.diagnostics.GameMoveEvent;
 import com.example.ninjaattack.logic.GameEngine;
 import com.example.ninjaattack.model.domain.*;
+import com.example.ninjaattack.model.dto.CommandAck;
+import com.example.ninjaattack.model.dto.GameResumeDTO;
 import com.example.ninjaattack.model.dto.GameStateDTO;
 import com.example.ninjaattack.model.dto.MoveRequest;
-import jakarta.annotation.PostConstruct;
+import com.example.ninjaattack.model.dto.RawJson;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.BeanUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationStartedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.messaging.converter.MessageConverter;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.stereotype.Service;
 
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiPredicate;
 
 @Service
 public class GameService {
 
     private final Map<String, Game> activeGames = new ConcurrentHashMap<>();
-    private final UserService userService;
+    private final RatingUpdatePipeline ratingUpdatePipeline;
     private final SimpMessagingTemplate messagingTemplate;
     private final GameEngine gameEngine;
 
     // New Services
     private final GameTimerService gameTimerService;
     private final GamePersistenceService gamePersistenceService;
+    private final GameLoadingCache gameLoadingCache;
+    private final SpectatorService spectatorService;
+    private final ObjectMapper objectMapper;
+    private final GameMetrics gameMetrics;
+    private final Clock clock;
 
     private final Map<String, Set<String>> readyPlayersByGame = new ConcurrentHashMap<>();
 
-    public GameService(UserService userService,
+    // Recent broadcasts per live game, for clients resuming after a reconnect
+    private final Map<String, BroadcastRing> broadcastRings = new ConcurrentHashMap<>();
+    @Value("${game.resume.buffer-size:32}")
+    private int resumeBufferSize;
+
+    // Startup recovery
+    @Value("${game.recovery.page-size:200}")
+    private int recoveryPageSize;
+    @Value("${game.recovery.threads:4}")
+    private int recoveryThreads;
+    @Value("${game.recovery.catch-up-workers:4}")
+    private int catchUpWorkers;
+    @Value("${game.recovery.catch-up-queue-size:1000}")
+    private int catchUpQueueSize;
+    @Value("${game.recovery.catch-up-timeout-ms:300000}")
+    private long catchUpTimeoutMs;
+    private volatile boolean recoveryComplete;
+
+    // Idle eviction
+    private final AtomicLong evictedTotal = new AtomicLong();
+    private volatile LiveGameFootprint liveGameFootprint = new LiveGameFootprint(0, 0, 0, 0);
+
+    public GameService(RatingUpdatePipeline ratingUpdatePipeline,
             SimpMessagingTemplate messagingTemplate,
             GameTimerService gameTimerService,
-            GamePersistenceService gamePersistenceService) {
-        this.userService = userService;
+            GamePersistenceService gamePersistenceService,
+            GameLoadingCache gameLoadingCache,
+            SpectatorService spectatorService,
+            ObjectMapper objectMapper,
+            GameMetrics gameMetrics,
+            Clock clock) {
+        this.ratingUpdatePipeline = ratingUpdatePipeline;
         this.messagingTemplate = messagingTemplate;
         this.gameTimerService = gameTimerService;
         this.gamePersistenceService = gamePersistenceService;
+        this.gameLoadingCache = gameLoadingCache;
+        this.spectatorService = spectatorService;
+        this.objectMapper = objectMapper;
+        this.gameMetrics = gameMetrics;
+        this.clock = clock;
         this.gameEngine = new GameEngine();
     }
 
-    @PostConstruct
+    // Startup listeners that must run after recovery order themselves after this
+    public static final int RECOVERY_ORDER = 0;
+
+    /**
+     * Recover IN_PROGRESS games after a restart.
+     * <p>
+     * Runs once the web server is up but before the application reports itself
+     * ready: rows are streamed page by page and deserialized in parallel, and
+     * timers that already expired while the node was down are caught up on a
+     * bounded worker pool. At most two pages are in flight at a time.
+     * <p>
+     * Recovery only counts as complete once every catch-up has run. If they take
+     * longer than {@code game.recovery.catch-up-timeout-ms}, startup goes on with
+     * the rest still draining, and the timer watchdog and idle eviction stay off
+     * until they are done.
+     */
+    @EventListener(ApplicationStartedEvent.class)
+    @Order(RECOVERY_ORDER)
     public void loadActiveGames() {
-        List<Game> games = gamePersistenceService.loadActiveGames();
-        for (Game game : games) {
-            activeGames.put(game.getGameId(), game);
+        long start = System.currentTimeMillis();
+        AtomicInteger recovered = new AtomicInteger();
+        AtomicInteger expired = new AtomicInteger();
+
+        ExecutorService parsePool = Executors.newFixedThreadPool(recoveryThreads);
+        // CallerRunsPolicy throttles the parser threads when catch-up falls behind
+        ThreadPoolExecutor catchUpPool = new ThreadPoolExecutor(catchUpWorkers, catchUpWorkers,
+                0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(catchUpQueueSize),
+                new ThreadPoolExecutor.CallerRunsPolicy());
+        Deque<CompletableFuture<Void>> inFlightPages = new ArrayDeque<>();
+
+        try {
+            gamePersistenceService.forEachActiveGamePage(recoveryPageSize, page -> {
+                CompletableFuture<?>[] parses = page.stream()
+                        .map(entity -> CompletableFuture.runAsync(() -> {
+                            Game game = gamePersistenceService.parseGame(entity);
+                            if (game != null) {
+                                if (restoreGame(game, catchUpPool)) {
+                                    expired.incrementAndGet();
+                                }
+                                recovered.incrementAndGet();
+                            }
+                        }, parsePool))
+                        .toArray(CompletableFuture[]::new);
+                inFlightPages.addLast(CompletableFuture.allOf(parses));
+                if (inFlightPages.size() > 2) {
+                    inFlightPages.removeFirst().join();
+                }
+            });
+            inFlightPages.forEach(CompletableFuture::join);
+
+            catchUpPool.shutdown();
+            if (catchUpPool.awaitTermination(catchUpTimeoutMs, TimeUnit.MILLISECONDS)) {
+                recoveryComplete = true;
+            } else {
+                System.err.println("Recovery: " + (catchUpPool.getQueue().size() + catchUpPool.getActiveCount())
+                        + " expired timers still being caught up after " + catchUpTimeoutMs + " ms.");
+                completeRecoveryWhenDrained(catchUpPool);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            System.err.println("Recovery interrupted; it stays incomplete.");
+        } finally {
+            parsePool.shutdownNow();
+            catchUpPool.shutdown();
+        }
+
+        System.out.println("Recovered " + recovered.get() + " games (" + expired.get() + " expired timers caught up) in "
+                + (System.currentTimeMillis() - start) + " ms" + (recoveryComplete ? "." : "; catch-up still running."));
+    }
 
-            // Restore timers
-            long now = System.currentTimeMillis();
+    // Queued catch-ups keep running after shutdown(); flag completion once the last one is done
+    private void completeRecoveryWhenDrained(ExecutorService catchUpPool) {
+        Thread watcher = new Thread(() -> {
+            try {
+                while (!catchUpPool.awaitTermination(1, TimeUnit.MINUTES)) {
+                    // keep waiting
+                }
+                recoveryComplete = true;
+                System.out.println("Recovery catch-up finished.");
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }, "recovery-catch-up-watch");
+        watcher.setDaemon(true);
+        watcher.start();
+    }
+
+    public boolean isRecoveryComplete() {
+        return recoveryComplete;
+    }
+
+    private static final long RESTORE_SEQ_GAP = 1024;
+
+    /**
+     * Register a recovered game and restore its timer.
+     *
+     * @return true if its deadline had already passed and a catch-up was queued
+     */
+    private boolean restoreGame(Game recoveredGame, Executor catchUpPool) {
+        return restoreTimers(adoptGame(recoveredGame), catchUpPool);
+    }
+
+    /**
+     * Put a recovered game into the live map.
+     *
+     * @return the instance now live: the recovered one, or one registered meanwhile
+     */
+    private Game adoptGame(Game recoveredGame) {
+        // A request may have lazily loaded this game through findGame meanwhile; keep that instance
+        Game existing = activeGames.putIfAbsent(recoveredGame.getGameId(), recoveredGame);
+        if (existing != null) {
+            return existing;
+        }
+        // Saves are async, so the stored sequence may trail what clients last saw
+        recoveredGame.setBroadcastSeq(recoveredGame.getBroadcastSeq() + RESTORE_SEQ_GAP);
+        recoveredGame.markActivity(clock.millis());
+        recoveredGame.setLiveSince(clock.millis());
+        gameMetrics.gameTracked(recoveredGame);
+        return recoveredGame;
+    }
+
+    /**
+     * Re-arm the timer of a live game, or hand a deadline that already passed to
+     * {@code catchUpPool}.
+     *
+     * @return true if its deadline had already passed and a catch-up was queued
+     */
+    private boolean restoreTimers(Game game, Executor catchUpPool) {
+        synchronized (game) {
+            if (game.getTurnTimer() != null) {
+                return false;
+            }
+
+            long now = clock.millis();
             if (game.getPhase() == GamePhase.AMBUSH) {
                 long deadline = Math.max(game.getP1ActionDeadline(), game.getP2ActionDeadline());
-                long delay = Math.max(0, deadline - now);
-                if (delay > 0) {
-                    gameTimerService.scheduleAmbushTimer(game, (int) (delay / 1000),
-                            () -> handleAmbushTimeoutTask(game.getGameId()));
+                if (deadline > now) {
+                    gameTimerService.scheduleAmbushTimerAt(game, deadline,
+                            armed -> handleAmbushTimeoutTask(game.getGameId(), armed));
                 } else {
-                    handleAmbushTimeoutTask(game.getGameId());
+                    catchUpPool.execute(() -> handleAmbushTimeoutTask(game.getGameId(), deadline));
+                    return true;
                 }
             } else if (game.getPhase() == GamePhase.PLACEMENT || game.getPhase() == GamePhase.EXTRA_ROUNDS) {
-                long deadline = "p1".equals(game.getCurrentTurnPlayerId()) ? game.getP1ActionDeadline()
-                        : game.getP2ActionDeadline();
-                long delay = Math.max(0, deadline - now);
-                if (delay > 0) {
-                    String playerId = game.getCurrentTurnPlayerId();
-                    gameTimerService.scheduleTurnTimer(game, playerId, (int) (delay / 1000),
-                            () -> handleTimeoutTask(game.getGameId(), playerId));
+                String playerId = game.getCurrentTurnPlayerId();
+                long deadline = game.getActionDeadline(playerId);
+                if (deadline > now) {
+                    gameTimerService.scheduleTurnTimerAt(game, playerId, deadline,
+                            armed -> handleTimeoutTask(game.getGameId(), playerId, armed));
                 } else {
-                    handleTimeoutTask(game.getGameId(), game.getCurrentTurnPlayerId());
+                    catchUpPool.execute(() -> handleTimeoutTask(game.getGameId(), playerId, deadline));
+                    return true;
                 }
             }
-            System.out.println("Loaded game " + game.getGameId() + " from DB and restored timers.");
         }
+        return false;
     }
 
-    // The task that runs when timeout occurs (Normal phases)
-    private void handleTimeoutTask(String gameId, String playerId) {
+    // The task that runs when timeout occurs (Normal phases). deadline is the one
+    // the timer was armed for.
+    private void handleTimeoutTask(String gameId, String playerId, long deadline) {
         Game game = activeGames.get(gameId);
-        if (game == null)
+        if (game == null) {
+            gameMetrics.timerFired(GameTimerService.TURN, GameMetrics.TimerOutcome.STALE);
             return;
+        }
 
         synchronized (game) {
-            if (game.getPhase() == GamePhase.GAME_OVER)
+            GameMetrics.TimerOutcome outcome = checkTimerFire(game, game.isEvicted()
+                    || game.getPhase() == GamePhase.GAME_OVER, game.getActionDeadline(playerId), deadline);
+            gameMetrics.timerFired(GameTimerService.TURN, outcome);
+            if (outcome == GameMetrics.TimerOutcome.EARLY) {
+                gameTimerService.scheduleTurnTimerAt(game, playerId, deadline,
+                        armed -> handleTimeoutTask(gameId, playerId, armed));
+            }
+            if (outcome != GameMetrics.TimerOutcome.APPLIED) {
                 return;
+            }
 
-            long now = System.currentTimeMillis();
-            long deadline = "p1".equals(playerId) ? game.getP1ActionDeadline() : game.getP2ActionDeadline();
-
-            if (now >= deadline) {
-                System.out.println("Timeout triggered for " + playerId + " in game " + gameId);
-                gameEngine.handleTimeout(game, playerId);
-                updateTimersAfterMove(game);
+            System.out.println("Timeout triggered for " + playerId + " in game " + gameId);
+            game.markActivity(clock.millis());
+            game.setLastTimeoutDeadline(deadline);
+            gameMetrics.timeoutFired(game.getPhase());
+            gameEngine.handleTimeout(game, playerId);
+            updateTimersAfterMove(game);
 
-                if (game.getPhase() != GamePhase.GAME_OVER) {
-                    broadcastGameState(game.getGameId());
-                } else {
-                    handleGameOver(game);
-                }
-                gamePersistenceService.saveGame(game);
+            if (game.getPhase() != GamePhase.GAME_OVER) {
+                broadcastGameState(game.getGameId());
+            } else {
+                handleGameOver(game);
             }
+            save(game);
+        }
+    }
+
+    /**
+     * Classify a timer fire against the game's current deadline. Caller holds the
+     * game lock.
+     */
+    private GameMetrics.TimerOutcome checkTimerFire(Game game, boolean gone, long currentDeadline,
+            long armedDeadline) {
+        if (gone) {
+            return GameMetrics.TimerOutcome.STALE;
+        }
+        if (currentDeadline != armedDeadline) {
+            return armedDeadline == game.getLastTimeoutDeadline()
+                    ? GameMetrics.TimerOutcome.DOUBLE
+                    : GameMetrics.TimerOutcome.STALE;
         }
+        return clock.millis() < armedDeadline
+                ? GameMetrics.TimerOutcome.EARLY
+                : GameMetrics.TimerOutcome.APPLIED;
     }
 
     // The task that runs when timeout occurs (Ambush phase)
-    private void handleAmbushTimeoutTask(String gameId) {
+    private void handleAmbushTimeoutTask(String gameId, long deadline) {
         Game game = activeGames.get(gameId);
-        if (game == null)
+        if (game == null) {
+            gameMetrics.timerFired(GameTimerService.AMBUSH, GameMetrics.TimerOutcome.STALE);
             return;
+        }
 
         synchronized (game) {
-            if (game.getPhase() != GamePhase.AMBUSH)
+            GameMetrics.TimerOutcome outcome = checkTimerFire(game,
+                    game.isEvicted() || game.getPhase() != GamePhase.AMBUSH,
+                    Math.max(game.getP1ActionDeadline(), game.getP2ActionDeadline()), deadline);
+            gameMetrics.timerFired(GameTimerService.AMBUSH, outcome);
+            if (outcome == GameMetrics.TimerOutcome.EARLY) {
+                gameTimerService.scheduleAmbushTimerAt(game, deadline,
+                        armed -> handleAmbushTimeoutTask(gameId, armed));
+            }
+            if (outcome != GameMetrics.TimerOutcome.APPLIED) {
                 return;
+            }
 
-            long now = System.currentTimeMillis();
+            long now = clock.millis();
+            game.markActivity(now);
+            game.setLastTimeoutDeadline(deadline);
             if (now >= game.getP1ActionDeadline() && game.getP1AmbushesPlacedThisRound() < 2) {
+                gameMetrics.timeoutFired(GamePhase.AMBUSH);
                 gameEngine.handleTimeout(game, "p1");
             }
             if (now >= game.getP2ActionDeadline() && game.getP2AmbushesPlacedThisRound() < 2) {
+                gameMetrics.timeoutFired(GamePhase.AMBUSH);
                 gameEngine.handleTimeout(game, "p2");
             }
 
             updateTimersAfterMove(game);
-            gamePersistenceService.saveGame(game);
+            save(game);
             broadcastGameState(gameId);
         }
     }
@@ -142,7 +375,9 @@ public class GameService {
         dto.setP1Username(game.getP1().getUsername());
         dto.setP2Username(game.getP2().getUsername());
 
-        messagingTemplate.convertAndSend("/topic/game/" + gameId, dto);
+        synchronized (game) {
+            publish(game, dto);
+        }
     }
 
     public void broadcastGameState(String gameId) {
@@ -150,16 +385,433 @@ public class GameService {
         if (game == null)
             return;
 
-        GameStateDTO dto;
         synchronized (game) {
-            dto = mapToDTO(game);
+            publish(game, mapToDTO(game));
         }
-        messagingTemplate.convertAndSend("/topic/game/" + gameId, dto);
+    }
+
+    /**
+     * Number the broadcast, render each player's view once, remember it for
+     * resuming clients and send it. Runs under the game lock so sequence numbers
+     * reach the broker in order.
+     * <p>
+     * Each player only sees their own ambushes, so the two views go to per-user
+     * destinations ({@code /user/queue/game/{gameId}}) instead of one shared topic.
+     */
+    private void publish(Game game, GameStateDTO dto) {
+        GameBroadcastEvent event = new GameBroadcastEvent();
+        event.begin();
+        long started = System.nanoTime();
+        long seq = game.getBroadcastSeq() + 1;
+        game.setBroadcastSeq(seq);
+        dto.setSeq(seq);
+
+        GameViews views = new GameViews(seq, renderView(dto, "p1"), renderView(dto, "p2"));
+        long serializeTime = System.nanoTime() - started;
+        gameMetrics.phaseObserved(game);
+        // UTF-8 bytes, as sent; the status messages are mostly non-ASCII
+        int p1Bytes = views.p1Json().getBytes(StandardCharsets.UTF_8).length;
+        int p2Bytes = views.p2Json().getBytes(StandardCharsets.UTF_8).length;
+        gameMetrics.broadcastSent(p1Bytes);
+        gameMetrics.broadcastSent(p2Bytes);
+        String destination = PLAYER_QUEUE_PREFIX + game.getGameId();
+        messagingTemplate.convertAndSendToUser(game.getP1().getUsername(), destination, views.p1Json());
+        messagingTemplate.convertAndSendToUser(game.getP2().getUsername(), destination, views.p2Json());
+        if (event.shouldCommit()) {
+            event.gameId = game.getGameId();
+            event.seq = seq;
+            event.payloadBytes = p1Bytes + p2Bytes;
+            event.serializeTime = serializeTime;
+            event.commit();
+        }
+
+        if (activeGames.get(game.getGameId()) == game) {
+            broadcastRings.computeIfAbsent(game.getGameId(), id -> new BroadcastRing(resumeBufferSize))
+                    .add(views);
+        }
+        if (spectatorService.isWatched(game.getGameId())) {
+            // The DTO shares the live board; spectators get a frozen copy
+            spectatorService.offer(game.getGameId(), copyOf(dto));
+        }
+    }
+
+    private static final String PLAYER_QUEUE_PREFIX = "/queue/game/";
+
+    /**
+     * The state as {@code playerId} may see it: the opponent's ambush flags are
+     * cleared on a copy of the board, and only the player's own command seq is
+     * included.
+     */
+    static GameStateDTO projectFor(GameStateDTO dto, String playerId) {
+        GameStateDTO view = new GameStateDTO();
+        BeanUtils.copyProperties(dto, view);
+        view.setCommandSeq("p1".equals(playerId) ? dto.getP1CommandSeq() : dto.getP2CommandSeq());
+        Board board = dto.getBoard();
+        if (board != null) {
+            Board visible = board.copy();
+            for (int r = 0; r < 6; r++) {
+                for (int c = 0; c < 6; c++) {
+                    Square square = visible.getSquare(r, c);
+                    if ("p1".equals(playerId)) {
+                        square.setP2Ambush(false);
+                    } else {
+                        square.setP1Ambush(false);
+                    }
+                }
+            }
+            view.setBoard(visible);
+        }
+        return view;
+    }
+
+    private String renderView(GameStateDTO dto, String playerId) {
+        try {
+            return objectMapper.writeValueAsString(projectFor(dto, playerId));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Cannot serialize game view", e);
+        }
+    }
+
+    private static String playerIdOf(Game game, String username) {
+        if (username.equals(game.getP1().getUsername())) {
+            return "p1";
+        }
+        if (username.equals(game.getP2().getUsername())) {
+            return "p2";
+        }
+        return null;
+    }
+
+    /**
+     * Current state for a spectator joining between broadcasts (not redacted;
+     * see {@link SpectatorService#toSnapshot}).
+     *
+     * @return null if the game does not exist
+     */
+    public GameStateDTO getStateForSpectators(String gameId) {
+        Game game = findGame(gameId);
+        if (game == null)
+            return null;
+
+        synchronized (game) {
+            GameStateDTO dto = mapToDTO(game);
+            dto.setSeq(game.getBroadcastSeq());
+            return copyOf(dto);
+        }
+    }
+
+    /**
+     * Catch a reconnecting participant up: the broadcasts after {@code lastSeq} if
+     * they are still buffered, otherwise a snapshot of the current state.
+     *
+     * @return null if the game does not exist
+     * @throws IllegalArgumentException if the user is not a participant
+     */
+    public GameResumeDTO resume(String gameId, String username, long lastSeq) {
+        Game game = findGame(gameId);
+        if (game == null)
+            return null;
+
+        synchronized (game) {
+            String playerId = playerIdOf(game, username);
+            if (playerId == null) {
+                throw new IllegalArgumentException("Unauthorized: " + username + " is not playing " + gameId);
+            }
+
+            GameResumeDTO resume = new GameResumeDTO();
+            resume.setGameId(gameId);
+            resume.setLatestSeq(game.getBroadcastSeq());
+
+            BroadcastRing ring = activeGames.get(gameId) == game ? broadcastRings.get(gameId) : null;
+            List<GameViews> missed = ring != null ? ring.since(lastSeq) : null;
+            if (missed != null) {
+                // Already rendered for this player when they were broadcast
+                resume.setEvents(missed.stream().map(views -> new RawJson(views.forPlayer(playerId))).toList());
+                return resume;
+            }
+
+            GameStateDTO snapshot = mapToDTO(game);
+            if (game.getPhase() == GamePhase.PRE_GAME && activeGames.get(gameId) != game) {
+                // A PRE_GAME game outside the live map was cancelled
+                snapshot.setPhase(GamePhase.MATCH_CANCELLED);
+            }
+            snapshot.setSeq(game.getBroadcastSeq());
+            resume.setSnapshot(true);
+            resume.setEvents(List.of(new RawJson(renderView(snapshot, playerId))));
+            return resume;
+        }
+    }
+
+    private static GameStateDTO copyOf(GameStateDTO dto) {
+        GameStateDTO copy = new GameStateDTO();
+        BeanUtils.copyProperties(dto, copy);
+        if (dto.getBoard() != null) {
+            copy.setBoard(dto.getBoard().copy());
+        }
+        return copy;
     }
 
     private void cleanupGame(String gameId) {
-        activeGames.remove(gameId);
+        Game game = activeGames.remove(gameId);
         readyPlayersByGame.remove(gameId);
+        broadcastRings.remove(gameId);
+        if (game != null) {
+            gameMetrics.gameUntracked(game);
+            // Late commands from stale tabs are answered from memory
+            gameLoadingCache.putFinished(game);
+        }
+    }
+
+    /**
+     * Spill games without any command or timeout for {@code idleMillis} out of
+     * the live map. Under the game lock the game is only marked evicted, its
+     * timers suspended and its state (including deadlines) serialized; the write
+     * itself runs on the game's writer after the lock is released, and the next
+     * command rehydrates it through findGame, whose load waits for that write,
+     * with timers restored. A PRE_GAME game cannot be resumed and is cancelled instead.
+     * <p>
+     * The same pass refreshes the live-map footprint estimate.
+     *
+     * @return number of games evicted
+     */
+    public int evictIdleGames(long idleMillis) {
+        long now = clock.millis();
+        int evicted = 0;
+        long footprint = 0;
+        long moves = 0;
+        int live = 0;
+
+        for (Game game : activeGames.values()) {
+            synchronized (game) {
+                if (game.isEvicted()) {
+                    continue;
+                }
+                if (now - game.getLastActivityAt() < idleMillis) {
+                    live++;
+                    moves += game.getHistory().size();
+                    footprint += estimateFootprint(game);
+                    continue;
+                }
+
+                gameTimerService.suspendTimers(game);
+                game.setEvicted(true);
+                // Both only queue on the game's writer: a writer busy with other games'
+                // saves must not hold this lock, and with it the timer thread
+                if (game.getPhase() == GamePhase.PRE_GAME) {
+                    gamePersistenceService.updateGameStatus(game.getGameId(), "CANCELLED");
+                } else {
+                    save(game);
+                }
+                activeGames.remove(game.getGameId(), game);
+                gameMetrics.gameUntracked(game);
+                readyPlayersByGame.remove(game.getGameId());
+                broadcastRings.remove(game.getGameId());
+                if (!GameLoadingCache.isLive(game)) {
+                    // Never cache the spilled instance itself: commands would find it and
+                    // retry on it forever
+                    gameLoadingCache.putFinished(objectMapper.convertValue(game, Game.class));
+                }
+                evicted++;
+            }
+        }
+
+        liveGameFootprint = new LiveGameFootprint(live, moves, footprint, evictedTotal.addAndGet(evicted));
+        return evicted;
+    }
+
+    /**
+     * Watchdog pass: run the timeout of every live game whose turn or ambush
+     * deadline passed more than {@code graceMillis} ago without its timer having
+     * handled it (a lost, cancelled or starved timer task).
+     *
+     * @return number of timeouts recovered
+     */
+    public int recoverMissedTimeouts(long graceMillis) {
+        int recovered = 0;
+        for (Game game : activeGames.values()) {
+            synchronized (game) {
+                if (game.isEvicted()) {
+                    continue;
+                }
+                long overdue;
+                if (game.getPhase() == GamePhase.AMBUSH) {
+                    long deadline = Math.max(game.getP1ActionDeadline(), game.getP2ActionDeadline());
+                    overdue = clock.millis() - deadline;
+                    if (deadline == Long.MAX_VALUE || overdue < graceMillis) {
+                        continue;
+                    }
+                    gameMetrics.timerMissed(GameTimerService.AMBUSH);
+                    handleAmbushTimeoutTask(game.getGameId(), deadline);
+                } else if (game.getPhase() == GamePhase.PLACEMENT || game.getPhase() == GamePhase.EXTRA_ROUNDS) {
+                    String playerId = game.getCurrentTurnPlayerId();
+                    long deadline = game.getActionDeadline(playerId);
+                    overdue = clock.millis() - deadline;
+                    if (deadline == Long.MAX_VALUE || overdue < graceMillis) {
+                        continue;
+                    }
+                    gameMetrics.timerMissed(GameTimerService.TURN);
+                    handleTimeoutTask(game.getGameId(), playerId, deadline);
+                } else {
+                    continue;
+                }
+                System.err.println("Timer watchdog: game " + game.getGameId() + " deadline passed " + overdue
+                        + " ms ago without a timeout");
+                recovered++;
+            }
+        }
+        return recovered;
+    }
+
+    /**
+     * Play out games whose two participants are both gone. Instead of one timer
+     * firing per move, the remaining moves are made back to back with the same
+     * random timeout moves {@link GameEngine#handleTimeout} applies today, then
+     * the finished game is saved, broadcast and freed once.
+     *
+     * @param isAbsent whether a participant (by username) has not watched the game for the grace period
+     * @return number of games resolved
+     */
+    public int resolveAbandonedGames(BiPredicate<Game, String> isAbsent) {
+        int resolved = 0;
+        for (Game game : activeGames.values()) {
+            if (!GameLoadingCache.isLive(game)
+                    || !isAbsent.test(game, game.getP1().getUsername())
+                    || !isAbsent.test(game, game.getP2().getUsername())) {
+                continue;
+            }
+            synchronized (game) {
+                if (game.isEvicted() || !GameLoadingCache.isLive(game)) {
+                    continue;
+                }
+                if (resolveAbandonedGame(game)) {
+                    resolved++;
+                }
+            }
+        }
+        return resolved;
+    }
+
+    // Upper bound on timeout moves for one game: 4 rounds of 4 ambushes and 6
+    // placements, plus at most one extra turn per square
+    private static final int MAX_ABANDONED_STEPS = 200;
+
+    private boolean resolveAbandonedGame(Game game) {
+        gameTimerService.cancelTurnTimer(game);
+
+        for (int step = 0; step < MAX_ABANDONED_STEPS && game.getPhase() != GamePhase.GAME_OVER; step++) {
+            if (game.getPhase() == GamePhase.AMBUSH) {
+                gameEngine.handleTimeout(game, "p1");
+                if (game.getPhase() == GamePhase.AMBUSH) {
+                    gameEngine.handleTimeout(game, "p2");
+                }
+            } else {
+                gameEngine.handleTimeout(game, game.getCurrentTurnPlayerId());
+            }
+        }
+
+        if (game.getPhase() == GamePhase.GAME_OVER) {
+            System.out.println("Resolved abandoned game " + game.getGameId());
+            handleGameOver(game);
+            return true;
+        }
+
+        // Did not converge (should not happen): hand the game back to the normal timers
+        System.err.println("Abandoned game " + game.getGameId() + " did not finish, resuming timers");
+        updateTimersAfterMove(game);
+        save(game);
+        return false;
+    }
+
+    /**
+     * Play one throwaway game to the end through the same engine calls, DTO
+     * mapping, per-player view rendering, message conversion and game JSON
+     * round trip as live games, so the JIT has compiled those paths before the
+     * first real move. Players move on random valid squares. The game never
+     * enters the live map and touches no timer, metric, table or destination.
+     *
+     * @return number of moves played
+     */
+    public int playWarmupGame() {
+        Game game = new Game("warmup-p1", "warmup-p2");
+        gameEngine.startGame(game);
+        MessageConverter converter = messagingTemplate.getMessageConverter();
+        int moves = 0;
+        try {
+            while (game.getPhase() != GamePhase.GAME_OVER && moves < MAX_ABANDONED_STEPS) {
+                if (game.getPhase() == GamePhase.AMBUSH) {
+                    String playerId = game.getP1AmbushesPlacedThisRound() < 2 ? "p1" : "p2";
+                    MoveRequest move = warmupMove(game, playerId, true);
+                    if (move == null) {
+                        gameEngine.handleTimeout(game, playerId);
+                    } else {
+                        gameEngine.placeAmbush(game, move);
+                        game.getHistory().add(playerId, "AMBUSH", move.getR(), move.getC(), clock.millis());
+                    }
+                } else {
+                    String playerId = game.getCurrentTurnPlayerId();
+                    MoveRequest move = warmupMove(game, playerId, false);
+                    if (move == null) {
+                        gameEngine.handleTimeout(game, playerId);
+                    } else {
+                        gameEngine.placePiece(game, move);
+                        game.getHistory().add(playerId, "PIECE", move.getR(), move.getC(), clock.millis());
+                    }
+                }
+                moves++;
+
+                GameStateDTO dto = mapToDTO(game);
+                dto.setSeq(moves);
+                converter.toMessage(renderView(dto, "p1"), null);
+                converter.toMessage(renderView(dto, "p2"), null);
+                converter.toMessage(new CommandAck(game.getGameId(), moves, CommandAck.Status.APPLIED, null), null);
+            }
+            objectMapper.readValue(objectMapper.writeValueAsString(game), Game.class);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Warm-up game could not be serialized", e);
+        }
+        return moves;
+    }
+
+    // A random legal move for playerId, or null if there is none
+    private static MoveRequest warmupMove(Game game, String playerId, boolean ambush) {
+        List<int[]> squares = new ArrayList<>();
+        for (int r = 0; r < 6; r++) {
+            for (int c = 0; c < 6; c++) {
+                Square square = game.getBoard().getSquare(r, c);
+                boolean ownAmbush = "p1".equals(playerId) ? square.isP1Ambush() : square.isP2Ambush();
+                if (square.getOwnerId() == null && !(ambush && ownAmbush)) {
+                    squares.add(new int[] { r, c });
+                }
+            }
+        }
+        if (squares.isEmpty()) {
+            return null;
+        }
+        int[] square = squares.get(ThreadLocalRandom.current().nextInt(squares.size()));
+        MoveRequest move = new MoveRequest();
+        move.setPlayerId(playerId);
+        move.setR(square[0]);
+        move.setC(square[1]);
+        return move;
+    }
+
+    /**
+     * Estimated heap held by the live-game map, as of the last eviction pass.
+     */
+    public LiveGameFootprint getLiveGameFootprint() {
+        return liveGameFootprint;
+    }
+
+    public record LiveGameFootprint(int games, long historyRecords, long estimatedBytes, long evictedTotal) {
+    }
+
+    // Rough shallow sizes (64-bit JVM, compressed oops): game, players, result,
+    // 6x6 board of squares, plus one packed long per allocated history slot
+    private static final long GAME_BASE_BYTES = 2_300;
+    private static final long MOVE_SLOT_BYTES = 8;
+
+    private static long estimateFootprint(Game game) {
+        return GAME_BASE_BYTES + MOVE_SLOT_BYTES * game.getHistory().capacity();
     }
 
     public GameStateDTO findActiveGameByUsername(String username) {
@@ -169,7 +821,9 @@ public class GameService {
             }
             if (username.equals(game.getP1().getUsername()) || username.equals(game.getP2().getUsername())) {
                 synchronized (game) {
-                    return mapToDTO(game);
+                    GameStateDTO dto = mapToDTO(game);
+                    dto.setSeq(game.getBroadcastSeq());
+                    return projectFor(dto, playerIdOf(game, username));
                 }
             }
         }
@@ -193,12 +847,16 @@ public class GameService {
 
     public Game createGame(String p1Username, String p2Username) {
         Game game = new Game(p1Username, p2Username);
-        game.setConfirmationDeadline(System.currentTimeMillis() + 30000L);
+        long now = clock.millis();
+        game.setConfirmationDeadline(now + 30000L);
+        game.markActivity(now);
+        game.setLiveSince(now);
 
         activeGames.put(game.getGameId(), game);
+        gameMetrics.gameTracked(game);
         readyPlayersByGame.put(game.getGameId(), new HashSet<>());
 
-        gamePersistenceService.saveGame(game);
+        save(game);
 
         // Schedule match confirmation timeout
         gameTimerService.scheduleMatchTimer(game, 30, () -> {
@@ -217,10 +875,16 @@ public class GameService {
             return;
 
         synchronized (game) {
+            if (game.isEvicted()) {
+                // Spilled between lookup and lock; a spilled PRE_GAME game is cancelled,
+                // so there is nothing to get ready for
+                return;
+            }
             if (game.getPhase() != GamePhase.PRE_GAME)
                 return;
 
             validatePlayerIdentity(game, playerId, username);
+            game.markActivity(clock.millis());
 
             Set<String> readyPlayers = readyPlayersByGame.get(gameId);
             if (readyPlayers == null)
@@ -242,22 +906,52 @@ public class GameService {
 
     private void startGame(Game game) {
         gameEngine.startGame(game);
-        gameTimerService.scheduleAmbushTimer(game, 15, () -> handleAmbushTimeoutTask(game.getGameId()));
-        gamePersistenceService.saveGame(game);
+        gameTimerService.scheduleAmbushTimer(game, 15, deadline -> handleAmbushTimeoutTask(game.getGameId(), deadline));
+        save(game);
         broadcastGameState(game.getGameId());
     }
 
-    public void placeAmbush(String gameId, MoveRequest move, String username) {
+    /**
+     * @return APPLIED, or DUPLICATE if this clientSeq was already applied (the
+     *         game is left untouched)
+     * @throws IllegalArgumentException if the game does not exist or the move is not the user's
+     * @throws IllegalStateException    if the engine rejects the move
+     */
+    public CommandAck.Status placeAmbush(String gameId, MoveRequest move, String username) {
+        GameMoveEvent event = new GameMoveEvent();
+        event.begin();
+        CommandAck.Status status = CommandAck.Status.REJECTED;
+        try {
+            status = applyAmbush(gameId, move, username, event);
+            return status;
+        } finally {
+            commitMove(event, gameId, move, "AMBUSH", status);
+        }
+    }
+
+    private CommandAck.Status applyAmbush(String gameId, MoveRequest move, String username, GameMoveEvent event) {
         Game game = findGame(gameId);
         if (game == null)
-            return;
+            throw new IllegalArgumentException("Game not found: " + gameId);
 
+        long lockRequested = System.nanoTime();
         synchronized (game) {
+            event.lockWait += System.nanoTime() - lockRequested;
+            if (game.isEvicted()) {
+                // Spilled between lookup and lock: retry against the rehydrated instance
+                requireRehydrated(gameId);
+                return applyAmbush(gameId, move, username, event);
+            }
             validatePlayerIdentity(game, move.getPlayerId(), username);
+            if (isDuplicateCommand(game, move)) {
+                return CommandAck.Status.DUPLICATE;
+            }
             gameEngine.placeAmbush(game, move);
+            acceptCommand(game, move);
+            long now = clock.millis();
+            game.markActivity(now);
             // [NEW] Record Move
-            game.getHistory().add(
-                    new MoveRecord(move.getPlayerId(), "AMBUSH", move.getR(), move.getC(), System.currentTimeMillis()));
+            game.getHistory().add(move.getPlayerId(), "AMBUSH", move.getR(), move.getC(), now);
 
             boolean p1Done = game.getP1AmbushesPlacedThisRound() == 2;
             boolean p2Done = game.getP2AmbushesPlacedThisRound() == 2;
@@ -270,42 +964,105 @@ public class GameService {
                 updateTimersAfterMove(game);
             }
 
-            gamePersistenceService.saveGame(game);
+            save(game);
             broadcastGameState(gameId);
+            return CommandAck.Status.APPLIED;
+        }
+    }
+
+    /**
+     * @return APPLIED, or DUPLICATE if this clientSeq was already applied (the
+     *         game is left untouched)
+     * @throws IllegalArgumentException if the game does not exist or the move is not the user's
+     * @throws IllegalStateException    if the engine rejects the move
+     */
+    public CommandAck.Status placePiece(String gameId, MoveRequest move, String username) {
+        GameMoveEvent event = new GameMoveEvent();
+        event.begin();
+        CommandAck.Status status = CommandAck.Status.REJECTED;
+        try {
+            status = applyPiece(gameId, move, username, event);
+            return status;
+        } finally {
+            commitMove(event, gameId, move, "PIECE", status);
         }
     }
 
-    public void placePiece(String gameId, MoveRequest move, String username) {
+    private CommandAck.Status applyPiece(String gameId, MoveRequest move, String username, GameMoveEvent event) {
         Game game = findGame(gameId);
         if (game == null)
-            return;
+            throw new IllegalArgumentException("Game not found: " + gameId);
 
+        long lockRequested = System.nanoTime();
         synchronized (game) {
+            event.lockWait += System.nanoTime() - lockRequested;
+            if (game.isEvicted()) {
+                // Spilled between lookup and lock: retry against the rehydrated instance
+                requireRehydrated(gameId);
+                return applyPiece(gameId, move, username, event);
+            }
             validatePlayerIdentity(game, move.getPlayerId(), username);
+            if (isDuplicateCommand(game, move)) {
+                return CommandAck.Status.DUPLICATE;
+            }
             gameEngine.placePiece(game, move);
+            acceptCommand(game, move);
+            long now = clock.millis();
+            game.markActivity(now);
             // [NEW] Record Move
-            game.getHistory().add(
-                    new MoveRecord(move.getPlayerId(), "PIECE", move.getR(), move.getC(), System.currentTimeMillis()));
+            game.getHistory().add(move.getPlayerId(), "PIECE", move.getR(), move.getC(), now);
 
             if (game.getPhase() == GamePhase.GAME_OVER) {
                 handleGameOver(game);
             } else {
                 updateTimersAfterMove(game);
-                gamePersistenceService.saveGame(game);
+                save(game);
                 broadcastGameState(gameId);
             }
+            return CommandAck.Status.APPLIED;
+        }
+    }
+
+    private static void commitMove(GameMoveEvent event, String gameId, MoveRequest move, String type,
+            CommandAck.Status status) {
+        if (event.shouldCommit()) {
+            event.gameId = gameId;
+            event.playerId = move.getPlayerId();
+            event.moveType = type;
+            event.outcome = status.name();
+            event.commit();
+        }
+    }
+
+    // A retried command carries the clientSeq of its first attempt. Clients number
+    // commands on from the highest seq the server reports in their view, so a
+    // retry is recognised however the sends and acks interleaved.
+    private static boolean isDuplicateCommand(Game game, MoveRequest move) {
+        return move.getClientSeq() > 0 && game.isCommandApplied(move.getPlayerId(), move.getClientSeq());
+    }
+
+    private static void acceptCommand(Game game, MoveRequest move) {
+        if (move.getClientSeq() > 0) {
+            game.markCommandApplied(move.getPlayerId(), move.getClientSeq());
         }
     }
 
     private void updateTimersAfterMove(Game game) {
         if (game.getPhase() == GamePhase.AMBUSH) {
-            gameTimerService.scheduleAmbushTimer(game, 15, () -> handleAmbushTimeoutTask(game.getGameId()));
+            gameTimerService.scheduleAmbushTimer(game, 15,
+                    deadline -> handleAmbushTimeoutTask(game.getGameId(), deadline));
         } else if (game.getPhase() == GamePhase.PLACEMENT || game.getPhase() == GamePhase.EXTRA_ROUNDS) {
             String playerId = game.getCurrentTurnPlayerId();
-            gameTimerService.scheduleTurnTimer(game, playerId, 15, () -> handleTimeoutTask(game.getGameId(), playerId));
+            gameTimerService.scheduleTurnTimer(game, playerId, 15,
+                    deadline -> handleTimeoutTask(game.getGameId(), playerId, deadline));
         }
     }
 
+    private void save(Game game) {
+        gameMetrics.saveQueued();
+        gamePersistenceService.saveGame(game);
+    }
+
     private void handleGameOver(Game game) {
         GameResult result = game.getResult();
         if (result == null)
@@ -313,12 +1070,26 @@ public class GameService {
 
         gameTimerService.cancelTurnTimer(game);
 
-        // Use the new unified method for Elo calculation
-        userService.processGameResult(game);
-
-        gamePersistenceService.saveGame(game);
+        save(game);
         broadcastGameState(game.getGameId());
         cleanupGame(game.getGameId());
+
+        // Elo is applied asynchronously; rating deltas are broadcast once committed
+        ratingUpdatePipeline.submit(game);
+    }
+
+    /**
+     * Check that a game spilled under a command came back as a live game, so the
+     * command can be retried on it. A game that did not (a cancelled PRE_GAME, or
+     * one spilled again) is not retried.
+     *
+     * @throws IllegalStateException if there is no live game to retry on
+     */
+    private void requireRehydrated(String gameId) {
+        Game game = findGame(gameId);
+        if (game == null || game.isEvicted() || !GameLoadingCache.isLive(game)) {
+            throw new IllegalStateException("Game is no longer active: " + gameId);
+        }
     }
 
     private Game findGame(String gameId) {
@@ -326,11 +1097,15 @@ public class GameService {
         if (game != null)
             return game;
 
-        game = gamePersistenceService.loadGame(gameId);
-        if (game != null) {
-            activeGames.put(gameId, game);
-        }
-        return game;
+        // Misses go through the loading cache: single-flight, negative caching, and
+        // finished games stay out of activeGames
+        return gameLoadingCache.get(gameId, loaded -> {
+            Game adopted = adoptGame(loaded);
+            // A catch-up run here may end the game, which takes it out of the live map
+            // again; the command still gets this instance and sees the game is over
+            restoreTimers(adopted, Runnable::run);
+            return adopted;
+        });
     }
 
     private GameStateDTO mapToDTO(Game game) {
@@ -353,7 +1128,7 @@ public class GameService {
 
         dto.setStatusMessage(generateStatusMessage(game));
 
-        long now = System.currentTimeMillis();
+        long now = clock.millis();
         if (game.getPhase() == GamePhase.PRE_GAME) {
             long timeLeft = game.getConfirmationDeadline() == Long.MAX_VALUE ? -1
                     : Math.max(0, game.getConfirmationDeadline() - now);
@@ -366,6 +1141,9 @@ public class GameService {
                     game.getP2ActionDeadline() == Long.MAX_VALUE ? -1 : Math.max(0, game.getP2ActionDeadline() - now));
         }
 
+        dto.setP1CommandSeq(game.getP1CommandSeq());
+        dto.setP2CommandSeq(game.getP2CommandSeq());
+
         return dto;
     }
 
@@ -1,55 +1,86 @@
 package com.example.ninjaattack.service;
 
+import com.example.ninjaattack.diagnostics.GameTimerEvent;
 import com.example.ninjaattack.model.domain.Game;
 import org.springframework.scheduling.TaskScheduler;
 import org.springframework.stereotype.Service;
 
-import java.util.Date;
+import java.time.Clock;
+import java.time.Instant;
 import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongConsumer;
 
 @Service
 public class GameTimerService {
 
-    private final TaskScheduler taskScheduler;
+    static final String TURN = "TURN";
+    static final String AMBUSH = "AMBUSH";
+    static final String MATCH = "MATCH";
 
-    public GameTimerService(TaskScheduler taskScheduler) {
+    private final TaskScheduler taskScheduler;
+    private final GameMetrics gameMetrics;
+    private final Clock clock;
+
+    /**
+     * @param clock the time deadlines are computed from; must be the clock
+     *              {@code taskScheduler} fires against (a virtual-time scheduler
+     *              in simulations)
+     */
+    public GameTimerService(TaskScheduler taskScheduler, GameMetrics gameMetrics, Clock clock) {
         this.taskScheduler = taskScheduler;
+        this.gameMetrics = gameMetrics;
+        this.clock = clock;
     }
 
-    public void scheduleTurnTimer(Game game, String playerId, int seconds, Runnable onTimeout) {
+    /**
+     * @param onTimeout receives the deadline the timer was armed for, so the
+     *                  handler can tell a stale or repeated fire from a due one
+     */
+    public void scheduleTurnTimer(Game game, String playerId, int seconds, LongConsumer onTimeout) {
+        scheduleTurnTimerAt(game, playerId, clock.millis() + seconds * 1000L, onTimeout);
+    }
+
+    public void scheduleTurnTimerAt(Game game, String playerId, long deadline, LongConsumer onTimeout) {
         // Cancel existing timer first to avoid race conditions
         cancelTurnTimer(game);
 
-        long delayMs = seconds * 1000L;
-        Date startTime = new Date(System.currentTimeMillis() + delayMs);
-
-        // Schedule new timer
-        ScheduledFuture<?> future = taskScheduler.schedule(onTimeout, startTime);
+        // Schedule new timer at the stored deadline itself, so a punctual fire
+        // always passes the handler's now >= deadline check
+        ScheduledFuture<?> future = taskScheduler.schedule(
+                recorded(game.getGameId(), TURN, playerId, deadline, () -> onTimeout.accept(deadline)),
+                Instant.ofEpochMilli(deadline));
         game.setTurnTimer(future);
+        game.setTurnTimerKind(TURN);
 
         // Update model for frontend display
-        game.startTimer(playerId, seconds);
+        game.armTimer(playerId, deadline);
     }
 
-    public void scheduleAmbushTimer(Game game, int seconds, Runnable onTimeout) {
-        cancelTurnTimer(game);
+    public void scheduleAmbushTimer(Game game, int seconds, LongConsumer onTimeout) {
+        scheduleAmbushTimerAt(game, clock.millis() + seconds * 1000L, onTimeout);
+    }
 
-        long delayMs = seconds * 1000L;
-        Date startTime = new Date(System.currentTimeMillis() + delayMs);
+    public void scheduleAmbushTimerAt(Game game, long deadline, LongConsumer onTimeout) {
+        cancelTurnTimer(game);
 
-        ScheduledFuture<?> future = taskScheduler.schedule(onTimeout, startTime);
+        ScheduledFuture<?> future = taskScheduler.schedule(
+                recorded(game.getGameId(), AMBUSH, null, deadline, () -> onTimeout.accept(deadline)),
+                Instant.ofEpochMilli(deadline));
         game.setTurnTimer(future);
+        game.setTurnTimerKind(AMBUSH);
 
         // Set deadlines for BOTH players
-        game.startTimer("p1", seconds);
-        game.startTimer("p2", seconds);
+        game.armTimer("p1", deadline);
+        game.armTimer("p2", deadline);
     }
 
     public void scheduleMatchTimer(Game game, int seconds, Runnable onTimeout) {
         cancelMatchTimer(game);
 
-        Date startTime = new Date(System.currentTimeMillis() + seconds * 1000L);
-        ScheduledFuture<?> future = taskScheduler.schedule(onTimeout, startTime);
+        long fireAt = clock.millis() + seconds * 1000L;
+        ScheduledFuture<?> future = taskScheduler.schedule(
+                recorded(game.getGameId(), MATCH, null, fireAt, onTimeout), Instant.ofEpochMilli(fireAt));
         game.setMatchTimer(future);
     }
 
@@ -62,15 +93,66 @@ public class GameTimerService {
         ScheduledFuture<?> timer = game.getTurnTimer();
         if (timer != null && !timer.isDone()) {
             timer.cancel(false);
+            recordCancel(game.getGameId(), game.getTurnTimerKind(), timer);
+        }
+        game.setTurnTimer(null);
+        game.setTurnTimerKind(null);
+    }
+
+    /**
+     * Stop the scheduled tasks of a game without touching its deadlines, so the
+     * timers can be restored from them later (used when a game is spilled).
+     */
+    public void suspendTimers(Game game) {
+        ScheduledFuture<?> turnTimer = game.getTurnTimer();
+        if (turnTimer != null && !turnTimer.isDone()) {
+            turnTimer.cancel(false);
+            recordCancel(game.getGameId(), game.getTurnTimerKind(), turnTimer);
         }
         game.setTurnTimer(null);
+        game.setTurnTimerKind(null);
+        cancelMatchTimer(game);
     }
 
     public void cancelMatchTimer(Game game) {
         ScheduledFuture<?> timer = game.getMatchTimer();
         if (timer != null && !timer.isDone()) {
             timer.cancel(false);
+            recordCancel(game.getGameId(), MATCH, timer);
         }
         game.setMatchTimer(null);
     }
+
+    // Wraps a timeout so its lateness is measured and shows up in flight recordings
+    private Runnable recorded(String gameId, String timer, String playerId, long fireAt, Runnable onTimeout) {
+        return () -> {
+            GameTimerEvent event = new GameTimerEvent();
+            event.begin();
+            long lateness = clock.millis() - fireAt;
+            gameMetrics.timerLateness(timer, lateness);
+            try {
+                onTimeout.run();
+            } finally {
+                if (event.shouldCommit()) {
+                    event.gameId = gameId;
+                    event.timer = timer;
+                    event.action = "FIRE";
+                    event.playerId = playerId;
+                    event.lateness = lateness;
+                    event.commit();
+                }
+            }
+        };
+    }
+
+    private static void recordCancel(String gameId, String timer, ScheduledFuture<?> future) {
+        GameTimerEvent event = new GameTimerEvent();
+        if (event.shouldCommit()) {
+            event.gameId = gameId;
+            event.timer = timer;
+            event.action = "CANCEL";
+            event.lateness = -future.getDelay(TimeUnit.MILLISECONDS);
+            event.commit();
+        }
+    }
 }
@@ -0,0 +1,13 @@
+package com.example.ninjaattack.service;
+
+/**
+ * One broadcast state of a game as each player sees it, serialized once.
+ * Immutable, so it can be sent, buffered for resuming clients and re-sent
+ * without touching the game again.
+ */
+record GameViews(long seq, String p1Json, String p2Json) {
+
+    String forPlayer(String playerId) {
+        return "p1".equals(playerId) ? p1Json : p2Json;
+    }
+}
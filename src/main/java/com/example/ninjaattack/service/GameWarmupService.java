@@ -0,0 +1,61 @@
+package com.example.ninjaattack.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationStartedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Service;
+
+/**
+ * JIT warm-up before the node takes traffic: plays {@code game.warmup.games}
+ * synthetic games through {@link GameService#playWarmupGame()} so the engine,
+ * DTO mapping and serialization paths are compiled before the first real move.
+ * <p>
+ * Runs after startup recovery, on the same {@link ApplicationStartedEvent}.
+ * Spring Boot only switches readiness to ACCEPTING_TRAFFIC once these listeners
+ * have returned, so {@code /actuator/health/readiness} stays down until the
+ * warm-up is over and a rolling restart moves no players onto a cold node.
+ */
+@Service
+public class GameWarmupService {
+
+    private final GameService gameService;
+
+    @Value("${game.warmup.enabled:true}")
+    private boolean enabled;
+
+    @Value("${game.warmup.games:300}")
+    private int games;
+
+    // Upper bound on the delay added to startup, whatever the game count
+    @Value("${game.warmup.max-ms:15000}")
+    private long maxMillis;
+
+    public GameWarmupService(GameService gameService) {
+        this.gameService = gameService;
+    }
+
+    @EventListener(ApplicationStartedEvent.class)
+    @Order(GameService.RECOVERY_ORDER + 1)
+    public void warmUp() {
+        if (!enabled || games <= 0) {
+            return;
+        }
+        long start = System.currentTimeMillis();
+        long deadline = start + maxMillis;
+        int played = 0;
+        long moves = 0;
+        try {
+            while (played < games && System.currentTimeMillis() < deadline) {
+                moves += gameService.playWarmupGame();
+                played++;
+            }
+        } catch (Exception e) {
+            // A failed warm-up only costs latency; never keep the node from starting
+            System.err.println("JIT warm-up stopped: " + e.getMessage());
+            e.printStackTrace();
+        }
+        System.out.println("JIT warm-up: " + played + " games (" + moves + " moves) in "
+                + (System.currentTimeMillis() - start) + " ms.");
+    }
+}
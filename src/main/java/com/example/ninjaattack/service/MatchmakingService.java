@@ -16,15 +16,19 @@ public class MatchmakingService {
     private static class WaitingPlayer {
         private final Long userId; // 玩家的 UID (来自 User.id)
         private final String username; // 玩家的昵称 (用于消息发送和显示)
+        private final long joinedAt = System.currentTimeMillis(); // (新增) 入队时间, 用于统计等待时长
     }
 
     private final Queue<WaitingPlayer> waitingQueue = new ConcurrentLinkedQueue<>();
     private final GameService gameService;
     private final SimpMessagingTemplate messagingTemplate;
+    private final GameMetrics gameMetrics;
 
-    public MatchmakingService(GameService gameService, SimpMessagingTemplate messagingTemplate) {
+    public MatchmakingService(GameService gameService, SimpMessagingTemplate messagingTemplate,
+            GameMetrics gameMetrics) {
         this.gameService = gameService;
         this.messagingTemplate = messagingTemplate;
+        this.gameMetrics = gameMetrics;
     }
 
     /**
@@ -44,7 +48,9 @@ public class MatchmakingService {
         if (opponent == null) {
             System.out.println("玩家 " + username + " (ID: " + userId + ") 加入等待队列。");
             waitingQueue.add(new WaitingPlayer(userId, username));
+            gameMetrics.matchmakingJoined();
         } else {
+            gameMetrics.matchmakingLeft(System.currentTimeMillis() - opponent.getJoinedAt());
             // 匹配成功！
             System.out.println("匹配成功: " + username + " vs " + opponent.getUsername());
 
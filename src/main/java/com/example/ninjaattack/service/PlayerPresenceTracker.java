@@ -0,0 +1,136 @@
+package com.example.ninjaattack.service;
+
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.stereotype.Service;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+import org.springframework.web.socket.messaging.SessionSubscribeEvent;
+import org.springframework.web.socket.messaging.SessionUnsubscribeEvent;
+
+import java.security.Principal;
+import java.time.Clock;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Tracks, per game, which participants currently watch it: hold a subscription
+ * to its state queue ({@code /user/queue/game/{gameId}}), and since when the
+ * others have not. Presence is per game rather than per user, so a player who
+ * is only in the lobby or in another game does not keep this one alive.
+ */
+@Service
+public class PlayerPresenceTracker {
+
+    static final String GAME_STATE_PREFIX = "/user/queue/game/";
+
+    record Watch(String gameId, String username) {
+    }
+
+    // Session -> subscription id -> the game it watches
+    private final Map<String, Map<String, Watch>> watchesBySession = new ConcurrentHashMap<>();
+    // Watch -> "sessionId/subscriptionId" of its live subscriptions
+    private final Map<Watch, Set<String>> subscriptions = new ConcurrentHashMap<>();
+    private final Map<Watch, Long> absentSince = new ConcurrentHashMap<>();
+    private final Clock clock;
+    private final long startedAt;
+
+    public PlayerPresenceTracker(Clock clock) {
+        this.clock = clock;
+        this.startedAt = clock.millis();
+    }
+
+    @EventListener
+    public void onSubscribe(SessionSubscribeEvent event) {
+        SimpMessageHeaderAccessor headers = SimpMessageHeaderAccessor.wrap(event.getMessage());
+        Principal user = event.getUser();
+        String destination = headers.getDestination();
+        if (user == null || headers.getSessionId() == null || headers.getSubscriptionId() == null
+                || destination == null || !destination.startsWith(GAME_STATE_PREFIX)) {
+            return;
+        }
+        String gameId = destination.substring(GAME_STATE_PREFIX.length());
+        if (gameId.isEmpty() || gameId.contains("/")) {
+            return;
+        }
+        subscribed(headers.getSessionId(), headers.getSubscriptionId(), user.getName(), gameId);
+    }
+
+    @EventListener
+    public void onUnsubscribe(SessionUnsubscribeEvent event) {
+        SimpMessageHeaderAccessor headers = SimpMessageHeaderAccessor.wrap(event.getMessage());
+        if (headers.getSessionId() != null && headers.getSubscriptionId() != null) {
+            unsubscribed(headers.getSessionId(), headers.getSubscriptionId());
+        }
+    }
+
+    @EventListener
+    public void onDisconnect(SessionDisconnectEvent event) {
+        disconnected(event.getSessionId());
+    }
+
+    void subscribed(String sessionId, String subscriptionId, String username, String gameId) {
+        Watch watch = new Watch(gameId, username);
+        watchesBySession.computeIfAbsent(sessionId, id -> new ConcurrentHashMap<>()).put(subscriptionId, watch);
+        subscriptions.compute(watch, (key, subs) -> {
+            Set<String> updated = subs != null ? subs : ConcurrentHashMap.newKeySet();
+            updated.add(sessionId + "/" + subscriptionId);
+            absentSince.remove(key);
+            return updated;
+        });
+    }
+
+    void unsubscribed(String sessionId, String subscriptionId) {
+        Map<String, Watch> watches = watchesBySession.get(sessionId);
+        Watch watch = watches == null ? null : watches.remove(subscriptionId);
+        if (watch != null) {
+            release(watch, sessionId + "/" + subscriptionId);
+        }
+    }
+
+    void disconnected(String sessionId) {
+        Map<String, Watch> watches = watchesBySession.remove(sessionId);
+        if (watches != null) {
+            watches.forEach((subscriptionId, watch) -> release(watch, sessionId + "/" + subscriptionId));
+        }
+    }
+
+    private void release(Watch watch, String subscription) {
+        subscriptions.computeIfPresent(watch, (key, subs) -> {
+            subs.remove(subscription);
+            if (!subs.isEmpty()) {
+                return subs;
+            }
+            absentSince.put(key, clock.millis());
+            return null;
+        });
+    }
+
+    public boolean isWatching(String gameId, String username) {
+        return subscriptions.containsKey(new Watch(gameId, username));
+    }
+
+    /**
+     * Whether the user has not watched the game for at least {@code graceMillis}.
+     * A user not seen on the game since it went live here counts from then
+     * ({@code liveSince}, at the earliest startup), so new and recovered games
+     * get the full grace for their players to subscribe.
+     */
+    public boolean isAbsentFor(String gameId, String username, long liveSince, long graceMillis) {
+        Watch watch = new Watch(gameId, username);
+        if (subscriptions.containsKey(watch)) {
+            return false;
+        }
+        long since = absentSince.getOrDefault(watch, Math.max(startedAt, liveSince));
+        return clock.millis() - since >= graceMillis;
+    }
+
+    /**
+     * Forget absence timestamps older than {@code graceMillis}. A forgotten user
+     * falls back to the time the game went live, which at worst restarts the grace.
+     */
+    public void prune(long graceMillis) {
+        long cutoff = clock.millis() - graceMillis;
+        absentSince.values().removeIf(since -> since <= cutoff);
+    }
+}
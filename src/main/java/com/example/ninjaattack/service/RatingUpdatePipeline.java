@@ -0,0 +1,179 @@
+package com.example.ninjaattack.service;
+
+import com.example.ninjaattack.model.domain.Game;
+import com.example.ninjaattack.model.dto.RatingUpdateDTO;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Applies Elo updates for finished games off the game thread.
+ * <p>
+ * A single writer drains the queue in submission order, so updates for the same
+ * user are always applied in the order the games ended and two games finishing
+ * at once can no longer overwrite each other's rating. Games queued together are
+ * written in one transaction. Deltas are stored in the game result and broadcast
+ * on /topic/game/{gameId}/rating only after the transaction has committed.
+ * <p>
+ * The queue lives in memory only. A finished game stays marked as pending in
+ * its row until the write of its deltas lands, and the pending games are queued
+ * again on startup; the rating itself is recorded with the user rows, so a game
+ * that was already rated only gets its deltas written.
+ */
+@Service
+public class RatingUpdatePipeline {
+
+    private final UserService userService;
+    private final GamePersistenceService gamePersistenceService;
+    private final SimpMessagingTemplate messagingTemplate;
+    private final GameMetrics gameMetrics;
+
+    @Value("${rating.pipeline.batch-size:64}")
+    private int batchSize;
+
+    private final BlockingQueue<Game> queue = new LinkedBlockingQueue<>();
+    private final AtomicLong processedGames = new AtomicLong();
+    private final AtomicLong failedGames = new AtomicLong();
+    private volatile boolean running;
+    private Thread worker;
+
+    public RatingUpdatePipeline(UserService userService,
+            GamePersistenceService gamePersistenceService,
+            SimpMessagingTemplate messagingTemplate,
+            GameMetrics gameMetrics) {
+        this.userService = userService;
+        this.gamePersistenceService = gamePersistenceService;
+        this.messagingTemplate = messagingTemplate;
+        this.gameMetrics = gameMetrics;
+    }
+
+    @PostConstruct
+    public void start() {
+        running = true;
+        worker = new Thread(this::runLoop, "rating-pipeline");
+        worker.start();
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        worker.interrupt();
+        worker.join(5000);
+
+        // Flush whatever is left so no finished game loses its rating update
+        List<Game> remaining = new ArrayList<>();
+        queue.drainTo(remaining);
+        if (!remaining.isEmpty()) {
+            processBatch(remaining);
+        }
+    }
+
+    /**
+     * Queue a finished game for rating processing. Returns immediately.
+     */
+    public void submit(Game game) {
+        if (game.getResult() == null) {
+            return;
+        }
+        queue.add(game);
+    }
+
+    public int getQueueDepth() {
+        return queue.size();
+    }
+
+    public long getProcessedCount() {
+        return processedGames.get();
+    }
+
+    public long getFailedCount() {
+        return failedGames.get();
+    }
+
+    private void runLoop() {
+        requeuePending();
+        List<Game> batch = new ArrayList<>(batchSize);
+        while (running) {
+            try {
+                batch.add(queue.take());
+                queue.drainTo(batch, batchSize - 1);
+                long started = System.nanoTime();
+                processBatch(batch);
+                gameMetrics.ratingBatchProcessed(System.nanoTime() - started);
+            } catch (InterruptedException e) {
+                // Shutdown: stop() flushes anything still queued
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    /**
+     * Queue the finished games a previous run stopped rating: after GAME_OVER was
+     * stored but before the batch committed, or before the deltas were written.
+     */
+    private void requeuePending() {
+        try {
+            List<Game> pending = gamePersistenceService.loadRatingPendingGames();
+            if (!pending.isEmpty()) {
+                System.out.println("Re-queuing " + pending.size() + " finished games awaiting their rating");
+                pending.forEach(this::submit);
+            }
+        } catch (Exception e) {
+            System.err.println("Could not re-queue games awaiting their rating: " + e.getMessage());
+        }
+    }
+
+    private void processBatch(List<Game> batch) {
+        List<RatingUpdateDTO> updates;
+        try {
+            updates = userService.processGameResults(batch);
+        } catch (Exception e) {
+            // One bad game (e.g. a deleted user) must not block the others in its batch
+            System.err.println("Rating batch of " + batch.size() + " failed, retrying individually: " + e.getMessage());
+            for (Game game : batch) {
+                try {
+                    publish(List.of(game), userService.processGameResults(List.of(game)));
+                } catch (Exception single) {
+                    failedGames.incrementAndGet();
+                    System.err.println("Rating update failed for game " + game.getGameId() + ": "
+                            + single.getMessage());
+                }
+            }
+            return;
+        }
+        publish(batch, updates);
+    }
+
+    private void publish(List<Game> games, List<RatingUpdateDTO> updates) {
+        for (int i = 0; i < games.size(); i++) {
+            Game game = games.get(i);
+            RatingUpdateDTO update = updates.get(i);
+
+            synchronized (game) {
+                game.getResult().setP1RatingChange(update.getP1RatingChange());
+                game.getResult().setP2RatingChange(update.getP2RatingChange());
+                game.getResult().setRated(true);
+                // Serialized under the lock; the write itself is queued behind the game's saves
+                gameMetrics.saveQueued();
+                gamePersistenceService.saveGame(game);
+            }
+            try {
+                messagingTemplate.convertAndSend("/topic/game/" + game.getGameId() + "/rating", update);
+            } catch (Exception e) {
+                System.err.println("Rating broadcast failed for game " + game.getGameId() + ": " + e.getMessage());
+            }
+            processedGames.incrementAndGet();
+        }
+    }
+}
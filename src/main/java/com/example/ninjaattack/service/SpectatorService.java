@@ -0,0 +1,265 @@
+package com.example.ninjaattack.service;
+
+import com.example.ninjaattack.model.domain.Board;
+import com.example.ninjaattack.model.dto.GameStateDTO;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.stereotype.Service;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+import org.springframework.web.socket.messaging.SessionSubscribeEvent;
+import org.springframework.web.socket.messaging.SessionUnsubscribeEvent;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Spectator feeds on /topic/spectate/{gameId}.
+ * <p>
+ * The game thread only hands over the frozen state it already built for the
+ * players' broadcast, and only for games somebody is watching. A separate
+ * publisher thread then redacts it (no ambush positions), serializes it once,
+ * and sends it to all viewers at most every
+ * {@code spectator.snapshot-interval-ms}, optionally delayed by
+ * {@code spectator.delay-ms}. Viewer counts follow STOMP subscribe, unsubscribe
+ * and disconnect events.
+ */
+@Service
+public class SpectatorService {
+
+    public static final String TOPIC_PREFIX = "/topic/spectate/";
+
+    // Offered states kept per game while they wait out the delay
+    private static final int MAX_PENDING = 64;
+
+    private static class Feed {
+        private final AtomicInteger viewers = new AtomicInteger();
+        // Guarded by the feed: states offered but not yet published, oldest first
+        private final Deque<Pending> pending = new ArrayDeque<>();
+        private volatile String latestJson;
+        private long latestSeq;
+    }
+
+    private record Pending(long offeredAt, GameStateDTO state) {
+    }
+
+    private final SimpMessagingTemplate messagingTemplate;
+    private final ObjectMapper objectMapper;
+
+    @Value("${spectator.snapshot-interval-ms:1000}")
+    private long snapshotIntervalMillis;
+
+    @Value("${spectator.delay-ms:0}")
+    private long delayMillis;
+
+    private final Map<String, Feed> feeds = new ConcurrentHashMap<>();
+    // sessionId -> (subscriptionId -> gameId), to undo counts on unsubscribe/disconnect
+    private final Map<String, Map<String, String>> subscriptions = new ConcurrentHashMap<>();
+    private final AtomicLong snapshotsPublished = new AtomicLong();
+    private ScheduledExecutorService publisher;
+
+    public SpectatorService(SimpMessagingTemplate messagingTemplate, ObjectMapper objectMapper) {
+        this.messagingTemplate = messagingTemplate;
+        this.objectMapper = objectMapper;
+    }
+
+    @PostConstruct
+    public void start() {
+        publisher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "spectator-publisher");
+            t.setDaemon(true);
+            return t;
+        });
+        publisher.scheduleWithFixedDelay(this::publishDue, snapshotIntervalMillis, snapshotIntervalMillis,
+                TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        publisher.shutdownNow();
+    }
+
+    // --- Game thread side ---
+
+    public boolean isWatched(String gameId) {
+        Feed feed = feeds.get(gameId);
+        return feed != null && feed.viewers.get() > 0;
+    }
+
+    /**
+     * Queue a state for the spectators of its game. The state must not be
+     * modified afterwards. Cheap: no redaction or serialization happens here.
+     */
+    public void offer(String gameId, GameStateDTO state) {
+        Feed feed = feeds.get(gameId);
+        if (feed == null) {
+            return;
+        }
+        synchronized (feed) {
+            if (delayMillis <= 0) {
+                feed.pending.clear();
+            } else if (feed.pending.size() >= MAX_PENDING) {
+                feed.pending.pollFirst();
+            }
+            feed.pending.addLast(new Pending(System.currentTimeMillis(), state));
+        }
+    }
+
+    // --- Readers ---
+
+    public int getSpectatorCount(String gameId) {
+        Feed feed = feeds.get(gameId);
+        return feed == null ? 0 : feed.viewers.get();
+    }
+
+    public int getWatchedGameCount() {
+        return feeds.size();
+    }
+
+    /** Whether spectators see states only after {@code spectator.delay-ms}. */
+    public boolean isDelayed() {
+        return delayMillis > 0;
+    }
+
+    public long getSnapshotsPublished() {
+        return snapshotsPublished.get();
+    }
+
+    /**
+     * Last snapshot sent to the spectators of a game, already serialized, or null.
+     */
+    public String getLatestSnapshot(String gameId) {
+        Feed feed = feeds.get(gameId);
+        return feed == null ? null : feed.latestJson;
+    }
+
+    /**
+     * Serialize the spectator view of a state outside the feed (e.g. for a
+     * viewer joining before the next broadcast).
+     */
+    public String toSnapshot(GameStateDTO state) {
+        try {
+            return objectMapper.writeValueAsString(redact(state));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Cannot serialize spectator snapshot", e);
+        }
+    }
+
+    // --- Subscription tracking ---
+
+    @EventListener
+    public void onSubscribe(SessionSubscribeEvent event) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.wrap(event.getMessage());
+        String destination = accessor.getDestination();
+        if (destination == null || !destination.startsWith(TOPIC_PREFIX)) {
+            return;
+        }
+        String gameId = destination.substring(TOPIC_PREFIX.length());
+        String previous = subscriptions.computeIfAbsent(accessor.getSessionId(), id -> new ConcurrentHashMap<>())
+                .put(accessor.getSubscriptionId(), gameId);
+        if (previous == null) {
+            feeds.compute(gameId, (id, feed) -> {
+                Feed joined = feed != null ? feed : new Feed();
+                joined.viewers.incrementAndGet();
+                return joined;
+            });
+        }
+    }
+
+    @EventListener
+    public void onUnsubscribe(SessionUnsubscribeEvent event) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.wrap(event.getMessage());
+        Map<String, String> bySubscription = subscriptions.get(accessor.getSessionId());
+        if (bySubscription == null) {
+            return;
+        }
+        String gameId = bySubscription.remove(accessor.getSubscriptionId());
+        if (gameId != null) {
+            leave(gameId);
+        }
+    }
+
+    @EventListener
+    public void onDisconnect(SessionDisconnectEvent event) {
+        Map<String, String> bySubscription = subscriptions.remove(event.getSessionId());
+        if (bySubscription != null) {
+            bySubscription.values().forEach(this::leave);
+        }
+    }
+
+    private void leave(String gameId) {
+        feeds.computeIfPresent(gameId, (id, feed) -> feed.viewers.decrementAndGet() > 0 ? feed : null);
+    }
+
+    // --- Publisher thread ---
+
+    void publishDue() {
+        long cutoff = System.currentTimeMillis() - delayMillis;
+        for (Map.Entry<String, Feed> entry : feeds.entrySet()) {
+            try {
+                publish(entry.getKey(), entry.getValue(), cutoff);
+            } catch (Exception e) {
+                System.err.println("Spectator publish failed for game " + entry.getKey() + ": " + e.getMessage());
+            }
+        }
+    }
+
+    private void publish(String gameId, Feed feed, long cutoff) {
+        GameStateDTO due = null;
+        synchronized (feed) {
+            // Newest state old enough to show; anything older is superseded by it
+            while (!feed.pending.isEmpty() && feed.pending.peekFirst().offeredAt() <= cutoff) {
+                due = feed.pending.pollFirst().state();
+            }
+        }
+        if (due == null || due.getSeq() <= feed.latestSeq) {
+            return;
+        }
+        String json = toSnapshot(due);
+        feed.latestSeq = due.getSeq();
+        feed.latestJson = json;
+        messagingTemplate.convertAndSend(TOPIC_PREFIX + gameId, json);
+        snapshotsPublished.incrementAndGet();
+    }
+
+    private static GameStateDTO redact(GameStateDTO state) {
+        GameStateDTO view = new GameStateDTO();
+        view.setSeq(state.getSeq());
+        view.setGameId(state.getGameId());
+        view.setP1Username(state.getP1Username());
+        view.setP2Username(state.getP2Username());
+        view.setP1ExtraTurns(state.getP1ExtraTurns());
+        view.setP2ExtraTurns(state.getP2ExtraTurns());
+        view.setPhase(state.getPhase());
+        view.setCurrentRound(state.getCurrentRound());
+        view.setCurrentTurnPlayerId(state.getCurrentTurnPlayerId());
+        view.setStatusMessage(state.getStatusMessage());
+        view.setResult(state.getResult());
+        view.setP1AmbushesPlaced(state.getP1AmbushesPlaced());
+        view.setP2AmbushesPlaced(state.getP2AmbushesPlaced());
+        view.setP1TimeLeft(state.getP1TimeLeft());
+        view.setP2TimeLeft(state.getP2TimeLeft());
+        if (state.getBoard() != null) {
+            Board board = state.getBoard().copy();
+            for (int r = 0; r < 6; r++) {
+                for (int c = 0; c < 6; c++) {
+                    board.getSquare(r, c).clearAmbushes();
+                }
+            }
+            view.setBoard(board);
+        }
+        return view;
+    }
+}
@@ -0,0 +1,65 @@
+package com.example.ninjaattack.service;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Safety net for game timers: periodically looks for turn and ambush deadlines
+ * that passed {@code game.timer.watchdog.grace-ms} ago without the timer having
+ * applied the timeout, counts them in {@code game.timer.missed} and applies the
+ * timeout itself.
+ * <p>
+ * Sweeps run on a thread of their own, not on the task scheduler: a scheduler
+ * whose thread is stuck or saturated is exactly what starves the timers, and
+ * would starve a {@code @Scheduled} watchdog along with them.
+ */
+@Service
+public class TimerWatchdogService {
+
+    private final GameService gameService;
+    private final boolean enabled;
+    private final long graceMillis;
+    private final ScheduledExecutorService sweeper;
+
+    public TimerWatchdogService(GameService gameService,
+            @Value("${game.timer.watchdog.enabled:true}") boolean enabled,
+            @Value("${game.timer.watchdog.grace-ms:3000}") long graceMillis,
+            @Value("${game.timer.watchdog.interval-ms:5000}") long intervalMillis) {
+        this.gameService = gameService;
+        this.enabled = enabled;
+        this.graceMillis = graceMillis;
+        this.sweeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "timer-watchdog");
+            t.setDaemon(true);
+            return t;
+        });
+        if (enabled) {
+            sweeper.scheduleWithFixedDelay(this::sweep, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    public void sweep() {
+        if (!enabled || !gameService.isRecoveryComplete()) {
+            return;
+        }
+        try {
+            int recovered = gameService.recoverMissedTimeouts(graceMillis);
+            if (recovered > 0) {
+                System.err.println("Timer watchdog recovered " + recovered + " missed timeouts");
+            }
+        } catch (Exception e) {
+            System.err.println("Timer watchdog failed: " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        sweeper.shutdownNow();
+    }
+}
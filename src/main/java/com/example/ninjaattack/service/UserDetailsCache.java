@@ -0,0 +1,213 @@
+package com.example.ninjaattack.service;
+
+import com.example.ninjaattack.model.domain.User;
+import com.example.ninjaattack.repository.UserRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Size- and time-bounded cache of users in front of {@link UserRepository}.
+ * <p>
+ * Entries are kept in LRU order and expire after {@code user.cache.ttl-seconds}.
+ * The cache stores detached snapshots and always hands out copies, so callers
+ * may mutate the returned {@link User} without corrupting the cached value.
+ * <p>
+ * A miss is filled with the row it read only if no write went through the cache
+ * while it was reading, so a slow reader can never put back a score older than
+ * one a committed write already cached.
+ */
+@Service
+public class UserDetailsCache {
+
+    private static class Entry {
+        private final User user;
+        private final long loadedAt;
+
+        Entry(User user, long loadedAt) {
+            this.user = user;
+            this.loadedAt = loadedAt;
+        }
+    }
+
+    private final UserRepository userRepository;
+    private final int maxSize;
+    private final long ttlMillis;
+
+    // Access-ordered map: iteration order is least-recently-used first
+    private final LinkedHashMap<String, Entry> entries;
+
+    // Bumped under the entries lock by every write and invalidation
+    private long generation;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong expirations = new AtomicLong();
+
+    public UserDetailsCache(UserRepository userRepository,
+            @Value("${user.cache.max-size:10000}") int maxSize,
+            @Value("${user.cache.ttl-seconds:300}") long ttlSeconds) {
+        this.userRepository = userRepository;
+        this.maxSize = maxSize;
+        this.ttlMillis = ttlSeconds * 1000L;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                if (size() > UserDetailsCache.this.maxSize) {
+                    evictions.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Look up a user, loading it from the repository on a miss.
+     * Unknown usernames are not cached.
+     */
+    public Optional<User> findByUsername(String username) {
+        User cached = getIfPresent(username);
+        if (cached != null) {
+            hits.incrementAndGet();
+            return Optional.of(cached);
+        }
+
+        misses.incrementAndGet();
+        long seen = currentGeneration();
+        Optional<User> loaded = userRepository.findByUsername(username);
+        // A read-write transaction may read its own uncommitted changes: leave those out
+        if (!TransactionSynchronizationManager.isActualTransactionActive()
+                || TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            loaded.ifPresent(user -> fill(copyOf(user), seen));
+        }
+        return loaded.map(UserDetailsCache::copyOf);
+    }
+
+    /**
+     * Write-through: replace the cached snapshot of a user. When called inside a
+     * transaction the update is deferred until commit, so a rollback never leaves
+     * uncommitted values in the cache.
+     */
+    public void put(User user) {
+        if (user == null || user.getUsername() == null) {
+            return;
+        }
+        User snapshot = copyOf(user);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            // Drop the current entry now; readers fall through to the DB until commit
+            invalidate(user.getUsername());
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    store(snapshot);
+                }
+            });
+        } else {
+            store(snapshot);
+        }
+    }
+
+    public void invalidate(String username) {
+        synchronized (entries) {
+            generation++;
+            entries.remove(username);
+        }
+    }
+
+    public void invalidateAll() {
+        synchronized (entries) {
+            generation++;
+            entries.clear();
+        }
+    }
+
+    // --- Metrics ---
+
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    public long getEvictionCount() {
+        return evictions.get();
+    }
+
+    public long getExpirationCount() {
+        return expirations.get();
+    }
+
+    public double getHitRate() {
+        long h = hits.get();
+        long total = h + misses.get();
+        return total == 0 ? 0.0 : (double) h / total;
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    // --- Internals ---
+
+    private User getIfPresent(String username) {
+        synchronized (entries) {
+            Entry entry = entries.get(username);
+            if (entry == null) {
+                return null;
+            }
+            if (System.currentTimeMillis() - entry.loadedAt >= ttlMillis) {
+                entries.remove(username);
+                expirations.incrementAndGet();
+                return null;
+            }
+            return copyOf(entry.user);
+        }
+    }
+
+    private void store(User snapshot) {
+        synchronized (entries) {
+            generation++;
+            entries.put(snapshot.getUsername(), new Entry(snapshot, System.currentTimeMillis()));
+        }
+    }
+
+    /**
+     * Cache a row read on a miss, unless a write or invalidation happened since
+     * {@code seen}: the row may then be older than what that write cached, or
+     * than the row it is about to commit.
+     */
+    private void fill(User snapshot, long seen) {
+        synchronized (entries) {
+            if (generation == seen) {
+                entries.put(snapshot.getUsername(), new Entry(snapshot, System.currentTimeMillis()));
+            }
+        }
+    }
+
+    private long currentGeneration() {
+        synchronized (entries) {
+            return generation;
+        }
+    }
+
+    private static User copyOf(User source) {
+        User copy = new User(source.getUsername(), source.getPassword(), source.getScore());
+        copy.setId(source.getId());
+        copy.setGamesPlayed(source.getGamesPlayed());
+        copy.setRole(source.getRole());
+        copy.setAvatar(source.getAvatar());
+        return copy;
+    }
+}
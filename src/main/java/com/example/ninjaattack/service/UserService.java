@@ -2,8 +2,11 @@ package com.example.ninjaattack.service;
 
 import com.example.ninjaattack.model.domain.User;
 import com.example.ninjaattack.model.dto.GameHistoryDTO;
+import com.example.ninjaattack.model.dto.RatingUpdateDTO;
 import com.example.ninjaattack.model.entity.GameEntity;
+import com.example.ninjaattack.model.entity.RatedGame;
 import com.example.ninjaattack.repository.GameRepository;
+import com.example.ninjaattack.repository.RatedGameRepository;
 import com.example.ninjaattack.repository.UserRepository;
 import org.springframework.context.annotation.Lazy;
 import org.springframework.security.core.userdetails.UserDetails;
@@ -12,8 +15,14 @@ import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
 
 @Service
@@ -22,22 +31,38 @@ public class UserService implements UserDetailsService {
 
     private final UserRepository userRepository;
     private final GameRepository gameRepository;
+    private final RatedGameRepository ratedGameRepository;
+    private final GamePersistenceService gamePersistenceService;
     private final PasswordEncoder passwordEncoder;
     private final EloRatingService eloRatingService;
+    private final UserDetailsCache userCache;
+
+    // Bumped after every committed change to a user row, so clients can revalidate
+    // the leaderboard without it being queried. The start time keeps versions
+    // from different nodes or runs from ever matching.
+    private final long leaderboardEpoch = System.currentTimeMillis();
+    private final AtomicLong leaderboardVersion = new AtomicLong();
+    private volatile long leaderboardChangedAt = leaderboardEpoch;
 
     public UserService(UserRepository userRepository, GameRepository gameRepository,
+            RatedGameRepository ratedGameRepository,
+            GamePersistenceService gamePersistenceService,
             @Lazy PasswordEncoder passwordEncoder,
-            EloRatingService eloRatingService) {
+            EloRatingService eloRatingService,
+            UserDetailsCache userCache) {
         this.userRepository = userRepository;
         this.gameRepository = gameRepository;
+        this.ratedGameRepository = ratedGameRepository;
+        this.gamePersistenceService = gamePersistenceService;
         this.passwordEncoder = passwordEncoder;
         this.eloRatingService = eloRatingService;
+        this.userCache = userCache;
     }
 
     @Override
     @Transactional(readOnly = true)
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
-        return userRepository.findByUsername(username)
+        return userCache.findByUsername(username)
                 .orElseThrow(() -> new UsernameNotFoundException("未找到用户: " + username));
     }
 
@@ -47,7 +72,19 @@ public class UserService implements UserDetailsService {
         }
         String encodedPassword = passwordEncoder.encode(password);
         User newUser = new User(username, encodedPassword, 1200);
-        return userRepository.save(newUser);
+        User saved = userRepository.save(newUser);
+        userCache.put(saved);
+        leaderboardChanged();
+        return saved;
+    }
+
+    /**
+     * Drop a user from the cache, e.g. after the row was changed outside this
+     * service.
+     */
+    public void evictCachedUser(String username) {
+        userCache.invalidate(username);
+        leaderboardChanged();
     }
 
     @Transactional(readOnly = true)
@@ -56,50 +93,95 @@ public class UserService implements UserDetailsService {
     }
 
     /**
-     * Process game result using optimized Elo rating system.
-     * Updates scores and gamesPlayed for both users.
+     * Opaque version of the leaderboard contents. Read it before the leaderboard
+     * itself: a change committing in between then only makes the version older
+     * than the data, never newer.
      */
-    public void processGameResult(com.example.ninjaattack.model.domain.Game game) {
-        String p1Username = game.getP1().getUsername();
-        String p2Username = game.getP2().getUsername();
-
-        User p1 = userRepository.findByUsername(p1Username)
-                .orElseThrow(() -> new UsernameNotFoundException("Player 1 not found: " + p1Username));
-        User p2 = userRepository.findByUsername(p2Username)
-                .orElseThrow(() -> new UsernameNotFoundException("Player 2 not found: " + p2Username));
-
-        // Determine actual scores
-        double p1ActualScore = eloRatingService.getActualScore("p1", game.getResult());
-        double p2ActualScore = eloRatingService.getActualScore("p2", game.getResult());
-
-        // Determine first mover
-        boolean p1IsFirst = "p1".equals(game.getFirstMovePlayerId());
-
-        // Calculate new ratings
-        int p1NewRating = eloRatingService.calculateNewRating(p1.getScore(), p2.getScore(), p1ActualScore, p1IsFirst,
-                p1.getGamesPlayed());
-        int p2NewRating = eloRatingService.calculateNewRating(p2.getScore(), p1.getScore(), p2ActualScore, !p1IsFirst,
-                p2.getGamesPlayed());
-
-        // Save rating changes to GameResult
-        int p1Change = p1NewRating - p1.getScore();
-        int p2Change = p2NewRating - p2.getScore();
-        game.getResult().setP1RatingChange(p1Change);
-        game.getResult().setP2RatingChange(p2Change);
-
-        // Update users
-        p1.setScore(p1NewRating);
-        p1.setGamesPlayed(p1.getGamesPlayed() + 1);
-
-        p2.setScore(p2NewRating);
-        p2.setGamesPlayed(p2.getGamesPlayed() + 1);
-
-        userRepository.save(p1);
-        userRepository.save(p2);
+    public String getLeaderboardVersion() {
+        return Long.toString(leaderboardEpoch, 36) + "-" + leaderboardVersion.get();
+    }
+
+    public long getLeaderboardChangedAt() {
+        return leaderboardChangedAt;
+    }
+
+    /**
+     * Apply the Elo results of a batch of finished games in the given order.
+     * Each user is read once and written once per batch, so several games by
+     * the same player are chained on the in-memory value instead of racing on
+     * the row. Users are read from the database, locked, never from the user
+     * cache, whose copy may be older than the row. The games themselves are not
+     * modified; the caller applies the returned deltas once this transaction has
+     * committed.
+     * <p>
+     * Each rated game is recorded in {@link RatedGame} in this same transaction.
+     * A game submitted again (re-queued after a restart, or twice) is not rated
+     * again: it gets the changes recorded the first time.
+     */
+    public List<RatingUpdateDTO> processGameResults(List<com.example.ninjaattack.model.domain.Game> games) {
+        Map<String, User> touched = new LinkedHashMap<>();
+        Map<String, RatedGame> rated = new LinkedHashMap<>();
+        List<RatingUpdateDTO> updates = new ArrayList<>(games.size());
+
+        for (com.example.ninjaattack.model.domain.Game game : games) {
+            String p1Username = game.getP1().getUsername();
+            String p2Username = game.getP2().getUsername();
+
+            User p1 = touched.computeIfAbsent(p1Username, name -> userRepository.findForUpdateByUsername(name)
+                    .orElseThrow(() -> new UsernameNotFoundException("Player 1 not found: " + name)));
+            User p2 = touched.computeIfAbsent(p2Username, name -> userRepository.findForUpdateByUsername(name)
+                    .orElseThrow(() -> new UsernameNotFoundException("Player 2 not found: " + name)));
+
+            // Checked with the players locked, so a rating of this game committing
+            // elsewhere meanwhile is seen here
+            RatedGame applied = rated.get(game.getGameId());
+            if (applied == null) {
+                applied = ratedGameRepository.findById(game.getGameId()).orElse(null);
+            }
+            if (applied != null) {
+                updates.add(new RatingUpdateDTO(game.getGameId(), p1Username, p2Username,
+                        applied.getP1RatingChange(), applied.getP2RatingChange(),
+                        applied.getP1NewRating(), applied.getP2NewRating()));
+                continue;
+            }
+
+            // Determine actual scores
+            double p1ActualScore = eloRatingService.getActualScore("p1", game.getResult());
+            double p2ActualScore = eloRatingService.getActualScore("p2", game.getResult());
+
+            // Determine first mover
+            boolean p1IsFirst = "p1".equals(game.getFirstMovePlayerId());
+
+            // Calculate new ratings
+            int p1NewRating = eloRatingService.calculateNewRating(p1.getScore(), p2.getScore(), p1ActualScore,
+                    p1IsFirst, p1.getGamesPlayed());
+            int p2NewRating = eloRatingService.calculateNewRating(p2.getScore(), p1.getScore(), p2ActualScore,
+                    !p1IsFirst, p2.getGamesPlayed());
+
+            updates.add(new RatingUpdateDTO(game.getGameId(), p1Username, p2Username,
+                    p1NewRating - p1.getScore(), p2NewRating - p2.getScore(), p1NewRating, p2NewRating));
+            rated.put(game.getGameId(), new RatedGame(game.getGameId(), p1NewRating - p1.getScore(),
+                    p2NewRating - p2.getScore(), p1NewRating, p2NewRating));
+
+            // Update users
+            p1.setScore(p1NewRating);
+            p1.setGamesPlayed(p1.getGamesPlayed() + 1);
+
+            p2.setScore(p2NewRating);
+            p2.setGamesPlayed(p2.getGamesPlayed() + 1);
+        }
+
+        for (User saved : userRepository.saveAll(touched.values())) {
+            userCache.put(saved);
+        }
+        ratedGameRepository.saveAll(rated.values());
+        leaderboardChanged();
+        return updates;
     }
 
     public void updateAvatar(String username, String avatarName) {
-        User user = userRepository.findByUsername(username)
+        // Saved as a whole row, so it must not start from a cached (older) score
+        User user = userRepository.findForUpdateByUsername(username)
                 .orElseThrow(() -> new UsernameNotFoundException("User not found: " + username));
 
         // Simple validation to ensure it's one of the allowed avatars
@@ -108,7 +190,27 @@ public class UserService implements UserDetailsService {
         }
 
         user.setAvatar(avatarName);
-        userRepository.save(user);
+        userCache.put(userRepository.save(user));
+        leaderboardChanged();
+    }
+
+    // Deferred to commit like the user cache, so no reader sees the new version with the old rows
+    private void leaderboardChanged() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    bumpLeaderboardVersion();
+                }
+            });
+        } else {
+            bumpLeaderboardVersion();
+        }
+    }
+
+    private void bumpLeaderboardVersion() {
+        leaderboardChangedAt = System.currentTimeMillis();
+        leaderboardVersion.incrementAndGet();
     }
 
     @Transactional(readOnly = true)
@@ -131,7 +233,9 @@ public class UserService implements UserDetailsService {
                     boolean isP1 = username.equals(game.getP1Username());
                     dto.setOpponentName(isP1 ? game.getP2Username() : game.getP1Username());
 
-                    if (game.getGameStateJson() == null || game.getGameStateJson().isEmpty()) {
+                    // Archived games keep their row; the JSON comes from the archive
+                    String json = gamePersistenceService.readJson(game);
+                    if (json == null || json.isEmpty()) {
                         dto.setResult("数据丢失");
                         return dto;
                     }
@@ -142,7 +246,7 @@ public class UserService implements UserDetailsService {
                                 com.fasterxml.jackson.databind.DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES,
                                 false);
 
-                        com.example.ninjaattack.model.domain.Game domainGame = mapper.readValue(game.getGameStateJson(),
+                        com.example.ninjaattack.model.domain.Game domainGame = mapper.readValue(json,
                                 com.example.ninjaattack.model.domain.Game.class);
 
                         if (domainGame != null && domainGame.getResult() != null) {
@@ -165,11 +269,8 @@ public class UserService implements UserDetailsService {
                         }
                     } catch (Exception e) {
                         System.err.println("DEBUG: Error parsing game " + game.getId() + ": " + e.getMessage());
-                        if (game.getGameStateJson() != null) {
-                            System.err.println("DEBUG: Failed JSON content (first 500 chars): " +
-                                    game.getGameStateJson().substring(0,
-                                            Math.min(game.getGameStateJson().length(), 500)));
-                        }
+                        System.err.println("DEBUG: Failed JSON content (first 500 chars): " +
+                                json.substring(0, Math.min(json.length(), 500)));
                         dto.setResult("数据损坏");
                     }
 
@@ -13,5 +13,12 @@ export const GamePhase = {
 export const API_ENDPOINTS = {
     READY: (gameId) => `/app/game/${gameId}/ready`,
     AMBUSH: (gameId) => `/app/game/${gameId}/ambush`,
-    PLACE: (gameId) => `/app/game/${gameId}/place`
+    PLACE: (gameId) => `/app/game/${gameId}/place`,
+    ACK: (gameId) => `/user/queue/game-ack/${gameId}`,
+    // 每个玩家只收到自己视角的状态 (对手伏兵已隐藏)
+    GAME_STATE: (gameId) => `/user/queue/game/${gameId}`
 };
+
+// (新增) 落子/伏兵未收到回执时的重试策略 (服务器按 clientSeq 去重, 重试是安全的)
+export const COMMAND_RETRY_MS = 1500;
+export const COMMAND_MAX_ATTEMPTS = 4;
@@ -1,7 +1,7 @@
 import { UI, initUI } from '../core/ui.js';
 import { handleLogout, checkLoginStatus, fetchActiveGame } from '../core/api.js';
-import { connectMasterWebSocket, disconnectMasterWebSocket } from '../managers/lobby-manager.js';
-import { initGameControls, restoreGame } from '../managers/game-setup.js';
+import { connectMasterWebSocket, disconnectMasterWebSocket, onWebSocketReconnect } from '../managers/lobby-manager.js';
+import { initGameControls, restoreGame, resumeGame } from '../managers/game-setup.js';
 
 document.addEventListener('DOMContentLoaded', () => {
     try {
@@ -48,6 +48,7 @@ async function onLoginSuccess(user) {
         if (activeGame) {
             console.log("正在恢复游戏...", activeGame);
             restoreGame(stompClient, activeGame, user, onReturnToLobby);
+            onWebSocketReconnect(resumeGame);
         } else {
             console.log("无活跃游戏，返回大厅。");
             window.location.href = 'lobby.html';
@@ -1,5 +1,5 @@
 import { UI } from '../core/ui.js';
-import { PLAYER_1, PLAYER_2, GamePhase, API_ENDPOINTS } from '../core/constants.js';
+import { PLAYER_1, PLAYER_2, GamePhase, API_ENDPOINTS, COMMAND_RETRY_MS, COMMAND_MAX_ATTEMPTS } from '../core/constants.js';
 
 export class GameManager {
     constructor() {
@@ -13,6 +13,10 @@ export class GameManager {
         this.localTimerInterval = null;
         this.matchConfirmTimerInterval = null;
         this.onGameOverCallback = null;
+        this.lastSeq = 0; // (新增) 最后收到的广播序号
+        this.commandSeq = 0; // (新增) 最后发送的命令序号 (从服务器下发的 commandSeq 往后编号)
+        this.pendingCommands = new Map(); // clientSeq -> 等待回执的命令
+        this.ackSubscription = null;
     }
 
     init(client, matchResult, onLobbyReturn) {
@@ -64,6 +68,8 @@ export class GameManager {
         }
 
         console.log(`Game Restored: ID=${this.gameId}, Role=${this.myPlayerId}`);
+        this.lastSeq = gameState.seq || 0;
+        this.seedCommandSeq(gameState);
 
         UI.hideMatchFoundModal();
         this.stopMatchConfirmTimer();
@@ -74,13 +80,63 @@ export class GameManager {
     }
 
     subscribeToGame() {
-        if (this.subscription) this.subscription.unsubscribe();
-        this.subscription = this.stompClient.subscribe('/topic/game/' + this.gameId, (msg) => {
-            this.handleGameMessage(JSON.parse(msg.body));
+        if (this.stompClient.connected) {
+            [this.subscription, this.ackSubscription].forEach(sub => {
+                try { if (sub) sub.unsubscribe(); } catch (e) { /* 旧连接已断开 */ }
+            });
+        }
+        this.subscription = this.stompClient.subscribe(API_ENDPOINTS.GAME_STATE(this.gameId), (msg) => {
+            this.acceptBroadcast(JSON.parse(msg.body));
+        });
+        this.ackSubscription = this.stompClient.subscribe(API_ENDPOINTS.ACK(this.gameId), (msg) => {
+            this.handleAck(JSON.parse(msg.body));
         });
     }
 
+    // (新增) 按序号去重: 重连补发与实时推送可能重叠
+    acceptBroadcast(state) {
+        if (state.seq) {
+            if (state.seq <= this.lastSeq) return;
+            this.lastSeq = state.seq;
+        }
+        this.handleGameMessage(state);
+    }
+
+    // (新增) 断线重连后: 重新订阅，然后只补齐错过的广播 (太久则服务器返回完整快照)
+    resume(client) {
+        if (!this.gameId) return;
+        this.stompClient = client;
+        this.subscribeToGame();
+
+        fetch(`/api/game/${this.gameId}/resume?since=${this.lastSeq}`)
+            .then(res => {
+                if (!res.ok) throw new Error('Resume failed: ' + res.status);
+                return res.json();
+            })
+            .then(resume => {
+                if (resume.snapshot) {
+                    const snapshot = resume.events[0];
+                    // 订阅后已收到更新的推送时, 快照反而是旧的
+                    if (snapshot.seq >= this.lastSeq) {
+                        this.lastSeq = snapshot.seq;
+                        this.handleGameMessage(snapshot);
+                    }
+                } else {
+                    resume.events.forEach(event => this.acceptBroadcast(event));
+                }
+            })
+            .catch(err => console.error(err));
+    }
+
+    // 服务器在每个视图中带回本玩家已应用的最大命令序号; 刷新页面后从这里继续编号
+    seedCommandSeq(state) {
+        if (state.commandSeq > this.commandSeq) {
+            this.commandSeq = state.commandSeq;
+        }
+    }
+
     handleGameMessage(state) {
+        this.seedCommandSeq(state);
         if (state.phase === GamePhase.MATCH_CANCELLED) {
             this.stopMatchConfirmTimer();
             UI.hideMatchFoundModal();
@@ -177,7 +233,46 @@ export class GameManager {
             return;
         }
 
-        this.stompClient.send(url, {}, JSON.stringify(body));
+        this.sendCommand(url, body);
+    }
+
+    // (新增) 带序号发送命令, 未收到回执则按相同序号重发
+    sendCommand(url, body) {
+        // 不依赖本机时钟: 在服务器下发的序号之后递增
+        const clientSeq = this.commandSeq + 1;
+        this.commandSeq = clientSeq;
+        this.pendingCommands.set(clientSeq, {
+            url: url,
+            payload: JSON.stringify({ ...body, clientSeq: clientSeq }),
+            attempts: 0,
+            timer: null
+        });
+        this.transmitCommand(clientSeq);
+    }
+
+    transmitCommand(clientSeq) {
+        const command = this.pendingCommands.get(clientSeq);
+        if (!command) return;
+        if (command.attempts >= COMMAND_MAX_ATTEMPTS) {
+            console.warn(`Command ${clientSeq} not acknowledged, giving up`);
+            this.pendingCommands.delete(clientSeq);
+            return;
+        }
+        command.attempts++;
+        if (this.stompClient && this.stompClient.connected) {
+            this.stompClient.send(command.url, {}, command.payload);
+        }
+        command.timer = setTimeout(() => this.transmitCommand(clientSeq), COMMAND_RETRY_MS);
+    }
+
+    handleAck(ack) {
+        const command = this.pendingCommands.get(ack.clientSeq);
+        if (!command) return;
+        clearTimeout(command.timer);
+        this.pendingCommands.delete(ack.clientSeq);
+        if (ack.status === 'REJECTED') {
+            console.warn(`Command ${ack.clientSeq} rejected: ${ack.message}`);
+        }
     }
 
     startMatchConfirmTimer() {
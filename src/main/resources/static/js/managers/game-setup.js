@@ -11,6 +11,10 @@ export function restoreGame(client, gameState, user, onLobbyReturn) {
     gameManager.restore(client, gameState, user, onLobbyReturn);
 }
 
+export function resumeGame(client) {
+    gameManager.resume(client);
+}
+
 export function initGameControls() {
     UI.boardElement.addEventListener('click', (e) => {
         const square = e.target.closest('.square');
@@ -3,6 +3,13 @@ import { initGame } from './game-setup.js';
 
 let stompClient = null;
 let currentUserId = null;
+let reconnectTimer = null;
+const reconnectListeners = [];
+
+// (新增) 连接意外断开并重连成功后回调 (例如对局页面用来补齐漏掉的消息)
+export function onWebSocketReconnect(listener) {
+    reconnectListeners.push(listener);
+}
 
 export function connectMasterWebSocket(user, onLobbyReturnCallback) {
     return new Promise((resolve, reject) => {
@@ -14,43 +21,73 @@ export function connectMasterWebSocket(user, onLobbyReturnCallback) {
             return;
         }
 
-        let socket = new SockJS('/ws');
-        stompClient = Stomp.over(socket);
+        openConnection(resolve, reject);
+    });
+}
 
-        stompClient.debug = (str) => {
-            console.log(new Date().toLocaleTimeString() + ' STOMP: ' + str);
-        };
+function openConnection(onConnected, onFailed) {
+    let socket = new SockJS('/ws');
+    const client = Stomp.over(socket);
+    stompClient = client;
+    let established = false;
 
-        stompClient.connect({}, (frame) => {
-            console.log('WebSocket 主连接已建立: ' + frame);
+    client.debug = (str) => {
+        console.log(new Date().toLocaleTimeString() + ' STOMP: ' + str);
+    };
 
-            const privateQueue = '/queue/matchmaking-' + currentUserId;
-            console.log("正在订阅私人队列: " + privateQueue);
+    client.connect({}, (frame) => {
+        established = true;
+        console.log('WebSocket 主连接已建立: ' + frame);
 
-            stompClient.subscribe(privateQueue, (message) => {
-                console.log("Match found! Redirecting to game...");
-                window.location.href = 'game.html';
-            });
+        const privateQueue = '/queue/matchmaking-' + currentUserId;
+        console.log("正在订阅私人队列: " + privateQueue);
 
-            if (UI.lobbyStatus) UI.lobbyStatus.textContent = "已连接到服务器，请寻找对战。";
-            if (UI.findMatchBtn) UI.findMatchBtn.disabled = false;
+        client.subscribe(privateQueue, (message) => {
+            console.log("Match found! Redirecting to game...");
+            window.location.href = 'game.html';
+        });
 
-            resolve(stompClient);
+        if (UI.lobbyStatus) UI.lobbyStatus.textContent = "已连接到服务器，请寻找对战。";
+        if (UI.findMatchBtn) UI.findMatchBtn.disabled = false;
 
-        }, (error) => {
-            console.error('WebSocket 连接失败:', error);
-            if (UI.lobbyStatus) UI.lobbyStatus.textContent = "连接服务器失败，请刷新页面重试。";
-            if (UI.findMatchBtn) UI.findMatchBtn.disabled = true;
-            reject(error);
-        });
+        onConnected(client);
+
+    }, (error) => {
+        console.error('WebSocket 连接失败:', error);
+        if (UI.lobbyStatus) UI.lobbyStatus.textContent = "连接服务器失败，请刷新页面重试。";
+        if (UI.findMatchBtn) UI.findMatchBtn.disabled = true;
+
+        if (!established) {
+            if (onFailed) onFailed(error);
+            return;
+        }
+        // (新增) 已建立的连接断开: 自动重连 (除非是主动登出)
+        if (stompClient === client && currentUserId !== null) {
+            scheduleReconnect();
+        }
     });
 }
 
+function scheduleReconnect() {
+    if (reconnectTimer) return;
+    reconnectTimer = setTimeout(() => {
+        reconnectTimer = null;
+        console.log("正在重新连接 WebSocket...");
+        openConnection(
+            (client) => reconnectListeners.forEach(listener => listener(client)),
+            () => scheduleReconnect());
+    }, 2000);
+}
+
 export function disconnectMasterWebSocket() {
+    if (reconnectTimer) {
+        clearTimeout(reconnectTimer);
+        reconnectTimer = null;
+    }
     if (stompClient && stompClient.connected) {
         stompClient.disconnect(() => console.log("已登出并断开 WebSocket"));
-        stompClient = null;
     }
+    stompClient = null;
     currentUserId = null;
 }
 
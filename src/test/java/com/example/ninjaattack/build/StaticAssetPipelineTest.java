@@ -0,0 +1,83 @@
+package com.example.ninjaattack.build;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class StaticAssetPipelineTest {
+
+    @TempDir
+    Path source;
+
+    @TempDir
+    Path output;
+
+    @Test
+    public void testPagesLinkToHashedCopiesWithRewrittenDependencies() throws Exception {
+        write("img/bg.png", "not really a png");
+        write("css/site.css", "body { background: url('../img/bg.png'); }\n".repeat(20));
+        write("js/core/ui.js", "export const UI = {};\n".repeat(20));
+        write("js/entries/page.js", "import { UI } from '../core/ui.js';\nconsole.log(UI);\n".repeat(20));
+        write("page.html", "<link rel=\"stylesheet\" href=\"css/site.css\">"
+                + "<script src=\"js/entries/page.js?v=3\" type=\"module\"></script>"
+                + "<script src=\"https://cdn.example.com/lib.js\"></script>"
+                + "<img src=\"img/missing.png\">");
+
+        StaticAssetPipeline pipeline = new StaticAssetPipeline(source, output);
+        assertTrue(pipeline.run() > 0);
+
+        String page = read(output.resolve("page.html"));
+        String css = linked(page, "dist/css/site-[0-9a-f]{12}\\.css");
+        String js = linked(page, "dist/js/entries/page-[0-9a-f]{12}\\.js");
+        assertTrue(page.contains("https://cdn.example.com/lib.js"));
+        assertTrue(page.contains("img/missing.png"));
+        assertEquals(1, pipeline.getWarnings().stream().filter(w -> w.contains("missing.png")).count());
+
+        String image = linked(read(output.resolve(css)), "\\.\\./img/bg-[0-9a-f]{12}\\.png");
+        String script = read(output.resolve(js));
+        String ui = linked(script, "\\.\\./core/ui-[0-9a-f]{12}\\.js");
+        assertTrue(Files.exists(output.resolve(js).resolveSibling(ui).normalize()));
+
+        // Text files get a compressed variant that decompresses to the same bytes
+        try (GZIPInputStream in = new GZIPInputStream(
+                new ByteArrayInputStream(Files.readAllBytes(output.resolve(css + ".gz"))))) {
+            assertEquals(read(output.resolve(css)), new String(in.readAllBytes(), StandardCharsets.UTF_8));
+        }
+        // Binary files are served as they are
+        assertTrue(Files.exists(output.resolve("dist/css").resolve(image).normalize()));
+        assertFalse(Files.exists(output.resolve("dist/css").resolve(image + ".gz").normalize()));
+
+        // A change in a dependency changes the hash of everything that imports it
+        write("js/core/ui.js", "export const UI = { changed: true };\n".repeat(20));
+        new StaticAssetPipeline(source, output).run();
+        String rebuilt = read(output.resolve("page.html"));
+        assertNotEquals(js, linked(rebuilt, "dist/js/entries/page-[0-9a-f]{12}\\.js"));
+        assertEquals(css, linked(rebuilt, "dist/css/site-[0-9a-f]{12}\\.css"));
+        assertFalse(Files.exists(output.resolve(js)));
+    }
+
+    private void write(String path, String content) throws Exception {
+        Path file = source.resolve(path);
+        Files.createDirectories(file.getParent());
+        Files.writeString(file, content);
+    }
+
+    private static String read(Path file) throws Exception {
+        return Files.readString(file);
+    }
+
+    private static String linked(String text, String regex) {
+        Matcher matcher = Pattern.compile(regex).matcher(text);
+        assertTrue(matcher.find(), "no link matching " + regex + " in " + text);
+        return matcher.group();
+    }
+}
@@ -0,0 +1,128 @@
+package com.example.ninjaattack.config;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class CoalescingSessionDecoratorTest {
+
+    private final OutboundFrameDispatcher dispatcher = new OutboundFrameDispatcher(1024, 10_000, 2, 1000);
+
+    @AfterEach
+    public void tearDown() {
+        dispatcher.shutdown();
+    }
+
+    @Test
+    public void testQueuedGameStateIsReplacedByNewerOne() throws Exception {
+        CountDownLatch firstWriteStarted = new CountDownLatch(1);
+        CountDownLatch releaseFirstWrite = new CountDownLatch(1);
+        CountDownLatch allWritten = new CountDownLatch(3);
+        List<String> written = new CopyOnWriteArrayList<>();
+        WebSocketSession session = mock(WebSocketSession.class);
+        doAnswer(inv -> {
+            WebSocketMessage<?> message = inv.getArgument(0);
+            if (written.isEmpty()) {
+                firstWriteStarted.countDown();
+                releaseFirstWrite.await(5, TimeUnit.SECONDS);
+            }
+            written.add((String) message.getPayload());
+            allWritten.countDown();
+            return null;
+        }).when(session).sendMessage(any());
+
+        CoalescingSessionDecorator decorator = new CoalescingSessionDecorator(session, dispatcher);
+        decorator.sendMessage(frame("/user/queue/game/g1", "s1"));
+        assertTrue(firstWriteStarted.await(5, TimeUnit.SECONDS));
+        decorator.sendMessage(frame("/user/queue/game/g1", "s2"));
+        decorator.sendMessage(frame("/user/queue/game/g1/rating", "r"));
+        decorator.sendMessage(frame("/user/queue/game/g1", "s3"));
+        releaseFirstWrite.countDown();
+
+        assertTrue(allWritten.await(5, TimeUnit.SECONDS));
+        assertEquals(List.of("s1", "s3", "r"), written.stream().map(p -> p.substring(p.lastIndexOf('\n') + 1))
+                .map(p -> p.replace("\0", "")).toList());
+        assertEquals(1, dispatcher.getFramesCoalesced());
+    }
+
+    @Test
+    public void testSessionOverBufferLimitIsClosed() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        WebSocketSession session = mock(WebSocketSession.class);
+        doAnswer(inv -> {
+            release.await(5, TimeUnit.SECONDS);
+            return null;
+        }).when(session).sendMessage(any());
+
+        CoalescingSessionDecorator decorator = new CoalescingSessionDecorator(session, dispatcher);
+        for (int i = 0; i < 10; i++) {
+            decorator.sendMessage(frame("/topic/other-" + i, "x".repeat(200)));
+        }
+        release.countDown();
+
+        verify(session).close(CloseStatus.SESSION_NOT_RELIABLE);
+        assertEquals(1, dispatcher.getSessionsClosedSlow());
+    }
+
+    @Test
+    public void testBlockedWriteIsCutOffWithoutFurtherFrames() throws Exception {
+        OutboundFrameDispatcher oneWriter = new OutboundFrameDispatcher(1024, 200, 1, 50);
+        try {
+            // A client that stopped reading: the write only returns once the session is closed
+            CountDownLatch closed = new CountDownLatch(1);
+            WebSocketSession stalled = mock(WebSocketSession.class);
+            when(stalled.getId()).thenReturn("stalled");
+            doAnswer(inv -> {
+                closed.await(5, TimeUnit.SECONDS);
+                throw new IOException("connection closed");
+            }).when(stalled).sendMessage(any());
+            doAnswer(inv -> {
+                closed.countDown();
+                return null;
+            }).when(stalled).close(any());
+
+            CountDownLatch written = new CountDownLatch(1);
+            WebSocketSession healthy = mock(WebSocketSession.class);
+            doAnswer(inv -> {
+                written.countDown();
+                return null;
+            }).when(healthy).sendMessage(any());
+
+            new CoalescingSessionDecorator(stalled, oneWriter).sendMessage(frame("/topic/a", "x"));
+            // Queued behind the stalled write on the only writer thread
+            new CoalescingSessionDecorator(healthy, oneWriter).sendMessage(frame("/topic/b", "y"));
+
+            assertTrue(written.await(5, TimeUnit.SECONDS));
+            verify(stalled).close(CloseStatus.SESSION_NOT_RELIABLE);
+            assertEquals(1, oneWriter.getSessionsClosedSlow());
+        } finally {
+            oneWriter.shutdown();
+        }
+    }
+
+    @Test
+    public void testOnlyGameStateTopicsCoalesce() {
+        assertEquals("/user/queue/game/g1", CoalescingSessionDecorator.coalesceKey(frame("/user/queue/game/g1", "{}")));
+        assertNull(CoalescingSessionDecorator.coalesceKey(frame("/user/queue/game/g1/rating", "{}")));
+        assertNull(CoalescingSessionDecorator.coalesceKey(frame("/topic/game/g1/rating", "{}")));
+        assertNull(CoalescingSessionDecorator.coalesceKey(frame("/user/queue/game-ack/g1", "{}")));
+        assertNull(CoalescingSessionDecorator.coalesceKey(new TextMessage("\n")));
+    }
+
+    private static TextMessage frame(String destination, String body) {
+        return new TextMessage("MESSAGE\ndestination:" + destination
+                + "\ncontent-type:application/json\nsubscription:sub-0\nmessage-id:1\n\n" + body + "\0");
+    }
+}
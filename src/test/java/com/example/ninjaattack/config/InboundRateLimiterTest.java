@@ -0,0 +1,56 @@
+package com.example.ninjaattack.config;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.support.MessageBuilder;
+
+import java.security.Principal;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class InboundRateLimiterTest {
+
+    @Test
+    public void testBurstThenRefill() {
+        InboundRateLimiter limiter = new InboundRateLimiter(new String[] { "/app/game/*/place|3|2" });
+        InboundRateLimiter.Rule rule = InboundRateLimiter.Rule.parse("/app/game/*/place|3|2");
+        long now = 0;
+
+        assertTrue(limiter.tryAcquire("k", rule, now));
+        assertTrue(limiter.tryAcquire("k", rule, now));
+        assertTrue(limiter.tryAcquire("k", rule, now));
+        assertFalse(limiter.tryAcquire("k", rule, now));
+
+        // Two per second: one token back after half a second
+        long later = now + TimeUnit.MILLISECONDS.toNanos(500);
+        assertTrue(limiter.tryAcquire("k", rule, later));
+        assertFalse(limiter.tryAcquire("k", rule, later));
+    }
+
+    @Test
+    public void testDropsOverBudgetFramesPerUserAcrossSessions() {
+        InboundRateLimiter limiter = new InboundRateLimiter(new String[] { "/app/matchmaking/find|2|0.001" });
+
+        assertNotNull(limiter.preSend(send("/app/matchmaking/find", "alice", "s1"), null));
+        assertNotNull(limiter.preSend(send("/app/matchmaking/find", "alice", "s2"), null));
+        assertNull(limiter.preSend(send("/app/matchmaking/find", "alice", "s3"), null));
+        assertNotNull(limiter.preSend(send("/app/matchmaking/find", "bob", "s4"), null));
+        // Unlisted destinations are never limited
+        assertNotNull(limiter.preSend(send("/app/game/g1/place", "alice", "s1"), null));
+
+        assertEquals(1L, limiter.getRejected().get("/app/matchmaking/find"));
+        assertEquals(3, limiter.getAllowed());
+    }
+
+    private static Message<byte[]> send(String destination, String username, String sessionId) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        accessor.setDestination(destination);
+        accessor.setSessionId(sessionId);
+        Principal principal = () -> username;
+        accessor.setUser(principal);
+        return MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders());
+    }
+}
@@ -0,0 +1,69 @@
+package com.example.ninjaattack.controller;
+
+import com.example.ninjaattack.repository.ReplayCollectionRepository;
+import com.example.ninjaattack.service.GamePersistenceService;
+import com.example.ninjaattack.service.GamePersistenceService.StoredGameJson;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class ReplayControllerTest {
+
+    private final GamePersistenceService persistence = mock(GamePersistenceService.class);
+    private final ReplayController controller = newController();
+
+    @Test
+    public void testFinishedReplayIsTaggedAndRevalidatedWithoutLoading() {
+        when(persistence.loadGameJson("g1")).thenReturn(new StoredGameJson("{\"gameId\":\"g1\"}", true, true));
+
+        ResponseEntity<String> first = controller.getReplay("g1", null);
+        assertEquals(HttpStatus.OK, first.getStatusCode());
+        assertEquals("{\"gameId\":\"g1\"}", first.getBody());
+        assertEquals(MediaType.APPLICATION_JSON, first.getHeaders().getContentType());
+        String etag = first.getHeaders().getETag();
+        assertNotNull(etag);
+        // Replays need a login: only the browser may keep them
+        assertTrue(first.getHeaders().getCacheControl().contains("private"));
+        assertFalse(first.getHeaders().getCacheControl().contains("s-maxage"));
+
+        ResponseEntity<String> again = controller.getReplay("g1", "\"other\", W/" + etag);
+        assertEquals(HttpStatus.NOT_MODIFIED, again.getStatusCode());
+        assertNull(again.getBody());
+        assertEquals(etag, again.getHeaders().getETag());
+        verify(persistence, times(1)).loadGameJson("g1");
+    }
+
+    @Test
+    public void testGameInProgressIsNotServed() {
+        // Stored JSON of a live game holds both players' hidden ambushes
+        when(persistence.loadGameJson("g2")).thenReturn(new StoredGameJson("{\"gameId\":\"g2\"}", false, false));
+
+        ResponseEntity<String> response = controller.getReplay("g2", "*");
+
+        assertEquals(HttpStatus.NOT_FOUND, response.getStatusCode());
+        assertNull(response.getBody());
+        assertNull(response.getHeaders().getETag());
+    }
+
+    @Test
+    public void testFinishedGameAwaitingItsRatingIsNotCached() {
+        when(persistence.loadGameJson("g3")).thenReturn(new StoredGameJson("{\"gameId\":\"g3\"}", true, false));
+
+        ResponseEntity<String> response = controller.getReplay("g3", null);
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertNull(response.getHeaders().getETag());
+        assertEquals("no-store", response.getHeaders().getCacheControl());
+    }
+
+    private ReplayController newController() {
+        ReplayController replays = new ReplayController(persistence, mock(ReplayCollectionRepository.class));
+        ReflectionTestUtils.setField(replays, "maxAgeSeconds", 3600L);
+        return replays;
+    }
+}
@@ -0,0 +1,61 @@
+package com.example.ninjaattack.diagnostics;
+
+import jdk.jfr.Recording;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class JfrReportTest {
+
+    @Test
+    public void testSplitsMoveIntoLockWaitBroadcastAndOther(@TempDir Path dir) throws Exception {
+        Path file = dir.resolve("game.jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable(GameMoveEvent.class);
+            recording.enable(GameBroadcastEvent.class);
+            recording.enable(GameSaveEvent.class);
+            recording.start();
+
+            GameMoveEvent move = new GameMoveEvent();
+            move.begin();
+            Thread.sleep(5);
+            GameBroadcastEvent broadcast = new GameBroadcastEvent();
+            broadcast.begin();
+            Thread.sleep(5);
+            broadcast.gameId = "g1";
+            broadcast.commit();
+            move.gameId = "g1";
+            move.outcome = "APPLIED";
+            move.lockWait = 2_000_000;
+            move.commit();
+
+            GameSaveEvent save = new GameSaveEvent();
+            save.begin();
+            save.gameId = "g1";
+            save.bytesWritten = 1234;
+            save.succeeded = true;
+            save.commit();
+
+            recording.stop();
+            recording.dump(file);
+        }
+
+        JfrReport report = JfrReport.read(file);
+        List<JfrReport.GameSummary> summaries = report.summarize();
+
+        assertEquals(1, summaries.size());
+        JfrReport.GameSummary g1 = summaries.get(0);
+        assertEquals("g1", g1.gameId());
+        assertEquals(1, g1.moves());
+        assertEquals(2_000_000, g1.avgLockWait());
+        assertTrue(g1.avgBroadcast() >= 5_000_000, "broadcast " + g1.avgBroadcast());
+        assertTrue(g1.avgOther() > 0);
+        assertEquals(g1.max(), g1.avgLockWait() + g1.avgBroadcast() + g1.avgOther());
+        assertEquals(1, g1.saves());
+        assertEquals(1234, g1.avgSaveBytes());
+    }
+}
@@ -0,0 +1,432 @@
+package com.example.ninjaattack.loadtest;
+
+import com.example.ninjaattack.model.dto.CommandAck;
+import com.example.ninjaattack.model.dto.MatchResult;
+import com.example.ninjaattack.model.dto.MoveRequest;
+import com.example.ninjaattack.service.GameMetrics;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.lang.NonNull;
+import org.springframework.messaging.converter.CompositeMessageConverter;
+import org.springframework.messaging.converter.MappingJackson2MessageConverter;
+import org.springframework.messaging.converter.StringMessageConverter;
+import org.springframework.messaging.simp.stomp.StompFrameHandler;
+import org.springframework.messaging.simp.stomp.StompHeaders;
+import org.springframework.messaging.simp.stomp.StompSession;
+import org.springframework.messaging.simp.stomp.StompSessionHandlerAdapter;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.web.socket.WebSocketHttpHeaders;
+import org.springframework.web.socket.client.standard.StandardWebSocketClient;
+import org.springframework.web.socket.messaging.WebSocketStompClient;
+
+import java.lang.reflect.Type;
+import java.net.CookieManager;
+import java.net.HttpCookie;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Plays complete games between synthetic players against an in-process server
+ * (embedded H2, simple broker) over real STOMP/WebSocket connections, and
+ * reports throughput, move-to-broadcast latency percentiles and error counts,
+ * client-side and the server's failed game saves.
+ * <p>
+ * Excluded from the default build; run with
+ *
+ * <pre>
+ * mvn test -Ploadtest -Dloadtest.games=50 -Dloadtest.think-ms=250 -Dloadtest.slo-p99-ms=200
+ * </pre>
+ *
+ * Raise {@code loadtest.games} between runs until p99 crosses the SLO to find
+ * how many concurrent games one node holds. With {@code loadtest.slo-p99-ms}
+ * set the run fails when p99 exceeds it, so it can gate upgrades.
+ * <p>
+ * Latency runs from sending a move to the first broadcast that reflects it:
+ * for a placement the next state of the game (only the mover can act), for an
+ * ambush the first state where the player's ambush count or the phase changed
+ * (both players ambush at once, so the opponent's broadcasts are skipped).
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("loadtest")
+public class GameLoadTest {
+
+    private static final int GAMES = Integer.getInteger("loadtest.games", 20);
+    private static final long THINK_MS = Long.getLong("loadtest.think-ms", 250);
+    private static final long SLO_P99_MS = Long.getLong("loadtest.slo-p99-ms", 0);
+    private static final long TIMEOUT_SECONDS = Long.getLong("loadtest.timeout-seconds", 600);
+
+    // A move without a matching broadcast after this long counts as unanswered
+    private static final long MOVE_TIMEOUT_NANOS = TimeUnit.SECONDS.toNanos(5);
+    // No broadcast for this long (e.g. one lost before the subscription was
+    // registered): catch up through the resume endpoint, like the browser does
+    private static final long STALL_NANOS = TimeUnit.SECONDS.toNanos(3);
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private GameMetrics gameMetrics;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(4);
+    private final ExecutorService logins = Executors.newFixedThreadPool(8);
+    private final ConcurrentLinkedQueue<Long> latencies = new ConcurrentLinkedQueue<>();
+    private final Map<String, LongAdder> errors = new ConcurrentHashMap<>();
+    private final LongAdder resumes = new LongAdder();
+    private WebSocketStompClient stompClient;
+
+    @AfterEach
+    public void tearDown() {
+        scheduler.shutdownNow();
+        logins.shutdownNow();
+        if (stompClient != null) {
+            stompClient.stop();
+        }
+    }
+
+    @Test
+    public void playConcurrentGames() throws Exception {
+        stompClient = new WebSocketStompClient(new StandardWebSocketClient());
+        stompClient.setMessageConverter(new CompositeMessageConverter(
+                List.of(new StringMessageConverter(), new MappingJackson2MessageConverter())));
+
+        List<Bot> bots = new ArrayList<>();
+        for (int i = 0; i < GAMES * 2; i++) {
+            bots.add(new Bot("load" + i + "-" + Long.toString(System.nanoTime(), 36)));
+        }
+        CompletableFuture.allOf(bots.stream()
+                .map(bot -> CompletableFuture.runAsync(bot::connect, logins))
+                .toArray(CompletableFuture[]::new)).get(120, TimeUnit.SECONDS);
+
+        double saveFailuresBefore = gameMetrics.getSaveFailures();
+        long started = System.nanoTime();
+        bots.forEach(Bot::findMatch);
+        scheduler.scheduleWithFixedDelay(() -> bots.forEach(Bot::checkProgress), 1, 1, TimeUnit.SECONDS);
+
+        try {
+            CompletableFuture.allOf(bots.stream().map(bot -> bot.finished).toArray(CompletableFuture[]::new))
+                    .get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (TimeoutException e) {
+            error("unfinished");
+        }
+        double seconds = (System.nanoTime() - started) / 1e9;
+
+        long completed = bots.stream().filter(bot -> "GAME_OVER".equals(bot.finished.getNow(null))).count() / 2;
+        long saveFailures = awaitSaves(saveFailuresBefore);
+        long p99 = report(completed, seconds, saveFailures);
+
+        assertEquals(GAMES, completed, "games played to the end");
+        assertEquals(0, saveFailures, "game saves failed on the server");
+        if (SLO_P99_MS > 0) {
+            assertTrue(p99 <= TimeUnit.MILLISECONDS.toNanos(SLO_P99_MS),
+                    "p99 move-to-broadcast latency over the " + SLO_P99_MS + " ms SLO");
+        }
+    }
+
+    // Let the queued async saves of the last moves run, then count the failed ones
+    private long awaitSaves(double failuresBefore) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        while (gameMetrics.getPendingSaves() > 0 && System.nanoTime() < deadline) {
+            Thread.sleep(50);
+        }
+        return (long) (gameMetrics.getSaveFailures() - failuresBefore);
+    }
+
+    private long report(long completed, double seconds, long saveFailures) {
+        long[] sorted = latencies.stream().mapToLong(Long::longValue).sorted().toArray();
+        System.out.printf("Load test: %d games (%d players), think %d ms, %.1f s%n",
+                GAMES, GAMES * 2, THINK_MS, seconds);
+        System.out.printf("  throughput: %d games completed, %.1f games/min, %.1f moves/s%n",
+                completed, completed * 60 / seconds, sorted.length / seconds);
+        System.out.printf("  move->broadcast (ms, n=%d): p50 %s  p95 %s  p99 %s  max %s%n", sorted.length,
+                ms(percentile(sorted, 0.50)), ms(percentile(sorted, 0.95)), ms(percentile(sorted, 0.99)),
+                ms(percentile(sorted, 1.0)));
+        Map<String, Long> counts = new TreeMap<>();
+        errors.forEach((kind, count) -> counts.put(kind, count.sum()));
+        System.out.printf("  errors: %s, resumes: %d%n", counts.isEmpty() ? "none" : counts, resumes.sum());
+        System.out.printf("  server save failures: %d%n", saveFailures);
+        return percentile(sorted, 0.99);
+    }
+
+    private static long percentile(long[] sorted, double p) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(p * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, index))];
+    }
+
+    private static String ms(long nanos) {
+        return String.format("%.2f", nanos / 1_000_000.0);
+    }
+
+    private void error(String kind) {
+        errors.computeIfAbsent(kind, k -> new LongAdder()).increment();
+    }
+
+    private record Pending(boolean ambush, long clientSeq, long sentAt, int ambushesAtSend) {
+    }
+
+    /** One synthetic player: its own HTTP session, STOMP connection and game. */
+    private final class Bot {
+
+        private final String username;
+        private final HttpClient http = HttpClient.newBuilder().cookieHandler(new CookieManager()).build();
+        private final CompletableFuture<String> finished = new CompletableFuture<>();
+        private StompSession session;
+
+        private String gameId;
+        private String playerId;
+        private JsonNode state;
+        private long seq = -1;
+        private Pending pending;
+        private boolean thinking;
+        private boolean resuming;
+        private long clientSeq;
+        private long lastProgress = System.nanoTime();
+
+        Bot(String username) {
+            this.username = username;
+        }
+
+        void connect() {
+            try {
+                String credentials = objectMapper.writeValueAsString(Map.of("username", username, "password", "pw"));
+                post("/api/auth/register", credentials);
+                JsonNode user = objectMapper.readTree(post("/api/auth/login", credentials));
+                long userId = user.path("id").asLong();
+
+                WebSocketHttpHeaders headers = new WebSocketHttpHeaders();
+                for (HttpCookie cookie : ((CookieManager) http.cookieHandler().orElseThrow()).getCookieStore()
+                        .getCookies()) {
+                    headers.add("Cookie", cookie.getName() + "=" + cookie.getValue());
+                }
+                // The SockJS endpoint also accepts plain WebSocket connections on /websocket
+                session = stompClient.connectAsync("ws://localhost:" + port + "/ws/websocket", headers,
+                        new StompSessionHandlerAdapter() {
+                            @Override
+                            public void handleTransportError(@NonNull StompSession session,
+                                    @NonNull Throwable exception) {
+                                error("transport");
+                            }
+                        }).get(30, TimeUnit.SECONDS);
+                session.subscribe("/queue/matchmaking-" + userId, handler(MatchResult.class, this::onMatch));
+            } catch (Exception e) {
+                throw new IllegalStateException("Could not connect " + username, e);
+            }
+        }
+
+        private String post(String path, String json) throws Exception {
+            HttpResponse<String> response = http.send(HttpRequest.newBuilder(uri(path))
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(json)).build(), HttpResponse.BodyHandlers.ofString());
+            if (response.statusCode() != 200) {
+                throw new IllegalStateException(path + " returned " + response.statusCode());
+            }
+            return response.body();
+        }
+
+        private URI uri(String path) {
+            return URI.create("http://localhost:" + port + path);
+        }
+
+        void findMatch() {
+            session.send("/app/matchmaking/find", "");
+        }
+
+        private synchronized void onMatch(MatchResult match) {
+            gameId = match.getGameId();
+            playerId = match.getAssignedPlayerId();
+            lastProgress = System.nanoTime();
+            session.subscribe("/user/queue/game/" + gameId, handler(String.class, this::onState));
+            session.subscribe("/user/queue/game-ack/" + gameId, handler(CommandAck.class, this::onAck));
+            MoveRequest ready = new MoveRequest();
+            ready.setPlayerId(playerId);
+            session.send("/app/game/" + gameId + "/ready", ready);
+        }
+
+        private void onState(String json) {
+            try {
+                onState(objectMapper.readTree(json));
+            } catch (Exception e) {
+                error("bad-state");
+            }
+        }
+
+        private synchronized void onState(JsonNode next) {
+            long nextSeq = next.path("seq").asLong();
+            if (nextSeq <= seq || finished.isDone()) {
+                return;
+            }
+            seq = nextSeq;
+            state = next;
+            lastProgress = System.nanoTime();
+
+            String phase = next.path("phase").asText();
+            if (pending != null && (!pending.ambush() || !"AMBUSH".equals(phase)
+                    || ambushesPlaced(next) != pending.ambushesAtSend())) {
+                latencies.add(lastProgress - pending.sentAt());
+                pending = null;
+            }
+            if ("GAME_OVER".equals(phase) || "MATCH_CANCELLED".equals(phase)) {
+                if ("MATCH_CANCELLED".equals(phase)) {
+                    error("cancelled");
+                }
+                finished.complete(phase);
+                return;
+            }
+            planMove();
+        }
+
+        private synchronized void onAck(CommandAck ack) {
+            if (ack.getStatus() == CommandAck.Status.APPLIED) {
+                return;
+            }
+            error(ack.getStatus() == CommandAck.Status.REJECTED ? "rejected" : "duplicate");
+            if (pending != null && pending.clientSeq() == ack.getClientSeq()) {
+                pending = null;
+                planMove();
+            }
+        }
+
+        private void planMove() {
+            if (pending != null || thinking || chooseSquare() == null) {
+                return;
+            }
+            thinking = true;
+            long think = THINK_MS <= 0 ? 0 : ThreadLocalRandom.current().nextLong(THINK_MS / 2, THINK_MS * 3 / 2 + 1);
+            scheduler.schedule(this::move, think, TimeUnit.MILLISECONDS);
+        }
+
+        // The square is chosen from the newest state at send time, not at planning time
+        private synchronized void move() {
+            thinking = false;
+            int[] square = finished.isDone() || pending != null ? null : chooseSquare();
+            if (square == null) {
+                return;
+            }
+            boolean ambush = "AMBUSH".equals(state.path("phase").asText());
+            MoveRequest move = new MoveRequest();
+            move.setPlayerId(playerId);
+            move.setR(square[0]);
+            move.setC(square[1]);
+            move.setClientSeq(++clientSeq);
+            pending = new Pending(ambush, clientSeq, System.nanoTime(), ambushesPlaced(state));
+            try {
+                session.send("/app/game/" + gameId + (ambush ? "/ambush" : "/place"), move);
+            } catch (Exception e) {
+                error("send");
+                pending = null;
+            }
+        }
+
+        private int[] chooseSquare() {
+            if (state == null) {
+                return null;
+            }
+            String phase = state.path("phase").asText();
+            boolean ambush = "AMBUSH".equals(phase);
+            if (ambush) {
+                if (ambushesPlaced(state) >= 2) {
+                    return null;
+                }
+            } else if (!("PLACEMENT".equals(phase) || "EXTRA_ROUNDS".equals(phase))
+                    || !playerId.equals(state.path("currentTurnPlayerId").asText())) {
+                return null;
+            }
+            List<int[]> free = new ArrayList<>();
+            JsonNode grid = state.path("board").path("grid");
+            for (int r = 0; r < grid.size(); r++) {
+                for (int c = 0; c < grid.get(r).size(); c++) {
+                    JsonNode square = grid.get(r).get(c);
+                    if (square.hasNonNull("ownerId") || (ambush && square.path(playerId + "Ambush").asBoolean())) {
+                        continue;
+                    }
+                    free.add(new int[] { r, c });
+                }
+            }
+            return free.isEmpty() ? null : free.get(ThreadLocalRandom.current().nextInt(free.size()));
+        }
+
+        private int ambushesPlaced(JsonNode s) {
+            return s.path(playerId + "AmbushesPlaced").asInt();
+        }
+
+        synchronized void checkProgress() {
+            if (gameId == null || finished.isDone() || resuming) {
+                return;
+            }
+            long now = System.nanoTime();
+            if (pending != null && now - pending.sentAt() > MOVE_TIMEOUT_NANOS) {
+                // Dropped by the rate limiter or lost; the resumed state decides the next move
+                error("unanswered");
+                pending = null;
+            } else if (pending != null || now - lastProgress < STALL_NANOS) {
+                return;
+            }
+            resuming = true;
+            resumes.increment();
+            lastProgress = now;
+            http.sendAsync(HttpRequest.newBuilder(uri("/api/game/" + gameId + "/resume?since=" + Math.max(0, seq)))
+                    .GET().build(), HttpResponse.BodyHandlers.ofString())
+                    .whenComplete((response, failure) -> {
+                        synchronized (this) {
+                            resuming = false;
+                        }
+                        if (failure != null || response.statusCode() != 200) {
+                            error("resume");
+                            return;
+                        }
+                        try {
+                            for (JsonNode event : objectMapper.readTree(response.body()).path("events")) {
+                                onState(event);
+                            }
+                            synchronized (this) {
+                                planMove();
+                            }
+                        } catch (Exception e) {
+                            error("resume");
+                        }
+                    });
+        }
+
+        private <T> StompFrameHandler handler(Class<T> type, Consumer<T> consumer) {
+            return new StompFrameHandler() {
+                @Override
+                @NonNull
+                public Type getPayloadType(@NonNull StompHeaders headers) {
+                    return type;
+                }
+
+                @Override
+                public void handleFrame(@NonNull StompHeaders headers, Object payload) {
+                    consumer.accept(type.cast(payload));
+                }
+            };
+        }
+    }
+}
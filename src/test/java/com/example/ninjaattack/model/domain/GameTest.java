@@ -0,0 +1,49 @@
+package com.example.ninjaattack.model.domain;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GameTest {
+
+    @Test
+    public void testCommandRetriedAfterALaterOneIsStillApplied() {
+        Game game = new Game("alice", "bob");
+        game.markCommandApplied("p1", 1);
+        // 2 was dropped on the way, 3 went through
+        game.markCommandApplied("p1", 3);
+
+        assertTrue(game.isCommandApplied("p1", 1));
+        assertFalse(game.isCommandApplied("p1", 2));
+        assertTrue(game.isCommandApplied("p1", 3));
+        assertFalse(game.isCommandApplied("p1", 4));
+        // The other player's seqs are separate
+        assertFalse(game.isCommandApplied("p2", 1));
+
+        game.markCommandApplied("p1", 2);
+        assertTrue(game.isCommandApplied("p1", 2));
+        assertEquals(3, game.getCommandSeq("p1"));
+    }
+
+    @Test
+    public void testWindowSlidesAndSurvivesTheStoredJson() throws Exception {
+        Game game = new Game("alice", "bob");
+        game.markCommandApplied("p2", 10);
+        game.markCommandApplied("p2", 74);
+
+        // 10 is exactly at the edge of the window, 9 is beyond it and counts as applied
+        assertTrue(game.isCommandApplied("p2", 10));
+        assertFalse(game.isCommandApplied("p2", 11));
+        assertTrue(game.isCommandApplied("p2", 9));
+
+        ObjectMapper objectMapper = new ObjectMapper();
+        Game stored = objectMapper.readValue(objectMapper.writeValueAsString(game), Game.class);
+        assertTrue(stored.isCommandApplied("p2", 10));
+        assertFalse(stored.isCommandApplied("p2", 11));
+
+        stored.markCommandApplied("p2", 1_000);
+        assertTrue(stored.isCommandApplied("p2", 74));
+        assertFalse(stored.isCommandApplied("p2", 999));
+    }
+}
@@ -0,0 +1,49 @@
+package com.example.ninjaattack.model.domain;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MoveHistoryTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    public void testPackedFieldsRoundTrip() {
+        MoveHistory history = new MoveHistory();
+        for (int i = 0; i < 40; i++) {
+            history.add(i % 2 == 0 ? "p1" : "p2", i % 3 == 0 ? "AMBUSH" : "PIECE", i % 6, 5 - i % 6,
+                    1_700_000_000_000L + i * 1_500L);
+        }
+
+        assertEquals(40, history.size());
+        for (int i = 0; i < 40; i++) {
+            MoveRecord expected = new MoveRecord(i % 2 == 0 ? "p1" : "p2", i % 3 == 0 ? "AMBUSH" : "PIECE", i % 6,
+                    5 - i % 6, 1_700_000_000_000L + i * 1_500L);
+            assertEquals(expected, history.get(i));
+        }
+    }
+
+    @Test
+    public void testJsonMatchesLegacyRecordList() throws Exception {
+        String legacy = "{\"gameId\":\"g1\",\"history\":["
+                + "{\"playerId\":\"p2\",\"type\":\"AMBUSH\",\"r\":3,\"c\":4,\"timestamp\":1700000005000},"
+                + "{\"playerId\":\"p1\",\"type\":\"PIECE\",\"r\":0,\"c\":5,\"timestamp\":1700000001000}]}";
+
+        Game game = objectMapper.readValue(legacy, Game.class);
+        MoveHistory history = game.getHistory();
+        assertEquals(2, history.size());
+        assertEquals(new MoveRecord("p1", "PIECE", 0, 5, 1_700_000_001_000L), history.get(1));
+
+        String json = objectMapper.writeValueAsString(history);
+        assertEquals(objectMapper.readTree(legacy).get("history"), objectMapper.readTree(json));
+    }
+
+    @Test
+    public void testNullHistoryReadsAsEmpty() throws Exception {
+        Game game = objectMapper.readValue("{\"gameId\":\"g1\",\"history\":null}", Game.class);
+
+        assertTrue(game.getHistory().isEmpty());
+    }
+}
@@ -0,0 +1,91 @@
+package com.example.ninjaattack.repository;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GameArchiveRepositoryTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    public void testAppendedGamesAreReadable() throws Exception {
+        GameArchiveRepository archive = open(1 << 20);
+        Map<String, String> games = games(3);
+
+        assertEquals(List.copyOf(games.keySet()), archive.append(games));
+
+        games.forEach((id, json) -> assertEquals(json, archive.read(id)));
+        assertNull(archive.read(UUID.randomUUID().toString()));
+        assertNull(archive.read("not-a-uuid"));
+        archive.close();
+    }
+
+    @Test
+    public void testSegmentsRollAndSurviveRestart() throws Exception {
+        GameArchiveRepository archive = open(600);
+        Map<String, String> games = games(20);
+        archive.append(games);
+        assertTrue(archive.getSegmentCount() > 1);
+        archive.close();
+
+        GameArchiveRepository reopened = open(600);
+        games.forEach((id, json) -> assertEquals(json, reopened.read(id)));
+        assertEquals(20, reopened.getGameCount());
+        reopened.close();
+    }
+
+    @Test
+    public void testLatestCopyWins() throws Exception {
+        GameArchiveRepository archive = open(1 << 20);
+        String id = UUID.randomUUID().toString();
+
+        archive.append(Map.of(id, "{\"v\":1}"));
+        archive.append(Map.of(id, "{\"v\":2}"));
+
+        assertEquals("{\"v\":2}", archive.read(id));
+        archive.close();
+    }
+
+    @Test
+    public void testTornTailIsTruncatedOnRestart() throws Exception {
+        GameArchiveRepository archive = open(1 << 20);
+        Map<String, String> games = games(2);
+        archive.append(games);
+        archive.close();
+
+        Files.write(dir.resolve("seg-000001.dat"), new byte[] { 1, 2, 3, 4, 5 }, StandardOpenOption.APPEND);
+
+        GameArchiveRepository reopened = open(1 << 20);
+        games.forEach((id, json) -> assertEquals(json, reopened.read(id)));
+        String next = UUID.randomUUID().toString();
+        reopened.append(Map.of(next, "{\"after\":true}"));
+        assertEquals("{\"after\":true}", reopened.read(next));
+        reopened.close();
+    }
+
+    private GameArchiveRepository open(long maxSegmentBytes) throws Exception {
+        GameArchiveRepository archive = new GameArchiveRepository(dir.toString(), maxSegmentBytes);
+        archive.open();
+        return archive;
+    }
+
+    private static Map<String, String> games(int count) {
+        Map<String, String> games = new LinkedHashMap<>();
+        for (int i = 0; i < count; i++) {
+            String id = UUID.randomUUID().toString();
+            games.put(id, "{\"gameId\":\"" + id + "\",\"history\":[" + "{\"r\":1,\"c\":2},".repeat(i) + "{}]}");
+        }
+        return games;
+    }
+}
@@ -0,0 +1,146 @@
+package com.example.ninjaattack.service;
+
+import com.example.ninjaattack.logic.GameEngine;
+import com.example.ninjaattack.model.domain.Game;
+import com.example.ninjaattack.model.domain.GamePhase;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.ScheduledFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+/**
+ * Games whose players are both offline, on virtual time: the presence grace,
+ * the resolution to GAME_OVER and the fallback to the turn timers.
+ */
+public class AbandonedGameServiceTest {
+
+    private static final long GRACE_MS = 60_000;
+
+    private final VirtualTimeScheduler scheduler = new VirtualTimeScheduler(Instant.parse("2024-01-01T00:00:00Z"));
+    private final RatingUpdatePipeline ratings = mock(RatingUpdatePipeline.class);
+    private final GamePersistenceService persistence = mock(GamePersistenceService.class);
+    private final PlayerPresenceTracker presence = new PlayerPresenceTracker(scheduler.getClock());
+    private GameService games;
+    private AbandonedGameService abandoned;
+
+    @BeforeEach
+    public void setUp() {
+        GameMetrics metrics = new GameMetrics(new SimpleMeterRegistry());
+        games = new GameService(ratings,
+                mock(SimpMessagingTemplate.class, withSettings().stubOnly()),
+                new GameTimerService(scheduler, metrics, scheduler.getClock()),
+                persistence,
+                mock(GameLoadingCache.class, withSettings().stubOnly()),
+                mock(SpectatorService.class, withSettings().stubOnly()),
+                new ObjectMapper(),
+                metrics,
+                scheduler.getClock());
+        ReflectionTestUtils.setField(games, "resumeBufferSize", 32);
+        ReflectionTestUtils.setField(games, "recoveryPageSize", 200);
+        ReflectionTestUtils.setField(games, "recoveryThreads", 1);
+        ReflectionTestUtils.setField(games, "catchUpWorkers", 1);
+        ReflectionTestUtils.setField(games, "catchUpQueueSize", 10);
+        ReflectionTestUtils.setField(games, "catchUpTimeoutMs", 60_000L);
+        // Nothing to recover; resolution only runs once recovery is complete
+        games.loadActiveGames();
+
+        abandoned = new AbandonedGameService(games, presence);
+        ReflectionTestUtils.setField(abandoned, "enabled", true);
+        ReflectionTestUtils.setField(abandoned, "graceMillis", GRACE_MS);
+    }
+
+    @Test
+    public void testGameIsResolvedOnceBothPlayersAreGoneForTheGrace() {
+        Game game = startGame("alice", "bob");
+        presence.subscribed("s1", "sub-0", "alice", game.getGameId());
+        presence.subscribed("s2", "sub-0", "bob", game.getGameId());
+
+        presence.disconnected("s1");
+        scheduler.advanceBy(Duration.ofSeconds(30));
+        presence.disconnected("s2");
+        // alice has been gone for the grace, bob not yet
+        scheduler.advanceBy(Duration.ofSeconds(45));
+        abandoned.resolveAbandonedGames();
+        assertNotEquals(GamePhase.GAME_OVER, game.getPhase());
+        verify(ratings, never()).submit(any());
+
+        scheduler.advanceBy(Duration.ofSeconds(15));
+        abandoned.resolveAbandonedGames();
+
+        assertEquals(GamePhase.GAME_OVER, game.getPhase());
+        assertNotNull(game.getResult());
+        verify(ratings).submit(game);
+        assertNull(game.getTurnTimer());
+        // No timer of the resolved game is left to fire
+        assertEquals(0, scheduler.runUntilIdle(1000));
+    }
+
+    @Test
+    public void testPlayerInAnotherGameDoesNotKeepThisOneAlive() {
+        Game game = startGame("gail", "hugo");
+        Game other = startGame("gail", "ivan");
+        presence.subscribed("s1", "sub-0", "gail", other.getGameId());
+        presence.subscribed("s2", "sub-0", "ivan", other.getGameId());
+
+        scheduler.advanceBy(Duration.ofMillis(GRACE_MS));
+        abandoned.resolveAbandonedGames();
+
+        assertEquals(GamePhase.GAME_OVER, game.getPhase());
+        assertNotEquals(GamePhase.GAME_OVER, other.getPhase());
+    }
+
+    @Test
+    public void testPlayersNotSeenSinceARestartGetTheGraceFromStartup() {
+        Game game = startGame("carol", "dave");
+
+        scheduler.advanceBy(Duration.ofSeconds(59));
+        abandoned.resolveAbandonedGames();
+        assertNotEquals(GamePhase.GAME_OVER, game.getPhase());
+
+        scheduler.advanceBy(Duration.ofSeconds(1));
+        abandoned.resolveAbandonedGames();
+        assertEquals(GamePhase.GAME_OVER, game.getPhase());
+        verify(ratings).submit(game);
+    }
+
+    @Test
+    public void testGameThatDoesNotFinishIsHandedBackToTheTimers() {
+        Game game = startGame("erin", "frank");
+        // An engine whose timeouts never move the game on
+        GameEngine stuck = spy(new GameEngine());
+        doNothing().when(stuck).handleTimeout(any(), anyString());
+        ReflectionTestUtils.setField(games, "gameEngine", stuck);
+        scheduler.advanceBy(Duration.ofMillis(GRACE_MS));
+        ScheduledFuture<?> timerBefore = game.getTurnTimer();
+        clearInvocations(persistence);
+
+        abandoned.resolveAbandonedGames();
+
+        assertEquals(GamePhase.AMBUSH, game.getPhase());
+        verify(ratings, never()).submit(any());
+        verify(persistence).saveGame(game);
+        // The ambush timer was cancelled for the resolution and armed again
+        assertTrue(timerBefore.isCancelled());
+        assertNotNull(game.getTurnTimer());
+        assertFalse(game.getTurnTimer().isDone());
+    }
+
+    private Game startGame(String p1, String p2) {
+        Game game = games.createGame(p1, p2);
+        games.playerReady(game.getGameId(), "p1", p1);
+        games.playerReady(game.getGameId(), "p2", p2);
+        assertEquals(GamePhase.AMBUSH, game.getPhase());
+        return game;
+    }
+}
@@ -0,0 +1,48 @@
+package com.example.ninjaattack.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BroadcastRingTest {
+
+    @Test
+    public void testReturnsOnlyMissedBroadcasts() {
+        BroadcastRing ring = new BroadcastRing(4);
+        for (long seq = 1; seq <= 6; seq++) {
+            ring.add(dto(seq));
+        }
+
+        List<GameViews> missed = ring.since(3);
+        assertEquals(List.of(4L, 5L, 6L), missed.stream().map(GameViews::seq).toList());
+        assertTrue(ring.since(6).isEmpty());
+    }
+
+    @Test
+    public void testGapTooOldOrUnknownNeedsSnapshot() {
+        BroadcastRing ring = new BroadcastRing(4);
+        for (long seq = 1; seq <= 6; seq++) {
+            ring.add(dto(seq));
+        }
+
+        assertEquals(4, ring.since(2).size());
+        assertNull(ring.since(1));
+        assertNull(ring.since(7));
+    }
+
+    @Test
+    public void testRingStartedMidGameOnlyCoversWhatItSaw() {
+        BroadcastRing ring = new BroadcastRing(4);
+        ring.add(dto(1025));
+        ring.add(dto(1026));
+
+        assertEquals(1, ring.since(1025).size());
+        assertNull(ring.since(1000));
+    }
+
+    private static GameViews dto(long seq) {
+        return new GameViews(seq, "{}", "{}");
+    }
+}
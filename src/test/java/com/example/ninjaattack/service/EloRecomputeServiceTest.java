@@ -0,0 +1,130 @@
+package com.example.ninjaattack.service;
+
+import com.example.ninjaattack.model.dto.EloParameters;
+import com.example.ninjaattack.model.dto.EloSweepRequest;
+import com.example.ninjaattack.model.dto.EloSweepResult;
+import com.example.ninjaattack.repository.GameArchiveRepository;
+import com.example.ninjaattack.repository.GameRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+public class EloRecomputeServiceTest {
+
+    private GameRepository gameRepository;
+    private GameArchiveRepository archive;
+    private EloRatingService eloRatingService;
+    private EloRecomputeService recomputeService;
+
+    @BeforeEach
+    public void setUp() {
+        eloRatingService = new EloRatingService();
+        ReflectionTestUtils.setField(eloRatingService, "fmaBonus", 30);
+        ReflectionTestUtils.setField(eloRatingService, "kFactorProvisional", 40);
+        ReflectionTestUtils.setField(eloRatingService, "kFactorDefault", 32);
+        ReflectionTestUtils.setField(eloRatingService, "provisionalThreshold", 30);
+
+        gameRepository = mock(GameRepository.class);
+        archive = mock(GameArchiveRepository.class);
+        // alice beats bob twice (alice moving first), then bob beats alice; g2 has been archived
+        when(gameRepository.streamByStatusInFinishOrder("FINISHED")).thenAnswer(inv -> Stream.of(
+                row("g1", game("alice", "bob", "p1", "p1")),
+                row("g2", null),
+                row("g3", game("bob", "alice", "p2", "p1")),
+                row("g4", "not json")));
+        when(archive.read("g2")).thenReturn(game("alice", "bob", "p1", "p1"));
+        when(archive.getGameCount()).thenReturn(1L);
+        when(gameRepository.countByGameStateJsonIsNull()).thenReturn(1L);
+
+        recomputeService = new EloRecomputeService(gameRepository, archive, eloRatingService);
+        ReflectionTestUtils.setField(recomputeService, "chunkSize", 2);
+        ReflectionTestUtils.setField(recomputeService, "maxCombinations", 16);
+    }
+
+    @Test
+    public void testRecomputeMatchesSequentialReplay() {
+        EloSweepResult result = recomputeService.recompute();
+
+        int alice = 1200, bob = 1200;
+        int[][] games = { { 1, 1 }, { 1, 1 }, { 0, 1 } }; // {alice won?, alice moved first?}
+        for (int i = 0; i < games.length; i++) {
+            double aliceScore = games[i][0];
+            boolean aliceFirst = games[i][1] == 1;
+            int newAlice = eloRatingService.calculateNewRating(alice, bob, aliceScore, aliceFirst, i);
+            int newBob = eloRatingService.calculateNewRating(bob, alice, 1 - aliceScore, !aliceFirst, i);
+            alice = newAlice;
+            bob = newBob;
+        }
+
+        assertEquals(3, result.getGamesProcessed());
+        assertEquals(alice, result.getRatings().get("alice"));
+        assertEquals(bob, result.getRatings().get("bob"));
+    }
+
+    @Test
+    public void testRecomputeRefusesWhenArchivedGamesLostTheirRows() {
+        when(archive.getGameCount()).thenReturn(3L);
+
+        assertThrows(IllegalStateException.class, () -> recomputeService.recompute());
+        verify(gameRepository, never()).streamByStatusInFinishOrder(any());
+    }
+
+    @Test
+    public void testSweepExpandsGridAndSortsByLogLoss() {
+        EloSweepRequest request = new EloSweepRequest();
+        request.setProvisionalKFactors(List.of(0, 40));
+        request.setFmaBonuses(List.of(0, 30));
+
+        List<EloSweepResult> results = recomputeService.sweep(request);
+
+        assertEquals(4, results.size());
+        for (int i = 1; i < results.size(); i++) {
+            assertTrue(results.get(i - 1).getLogLoss() <= results.get(i).getLogLoss());
+        }
+        results.forEach(r -> assertNull(r.getRatings()));
+    }
+
+    @Test
+    public void testSweepRejectsOversizedGrid() {
+        EloSweepRequest request = new EloSweepRequest();
+        request.setFmaBonuses(List.of(0, 10, 20, 30, 40));
+        request.setDefaultKFactors(List.of(16, 24, 32, 40));
+
+        assertThrows(IllegalArgumentException.class, () -> recomputeService.sweep(request));
+    }
+
+    @Test
+    public void testExpandGridUsesConfiguredValuesForMissingLists() {
+        List<EloParameters> grid = recomputeService.expandGrid(new EloSweepRequest());
+
+        assertEquals(List.of(eloRatingService.getParameters()), grid);
+    }
+
+    private static String game(String p1, String p2, String firstMover, String winner) {
+        return "{\"firstMovePlayerId\":\"" + firstMover + "\","
+                + "\"p1\":{\"id\":\"p1\",\"username\":\"" + p1 + "\"},"
+                + "\"p2\":{\"id\":\"p2\",\"username\":\"" + p2 + "\"},"
+                + "\"result\":{\"winnerId\":\"" + winner + "\"}}";
+    }
+
+    private static GameRepository.GameStateRow row(String id, String json) {
+        return new GameRepository.GameStateRow() {
+            @Override
+            public String getId() {
+                return id;
+            }
+
+            @Override
+            public String getGameStateJson() {
+                return json;
+            }
+        };
+    }
+}
@@ -0,0 +1,136 @@
+package com.example.ninjaattack.service;
+
+import com.example.ninjaattack.model.domain.Game;
+import com.example.ninjaattack.model.domain.GamePhase;
+import com.example.ninjaattack.model.dto.CommandAck;
+import com.example.ninjaattack.model.dto.GameStateDTO;
+import com.example.ninjaattack.model.dto.MoveRequest;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+/**
+ * Commands for games spilled out of the live map, through the real loading cache.
+ */
+public class GameEvictionTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+    private final VirtualTimeScheduler scheduler = new VirtualTimeScheduler(Instant.parse("2024-01-01T00:00:00Z"));
+    private final Map<String, String> rows = new ConcurrentHashMap<>();
+    private GamePersistenceService persistence;
+    private final GameService games = newGameService();
+
+    @Test
+    public void testCommandsForEvictedGamesDoNotRecurse() {
+        Game waiting = games.createGame("a", "b");
+        Game playing = games.createGame("c", "d");
+        games.playerReady(playing.getGameId(), "p1", "c");
+        games.playerReady(playing.getGameId(), "p2", "d");
+        // Both ambush timers run out, which moves the game on to placement
+        scheduler.advanceBy(Duration.ofSeconds(16));
+        assertEquals(GamePhase.PLACEMENT, playing.getPhase());
+
+        assertEquals(2, games.evictIdleGames(0));
+        assertTrue(waiting.isEvicted());
+        assertTrue(playing.isEvicted());
+        // Eviction only queues its writes, it never waits for the writer under the game lock
+        verify(persistence, never()).writeGame(any());
+
+        // The cancelled PRE_GAME game is answered from memory and never starts
+        games.playerReady(waiting.getGameId(), "p1", "a");
+        games.playerReady(waiting.getGameId(), "p2", "b");
+        assertThrows(IllegalStateException.class,
+                () -> games.placeAmbush(waiting.getGameId(), move("p1", 0, 0), "a"));
+
+        // The PLACEMENT game is rehydrated from its stored row and takes the move
+        String playerId = playing.getCurrentTurnPlayerId();
+        int[] square = freeSquare(playing);
+        String username = "p1".equals(playerId) ? "c" : "d";
+        assertEquals(CommandAck.Status.APPLIED,
+                games.placePiece(playing.getGameId(), move(playerId, square[0], square[1]), username));
+        assertEquals(1, games.evictIdleGames(0));
+    }
+
+    @Test
+    public void testGameEndedByTheCatchUpOfItsRehydrationIsStillFound() throws Exception {
+        Game playing = games.createGame("e", "f");
+        games.playerReady(playing.getGameId(), "p1", "e");
+        games.playerReady(playing.getGameId(), "p2", "f");
+        scheduler.advanceBy(Duration.ofSeconds(16));
+        assertEquals(1, games.evictIdleGames(0));
+
+        // Stored on p1's last extra turn, whose deadline passes while the game is spilled
+        Game stored = objectMapper.readValue(rows.get(playing.getGameId()), Game.class);
+        stored.setPhase(GamePhase.EXTRA_ROUNDS);
+        stored.setCurrentTurnPlayerId("p1");
+        stored.getP1().setExtraTurns(1);
+        stored.getP2().setExtraTurns(0);
+        stored.armTimer("p1", scheduler.getClock().millis() + 1_000);
+        rows.put(playing.getGameId(), objectMapper.writeValueAsString(stored));
+        scheduler.advanceBy(Duration.ofSeconds(5));
+
+        // The catch-up ends the game on load, which takes it out of the live map again
+        GameStateDTO state = games.getStateForSpectators(playing.getGameId());
+        assertNotNull(state);
+        assertEquals(GamePhase.GAME_OVER, state.getPhase());
+    }
+
+    private static int[] freeSquare(Game game) {
+        for (int r = 0; r < 6; r++) {
+            for (int c = 0; c < 6; c++) {
+                if (game.getBoard().getSquare(r, c).getOwnerId() == null) {
+                    return new int[] { r, c };
+                }
+            }
+        }
+        throw new IllegalStateException("board is full");
+    }
+
+    private static MoveRequest move(String playerId, int r, int c) {
+        MoveRequest move = new MoveRequest();
+        move.setPlayerId(playerId);
+        move.setR(r);
+        move.setC(c);
+        return move;
+    }
+
+    private GameService newGameService() {
+        persistence = mock(GamePersistenceService.class);
+        doAnswer(invocation -> {
+            Game game = invocation.getArgument(0);
+            rows.put(game.getGameId(), objectMapper.writeValueAsString(game));
+            return null;
+        }).when(persistence).saveGame(any());
+        when(persistence.loadGame(anyString())).thenAnswer(invocation -> {
+            String json = rows.get(invocation.<String>getArgument(0));
+            return json == null ? null : objectMapper.readValue(json, Game.class);
+        });
+
+        GameMetrics metrics = new GameMetrics(new SimpleMeterRegistry());
+        GameService service = new GameService(mock(RatingUpdatePipeline.class),
+                mock(SimpMessagingTemplate.class, withSettings().stubOnly()),
+                new GameTimerService(scheduler, metrics, scheduler.getClock()),
+                persistence,
+                new GameLoadingCache(persistence, 60_000, 100, 60_000, 100, scheduler.getClock()),
+                mock(SpectatorService.class, withSettings().stubOnly()),
+                objectMapper,
+                metrics,
+                scheduler.getClock());
+        ReflectionTestUtils.setField(service, "resumeBufferSize", 32);
+        return service;
+    }
+}
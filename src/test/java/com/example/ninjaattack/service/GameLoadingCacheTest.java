@@ -0,0 +1,143 @@
+package com.example.ninjaattack.service;
+
+import com.example.ninjaattack.model.domain.Game;
+import com.example.ninjaattack.model.domain.GamePhase;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class GameLoadingCacheTest {
+
+    private final VirtualTimeScheduler scheduler = new VirtualTimeScheduler(Instant.parse("2024-01-01T00:00:00Z"));
+    private GamePersistenceService persistence;
+    private GameLoadingCache cache;
+
+    @BeforeEach
+    public void setUp() {
+        persistence = mock(GamePersistenceService.class);
+        cache = new GameLoadingCache(persistence, 60_000, 100, 60_000, 100, scheduler.getClock());
+    }
+
+    @Test
+    public void testUnknownIdIsNegativelyCached() {
+        String id = UUID.randomUUID().toString();
+
+        assertNull(cache.get(id, g -> g));
+        assertNull(cache.get(id, g -> g));
+
+        verify(persistence, times(1)).loadGame(id);
+        assertEquals(1, cache.getNegativeHitCount());
+    }
+
+    @Test
+    public void testNegativeEntryExpiresAfterItsTtl() {
+        String id = UUID.randomUUID().toString();
+        assertNull(cache.get(id, g -> g));
+
+        scheduler.advanceBy(Duration.ofMillis(59_999));
+        assertNull(cache.get(id, g -> g));
+        verify(persistence, times(1)).loadGame(id);
+
+        scheduler.advanceBy(Duration.ofMillis(1));
+        assertNull(cache.get(id, g -> g));
+        verify(persistence, times(2)).loadGame(id);
+    }
+
+    @Test
+    public void testFinishedEntryExpiresAfterItsTtl() {
+        Game game = new Game("alice", "bob");
+        game.setPhase(GamePhase.GAME_OVER);
+        cache.putFinished(game);
+
+        scheduler.advanceBy(Duration.ofMillis(59_999));
+        assertSame(game, cache.get(game.getGameId(), g -> g));
+        verify(persistence, never()).loadGame(game.getGameId());
+
+        scheduler.advanceBy(Duration.ofMillis(1));
+        assertNull(cache.get(game.getGameId(), g -> g));
+        verify(persistence, times(1)).loadGame(game.getGameId());
+    }
+
+    @Test
+    public void testMalformedIdNeverReachesDatabase() {
+        assertNull(cache.get("garbage", g -> g));
+
+        verifyNoInteractions(persistence);
+    }
+
+    @Test
+    public void testFinishedGameIsNotAdopted() {
+        Game game = game(GamePhase.GAME_OVER);
+        when(persistence.loadGame(game.getGameId())).thenReturn(game);
+        AtomicInteger adopted = new AtomicInteger();
+
+        assertSame(game, cache.get(game.getGameId(), g -> {
+            adopted.incrementAndGet();
+            return g;
+        }));
+        assertSame(game, cache.get(game.getGameId(), g -> g));
+
+        assertEquals(0, adopted.get());
+        verify(persistence, times(1)).loadGame(game.getGameId());
+    }
+
+    @Test
+    public void testLiveGameIsAdopted() {
+        Game game = game(GamePhase.PLACEMENT);
+        when(persistence.loadGame(game.getGameId())).thenReturn(game);
+        Game adoptedInstance = game(GamePhase.PLACEMENT);
+
+        assertSame(adoptedInstance, cache.get(game.getGameId(), g -> adoptedInstance));
+    }
+
+    @Test
+    public void testConcurrentMissesShareOneLoad() throws Exception {
+        Game game = game(GamePhase.AMBUSH);
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(persistence.loadGame(game.getGameId())).thenAnswer(inv -> {
+            loading.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return game;
+        });
+
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try {
+            Future<Game> first = pool.submit(() -> cache.get(game.getGameId(), g -> g));
+            assertTrue(loading.await(5, TimeUnit.SECONDS));
+            Future<Game> second = pool.submit(() -> cache.get(game.getGameId(), g -> g));
+            Future<Game> third = pool.submit(() -> cache.get(game.getGameId(), g -> g));
+
+            // Give the followers time to find the in-flight load
+            while (cache.getCoalescedLoadCount() < 2) {
+                Thread.sleep(5);
+            }
+            release.countDown();
+
+            assertSame(game, first.get(5, TimeUnit.SECONDS));
+            assertSame(game, second.get(5, TimeUnit.SECONDS));
+            assertSame(game, third.get(5, TimeUnit.SECONDS));
+        } finally {
+            pool.shutdownNow();
+        }
+        verify(persistence, times(1)).loadGame(game.getGameId());
+    }
+
+    private static Game game(GamePhase phase) {
+        Game game = new Game("alice", "bob");
+        game.setPhase(phase);
+        return game;
+    }
+}
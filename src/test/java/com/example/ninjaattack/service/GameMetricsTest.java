@@ -0,0 +1,36 @@
+package com.example.ninjaattack.service;
+
+import com.example.ninjaattack.model.domain.Game;
+import com.example.ninjaattack.model.domain.GamePhase;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GameMetricsTest {
+
+    @Test
+    public void testActiveGamesFollowPhaseChanges() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        GameMetrics metrics = new GameMetrics(registry);
+        Game game = new Game("alice", "bob");
+
+        metrics.gameTracked(game);
+        metrics.gameTracked(game);
+        assertEquals(1, metrics.getActiveGames(GamePhase.PRE_GAME));
+
+        game.setPhase(GamePhase.AMBUSH);
+        metrics.phaseObserved(game);
+        assertEquals(0, metrics.getActiveGames(GamePhase.PRE_GAME));
+        assertEquals(1.0, registry.get("game.active").tag("phase", "AMBUSH").gauge().value());
+
+        metrics.gameUntracked(game);
+        metrics.gameUntracked(game);
+        assertEquals(0, metrics.getActiveGames(GamePhase.AMBUSH));
+
+        // Broadcasts after leaving the live map do not count it again
+        game.setPhase(GamePhase.GAME_OVER);
+        metrics.phaseObserved(game);
+        assertEquals(0, metrics.getActiveGames(GamePhase.GAME_OVER));
+    }
+}
@@ -0,0 +1,235 @@
+package com.example.ninjaattack.service;
+
+import com.example.ninjaattack.model.domain.Game;
+import com.example.ninjaattack.model.domain.GamePhase;
+import com.example.ninjaattack.model.domain.GameResult;
+import com.example.ninjaattack.model.domain.Player;
+import com.example.ninjaattack.model.entity.GameEntity;
+import com.example.ninjaattack.repository.GameArchiveRepository;
+import com.example.ninjaattack.repository.GameRepository;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+public class GamePersistenceServiceTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final GameRepository gameRepository = mock(GameRepository.class);
+    private final GameArchiveRepository archive = mock(GameArchiveRepository.class);
+    private final GameMetrics metrics = new GameMetrics(new SimpleMeterRegistry());
+    private final GamePersistenceService persistence = new GamePersistenceService(gameRepository, archive,
+            objectMapper, metrics, 1);
+
+    @Test
+    public void testCurrentSchemaRowIsPassedThroughAsStored() throws Exception {
+        String stored = objectMapper.writeValueAsString(game("g1", GamePhase.GAME_OVER));
+        when(gameRepository.findGameStateJsonById("g1")).thenReturn(Optional.of(stored));
+
+        GamePersistenceService.StoredGameJson replay = persistence.loadGameJson("g1");
+
+        assertSame(stored, replay.json());
+        assertTrue(replay.finished());
+        assertFalse(replay.rated());
+        verifyNoInteractions(archive);
+    }
+
+    @Test
+    public void testRatedResultIsSeenInTheStoredRow() throws Exception {
+        Game game = game("g9", GamePhase.GAME_OVER);
+        game.setResult(new GameResult());
+        game.getResult().setP1RatingChange(16);
+        game.getResult().setP2RatingChange(-16);
+        game.getResult().setRated(true);
+        String rated = objectMapper.writeValueAsString(game);
+        // Rated before the flag existed: the changes alone tell
+        ObjectNode legacy = objectMapper.valueToTree(game);
+        ((ObjectNode) legacy.get("result")).remove("rated");
+        when(gameRepository.findGameStateJsonById("g9")).thenReturn(Optional.of(rated), Optional.of(legacy.toString()));
+
+        assertTrue(persistence.loadGameJson("g9").rated());
+        assertTrue(persistence.loadGameJson("g9").rated());
+    }
+
+    @Test
+    public void testLegacyArchivedRowIsUpgraded() throws Exception {
+        // Written before the schema version existed, with a field since dropped
+        ObjectNode legacy = objectMapper.valueToTree(game("g2", GamePhase.PLACEMENT));
+        legacy.remove("schemaVersion");
+        legacy.put("spectatorCount", 3);
+        when(gameRepository.findGameStateJsonById("g2")).thenReturn(Optional.empty());
+        when(archive.read("g2")).thenReturn(legacy.toString());
+
+        GamePersistenceService.StoredGameJson replay = persistence.loadGameJson("g2");
+
+        JsonNode upgraded = objectMapper.readTree(replay.json());
+        assertEquals(Game.CURRENT_SCHEMA_VERSION, upgraded.get("schemaVersion").asInt());
+        assertFalse(upgraded.has("spectatorCount"));
+        assertEquals("g2", upgraded.get("gameId").asText());
+        assertFalse(replay.finished());
+    }
+
+    @Test
+    public void testWritesOfOneGameLandInSubmissionOrder() throws Exception {
+        Game game = game("g4", GamePhase.PLACEMENT);
+        game.setP1(new Player());
+        game.setP2(new Player());
+        Map<String, GameEntity> rows = new ConcurrentHashMap<>();
+        List<GamePhase> written = new CopyOnWriteArrayList<>();
+        CountDownLatch moved = new CountDownLatch(1);
+        when(gameRepository.findById("g4")).thenAnswer(inv -> {
+            // The first write only gets going once the game has moved on
+            moved.await(5, TimeUnit.SECONDS);
+            return Optional.ofNullable(rows.get("g4"));
+        });
+        when(gameRepository.save(any())).thenAnswer(inv -> {
+            GameEntity entity = inv.getArgument(0);
+            // A slow first write: an unserialized second write would overtake it
+            if (written.isEmpty()) {
+                Thread.sleep(100);
+            }
+            written.add(objectMapper.readValue(entity.getGameStateJson(), Game.class).getPhase());
+            rows.put(entity.getId(), entity);
+            return entity;
+        });
+
+        // One live instance, as GameService saves it: the game moves on while the
+        // first write is still queued, which must not change what that write stores
+        persistence.saveGame(game);
+        game.setPhase(GamePhase.GAME_OVER);
+        moved.countDown();
+        persistence.writeGame(game);
+
+        assertEquals(List.of(GamePhase.PLACEMENT, GamePhase.GAME_OVER), written);
+        verify(gameRepository, times(2)).findById("g4");
+    }
+
+    @Test
+    public void testLoadWaitsForTheQueuedWritesOfTheGame() throws Exception {
+        Game game = game("g10", GamePhase.PLACEMENT);
+        game.setP1(new Player());
+        game.setP2(new Player());
+        Map<String, String> rows = new ConcurrentHashMap<>();
+        when(gameRepository.findById("g10")).thenReturn(Optional.empty());
+        when(gameRepository.save(any())).thenAnswer(inv -> {
+            GameEntity entity = inv.getArgument(0);
+            // A slow eviction write, still running when the game is loaded again
+            Thread.sleep(100);
+            rows.put(entity.getId(), entity.getGameStateJson());
+            return entity;
+        });
+        when(gameRepository.findGameStateJsonById("g10")).thenAnswer(inv -> Optional.ofNullable(rows.get("g10")));
+
+        persistence.saveGame(game);
+        Game loaded = persistence.loadGame("g10");
+
+        assertNotNull(loaded);
+        assertEquals(GamePhase.PLACEMENT, loaded.getPhase());
+    }
+
+    @Test
+    public void testFinishTimeIsKeptWhenTheRatedResultIsWritten() {
+        Game game = game("g5", GamePhase.GAME_OVER);
+        game.setP1(new Player());
+        game.setP2(new Player());
+        game.setResult(new GameResult());
+        Map<String, GameEntity> rows = new ConcurrentHashMap<>();
+        when(gameRepository.findById("g5")).thenAnswer(inv -> Optional.ofNullable(rows.get("g5")));
+        when(gameRepository.save(any())).thenAnswer(inv -> {
+            GameEntity entity = inv.getArgument(0);
+            rows.put(entity.getId(), entity);
+            return entity;
+        });
+
+        persistence.writeGame(game);
+        LocalDateTime finishedAt = rows.get("g5").getFinishedAt();
+        assertNotNull(finishedAt);
+
+        game.getResult().setP1RatingChange(16);
+        persistence.writeGame(game);
+        assertSame(finishedAt, rows.get("g5").getFinishedAt());
+    }
+
+    @Test
+    public void testRatingIsPendingFromGameOverUntilTheDeltasAreWritten() {
+        Game game = game("g11", GamePhase.PLACEMENT);
+        game.setP1(new Player());
+        game.setP2(new Player());
+        Map<String, GameEntity> rows = new ConcurrentHashMap<>();
+        when(gameRepository.findById("g11")).thenAnswer(inv -> Optional.ofNullable(rows.get("g11")));
+        when(gameRepository.save(any())).thenAnswer(inv -> {
+            GameEntity entity = inv.getArgument(0);
+            rows.put(entity.getId(), entity);
+            return entity;
+        });
+
+        persistence.writeGame(game);
+        assertNull(rows.get("g11").getRatingPending());
+
+        game.setPhase(GamePhase.GAME_OVER);
+        game.setResult(new GameResult());
+        persistence.writeGame(game);
+        assertTrue(rows.get("g11").getRatingPending());
+
+        game.getResult().setRated(true);
+        persistence.writeGame(game);
+        assertFalse(rows.get("g11").getRatingPending());
+    }
+
+    @Test
+    public void testFailedWriteIsCounted() {
+        Game game = game("g8", GamePhase.PLACEMENT);
+        game.setP1(new Player());
+        game.setP2(new Player());
+        when(gameRepository.findById("g8")).thenReturn(Optional.empty());
+        when(gameRepository.save(any())).thenThrow(new IllegalStateException("connection lost"));
+
+        persistence.writeGame(game);
+
+        assertEquals(1.0, metrics.getSaveFailures());
+    }
+
+    @Test
+    public void testFinishedGamesIncludeArchivedRows() throws Exception {
+        GameEntity live = new GameEntity();
+        live.setId("g6");
+        live.setGameStateJson(objectMapper.writeValueAsString(game("g6", GamePhase.GAME_OVER)));
+        GameEntity archived = new GameEntity();
+        archived.setId("g7");
+        when(gameRepository.findByStatus("FINISHED")).thenReturn(List.of(live, archived));
+        when(archive.read("g7")).thenReturn(objectMapper.writeValueAsString(game("g7", GamePhase.GAME_OVER)));
+
+        List<Game> games = persistence.loadFinishedGames();
+
+        assertEquals(List.of("g6", "g7"), games.stream().map(Game::getGameId).toList());
+        verify(archive, never()).read("g6");
+    }
+
+    @Test
+    public void testUnknownGameIsNull() {
+        when(gameRepository.findGameStateJsonById("g3")).thenReturn(Optional.empty());
+
+        assertNull(persistence.loadGameJson("g3"));
+    }
+
+    private static Game game(String gameId, GamePhase phase) {
+        Game game = new Game();
+        game.setGameId(gameId);
+        game.setPhase(phase);
+        return game;
+    }
+}
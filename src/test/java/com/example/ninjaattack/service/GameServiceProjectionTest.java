@@ -0,0 +1,60 @@
+package com.example.ninjaattack.service;
+
+import com.example.ninjaattack.model.domain.Board;
+import com.example.ninjaattack.model.dto.GameResumeDTO;
+import com.example.ninjaattack.model.dto.GameStateDTO;
+import com.example.ninjaattack.model.dto.RawJson;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GameServiceProjectionTest {
+
+    @Test
+    public void testEachPlayerSeesOnlyOwnAmbushes() throws Exception {
+        Board board = new Board();
+        board.getSquare(0, 0).setP1Ambush(true);
+        board.getSquare(5, 5).setP2Ambush(true);
+        GameStateDTO state = new GameStateDTO();
+        state.setGameId("g1");
+        state.setSeq(7);
+        state.setBoard(board);
+        state.setP1CommandSeq(12);
+        state.setP2CommandSeq(30);
+
+        GameStateDTO p1View = GameService.projectFor(state, "p1");
+        assertTrue(p1View.getBoard().getSquare(0, 0).isP1Ambush());
+        assertFalse(p1View.getBoard().getSquare(5, 5).isP2Ambush());
+        assertEquals(7, p1View.getSeq());
+        assertEquals(12, p1View.getCommandSeq());
+
+        GameStateDTO p2View = GameService.projectFor(state, "p2");
+        assertFalse(p2View.getBoard().getSquare(0, 0).isP1Ambush());
+        assertTrue(p2View.getBoard().getSquare(5, 5).isP2Ambush());
+        assertEquals(30, p2View.getCommandSeq());
+
+        // Only the viewer's own seq is written out
+        String json = new ObjectMapper().writeValueAsString(p2View);
+        assertTrue(json.contains("\"commandSeq\":30"), json);
+        assertFalse(json.contains("p1CommandSeq"), json);
+
+        // The live board is untouched
+        assertTrue(board.getSquare(0, 0).isP1Ambush());
+        assertTrue(board.getSquare(5, 5).isP2Ambush());
+    }
+
+    @Test
+    public void testResumeEmbedsRenderedViewsVerbatim() throws Exception {
+        GameResumeDTO resume = new GameResumeDTO();
+        resume.setGameId("g1");
+        resume.setLatestSeq(2);
+        resume.setEvents(List.of(new RawJson("{\"seq\":2}")));
+
+        String json = new ObjectMapper().writeValueAsString(resume);
+
+        assertTrue(json.contains("\"events\":[{\"seq\":2}]"), json);
+    }
+}
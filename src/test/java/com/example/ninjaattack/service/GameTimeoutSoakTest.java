@@ -0,0 +1,216 @@
+package com.example.ninjaattack.service;
+
+import com.example.ninjaattack.model.domain.Game;
+import com.example.ninjaattack.model.domain.GamePhase;
+import com.example.ninjaattack.model.entity.GameEntity;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+/**
+ * Whole games driven only by timeouts, on virtual time: hours of turn timers
+ * run in well under a second of CI time.
+ */
+public class GameTimeoutSoakTest {
+
+    private static final Instant START = Instant.parse("2024-01-01T00:00:00Z");
+
+    private final ObjectMapper objectMapper = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+    @Test
+    public void testGamesWhereEveryTurnTimesOutPlayToTheEnd() {
+        VirtualTimeScheduler scheduler = new VirtualTimeScheduler(START);
+        GameMetrics metrics = new GameMetrics(new SimpleMeterRegistry());
+        RatingUpdatePipeline ratings = mock(RatingUpdatePipeline.class);
+        GameService games = newGameService(scheduler, metrics, ratings, mock(GamePersistenceService.class,
+                withSettings().stubOnly()));
+
+        List<Game> started = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            Game game = games.createGame("a" + i, "b" + i);
+            games.playerReady(game.getGameId(), "p1", "a" + i);
+            games.playerReady(game.getGameId(), "p2", "b" + i);
+            started.add(game);
+        }
+
+        scheduler.runUntilIdle(100_000);
+
+        started.forEach(game -> assertEquals(GamePhase.GAME_OVER, game.getPhase(), game.getGameId()));
+        verify(ratings, times(500)).submit(any());
+        // Four rounds of one ambush timeout and six placement timeouts, 15 s each
+        assertTrue(scheduler.getClock().millis() - START.toEpochMilli() >= 4 * 7 * 15_000L);
+        for (String timer : List.of(GameTimerService.TURN, GameTimerService.AMBUSH)) {
+            assertEquals(0, metrics.getTimerFires(timer, GameMetrics.TimerOutcome.EARLY));
+            assertEquals(0, metrics.getTimerFires(timer, GameMetrics.TimerOutcome.DOUBLE));
+        }
+    }
+
+    @Test
+    public void testGamesRecoveredAfterARestartCatchUpAndFinish() {
+        // First node: games started a moment apart, so the crash finds them at different points
+        VirtualTimeScheduler before = new VirtualTimeScheduler(START);
+        Map<String, Game> saved = new ConcurrentHashMap<>();
+        GamePersistenceService persistenceBefore = mock(GamePersistenceService.class, withSettings().stubOnly());
+        doAnswer(invocation -> {
+            Game game = invocation.getArgument(0);
+            saved.put(game.getGameId(), game);
+            return null;
+        }).when(persistenceBefore).saveGame(any());
+        GameService nodeBefore = newGameService(before, new GameMetrics(new SimpleMeterRegistry()),
+                mock(RatingUpdatePipeline.class), persistenceBefore);
+
+        for (int i = 0; i < 1000; i++) {
+            Game game = nodeBefore.createGame("a" + i, "b" + i);
+            nodeBefore.playerReady(game.getGameId(), "p1", "a" + i);
+            nodeBefore.playerReady(game.getGameId(), "p2", "b" + i);
+            before.advanceBy(Duration.ofMillis(347));
+        }
+
+        List<GameEntity> rows = new ArrayList<>();
+        for (Game game : saved.values()) {
+            if (game.getPhase() != GamePhase.GAME_OVER) {
+                GameEntity row = new GameEntity();
+                row.setId(game.getGameId());
+                row.setGameStateJson(write(game));
+                rows.add(row);
+            }
+        }
+        assertTrue(rows.size() > 500, "games in progress at the crash: " + rows.size());
+
+        // Second node comes up a minute later: every stored deadline has passed
+        VirtualTimeScheduler after = new VirtualTimeScheduler(
+                Instant.ofEpochMilli(before.getClock().millis()).plus(Duration.ofMinutes(1)));
+        List<Game> recovered = new ArrayList<>();
+        GamePersistenceService persistenceAfter = mock(GamePersistenceService.class, withSettings().stubOnly());
+        doAnswer(invocation -> {
+            Consumer<List<GameEntity>> pageConsumer = invocation.getArgument(1);
+            pageConsumer.accept(rows);
+            return null;
+        }).when(persistenceAfter).forEachActiveGamePage(anyInt(), any());
+        when(persistenceAfter.parseGame(any())).thenAnswer(invocation -> {
+            Game game = objectMapper.readValue(invocation.<GameEntity>getArgument(0).getGameStateJson(), Game.class);
+            synchronized (recovered) {
+                recovered.add(game);
+            }
+            return game;
+        });
+        GameMetrics metricsAfter = new GameMetrics(new SimpleMeterRegistry());
+        RatingUpdatePipeline ratingsAfter = mock(RatingUpdatePipeline.class);
+        GameService nodeAfter = newGameService(after, metricsAfter, ratingsAfter, persistenceAfter);
+
+        nodeAfter.loadActiveGames();
+        assertTrue(nodeAfter.isRecoveryComplete());
+        after.runUntilIdle(200_000);
+
+        assertEquals(rows.size(), recovered.size());
+        recovered.forEach(game -> assertEquals(GamePhase.GAME_OVER, game.getPhase(), game.getGameId()));
+        verify(ratingsAfter, times(rows.size())).submit(any());
+        assertEquals(0, metricsAfter.getTimerFires(GameTimerService.TURN, GameMetrics.TimerOutcome.DOUBLE));
+    }
+
+    @Test
+    public void testRecoveryIsIncompleteUntilEveryCatchUpHasRun() throws Exception {
+        VirtualTimeScheduler before = new VirtualTimeScheduler(START);
+        List<GameEntity> rows = new ArrayList<>();
+        GamePersistenceService persistenceBefore = mock(GamePersistenceService.class, withSettings().stubOnly());
+        doAnswer(invocation -> {
+            Game game = invocation.getArgument(0);
+            GameEntity row = new GameEntity();
+            row.setId(game.getGameId());
+            row.setGameStateJson(write(game));
+            rows.removeIf(r -> r.getId().equals(row.getId()));
+            rows.add(row);
+            return null;
+        }).when(persistenceBefore).saveGame(any());
+        GameService nodeBefore = newGameService(before, new GameMetrics(new SimpleMeterRegistry()),
+                mock(RatingUpdatePipeline.class), persistenceBefore);
+        for (int i = 0; i < 3; i++) {
+            Game game = nodeBefore.createGame("a" + i, "b" + i);
+            nodeBefore.playerReady(game.getGameId(), "p1", "a" + i);
+            nodeBefore.playerReady(game.getGameId(), "p2", "b" + i);
+        }
+
+        // The catch-ups stall in their first broadcast until released
+        CountDownLatch release = new CountDownLatch(1);
+        SimpMessagingTemplate messaging = mock(SimpMessagingTemplate.class);
+        doAnswer(invocation -> {
+            release.await();
+            return null;
+        }).when(messaging).convertAndSendToUser(anyString(), anyString(), any(Object.class));
+        GamePersistenceService persistenceAfter = mock(GamePersistenceService.class, withSettings().stubOnly());
+        doAnswer(invocation -> {
+            Consumer<List<GameEntity>> pageConsumer = invocation.getArgument(1);
+            pageConsumer.accept(rows);
+            return null;
+        }).when(persistenceAfter).forEachActiveGamePage(anyInt(), any());
+        when(persistenceAfter.parseGame(any())).thenAnswer(invocation -> objectMapper.readValue(
+                invocation.<GameEntity>getArgument(0).getGameStateJson(), Game.class));
+        VirtualTimeScheduler after = new VirtualTimeScheduler(START.plus(Duration.ofMinutes(1)));
+        GameService nodeAfter = newGameService(after, new GameMetrics(new SimpleMeterRegistry()),
+                mock(RatingUpdatePipeline.class), persistenceAfter, messaging);
+        ReflectionTestUtils.setField(nodeAfter, "catchUpTimeoutMs", 100L);
+
+        nodeAfter.loadActiveGames();
+        assertFalse(nodeAfter.isRecoveryComplete());
+
+        release.countDown();
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!nodeAfter.isRecoveryComplete() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertTrue(nodeAfter.isRecoveryComplete());
+    }
+
+    private GameService newGameService(VirtualTimeScheduler scheduler, GameMetrics metrics,
+            RatingUpdatePipeline ratings, GamePersistenceService persistence) {
+        return newGameService(scheduler, metrics, ratings, persistence,
+                mock(SimpMessagingTemplate.class, withSettings().stubOnly()));
+    }
+
+    private GameService newGameService(VirtualTimeScheduler scheduler, GameMetrics metrics,
+            RatingUpdatePipeline ratings, GamePersistenceService persistence, SimpMessagingTemplate messaging) {
+        GameService service = new GameService(ratings,
+                messaging,
+                new GameTimerService(scheduler, metrics, scheduler.getClock()),
+                persistence,
+                mock(GameLoadingCache.class, withSettings().stubOnly()),
+                mock(SpectatorService.class, withSettings().stubOnly()),
+                objectMapper,
+                metrics,
+                scheduler.getClock());
+        ReflectionTestUtils.setField(service, "resumeBufferSize", 32);
+        ReflectionTestUtils.setField(service, "recoveryPageSize", 200);
+        ReflectionTestUtils.setField(service, "recoveryThreads", 4);
+        ReflectionTestUtils.setField(service, "catchUpWorkers", 4);
+        ReflectionTestUtils.setField(service, "catchUpQueueSize", 1000);
+        ReflectionTestUtils.setField(service, "catchUpTimeoutMs", 60_000L);
+        return service;
+    }
+
+    private String write(Game game) {
+        try {
+            return objectMapper.writeValueAsString(game);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
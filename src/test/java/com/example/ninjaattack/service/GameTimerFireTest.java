@@ -0,0 +1,232 @@
+package com.example.ninjaattack.service;
+
+import com.example.ninjaattack.model.domain.Game;
+import com.example.ninjaattack.model.domain.GamePhase;
+import com.example.ninjaattack.model.dto.CommandAck;
+import com.example.ninjaattack.model.dto.MoveRequest;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ScheduledFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * How the timeout handlers classify a timer fire, and the watchdog's recovery
+ * of deadlines no timer handled, on virtual time.
+ */
+public class GameTimerFireTest {
+
+    private static final long GRACE_MS = 5_000;
+
+    private final SkewedScheduler scheduler = new SkewedScheduler(Instant.parse("2024-01-01T00:00:00Z"));
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final GameService games = newGameService();
+
+    @Test
+    public void testEarlyFireIsReArmedForTheDeadline() {
+        scheduler.skewMillis = 2_000;
+        Game game = startGame("alice", "bob");
+        long deadline = game.getP1ActionDeadline();
+        scheduler.skewMillis = 0;
+
+        scheduler.advanceBy(Duration.ofMillis(deadline - scheduler.getClock().millis() - 2_000));
+        assertEquals(1, fires(GameTimerService.AMBUSH, GameMetrics.TimerOutcome.EARLY));
+        assertEquals(GamePhase.AMBUSH, game.getPhase());
+        assertEquals(deadline, game.getP1ActionDeadline());
+        assertFalse(game.getTurnTimer().isDone());
+
+        scheduler.advanceBy(Duration.ofMillis(2_000));
+        assertEquals(1, fires(GameTimerService.AMBUSH, GameMetrics.TimerOutcome.APPLIED));
+        assertEquals(GamePhase.PLACEMENT, game.getPhase());
+    }
+
+    @Test
+    public void testFireSupersededByAMoveIsStale() {
+        Game game = toPlacement(startGame("carol", "dave"));
+        Runnable turnTimer = scheduler.lastArmed();
+        // The move re-arms the turn timer for a later deadline
+        scheduler.advanceBy(Duration.ofSeconds(1));
+        String playerId = game.getCurrentTurnPlayerId();
+        int[] square = freeSquare(game);
+        assertEquals(CommandAck.Status.APPLIED, games.placePiece(game.getGameId(),
+                move(playerId, square[0], square[1]), "p1".equals(playerId) ? "carol" : "dave"));
+        double timeouts = timeouts();
+
+        // The cancelled task runs anyway, after its deadline
+        scheduler.advanceBy(Duration.ofSeconds(10));
+        turnTimer.run();
+
+        assertEquals(1, fires(GameTimerService.TURN, GameMetrics.TimerOutcome.STALE));
+        assertEquals(0, fires(GameTimerService.TURN, GameMetrics.TimerOutcome.APPLIED));
+        assertEquals(timeouts, timeouts());
+    }
+
+    @Test
+    public void testSecondFireOfAHandledDeadlineIsDouble() {
+        Game game = toPlacement(startGame("erin", "frank"));
+        Runnable turnTimer = scheduler.lastArmed();
+        scheduler.advanceBy(Duration.ofSeconds(15));
+        assertEquals(1, fires(GameTimerService.TURN, GameMetrics.TimerOutcome.APPLIED));
+        double timeouts = timeouts();
+
+        turnTimer.run();
+
+        assertEquals(1, fires(GameTimerService.TURN, GameMetrics.TimerOutcome.DOUBLE));
+        assertEquals(1, fires(GameTimerService.TURN, GameMetrics.TimerOutcome.APPLIED));
+        assertEquals(timeouts, timeouts());
+    }
+
+    @Test
+    public void testWatchdogRecoversALostTimerOnceTheGraceHasPassed() {
+        Game game = toPlacement(startGame("gina", "hank"));
+        String playerId = game.getCurrentTurnPlayerId();
+        long deadline = game.getActionDeadline(playerId);
+        double timeouts = timeouts();
+        // The timer task is lost, its deadline stays armed
+        game.getTurnTimer().cancel(false);
+
+        scheduler.advanceBy(Duration.ofMillis(deadline - scheduler.getClock().millis() + GRACE_MS - 1));
+        assertEquals(0, games.recoverMissedTimeouts(GRACE_MS));
+        assertEquals(timeouts, timeouts());
+
+        scheduler.advanceBy(Duration.ofMillis(1));
+        assertEquals(1, games.recoverMissedTimeouts(GRACE_MS));
+        assertEquals(1.0, registry.get("game.timer.missed").tag("timer", GameTimerService.TURN).counter().count());
+        assertEquals(1, fires(GameTimerService.TURN, GameMetrics.TimerOutcome.APPLIED));
+        assertEquals(timeouts + 1, timeouts());
+        assertEquals(deadline, game.getLastTimeoutDeadline());
+        // The next timer is armed again
+        assertFalse(game.getTurnTimer().isDone());
+        assertEquals(0, games.recoverMissedTimeouts(GRACE_MS));
+    }
+
+    @Test
+    public void testWatchdogDoesNotRecoverATimerThatFiredEarly() {
+        scheduler.skewMillis = 2_000;
+        Game game = startGame("ivy", "jack");
+        long deadline = game.getP1ActionDeadline();
+        scheduler.skewMillis = 0;
+
+        scheduler.advanceBy(Duration.ofMillis(deadline - scheduler.getClock().millis() - 1_000));
+        assertEquals(1, fires(GameTimerService.AMBUSH, GameMetrics.TimerOutcome.EARLY));
+        // Before the deadline the watchdog leaves the re-armed timer alone
+        assertEquals(0, games.recoverMissedTimeouts(0));
+        assertEquals(GamePhase.AMBUSH, game.getPhase());
+
+        scheduler.advanceBy(Duration.ofMillis(1_000));
+        assertEquals(GamePhase.PLACEMENT, game.getPhase());
+        assertEquals(0, games.recoverMissedTimeouts(0));
+        assertEquals(0.0, registry.get("game.timer.missed").tag("timer", GameTimerService.AMBUSH).counter().count());
+    }
+
+    @Test
+    public void testTimerThatFiresAfterTheWatchdogRecoveredItIsDouble() {
+        Game game = toPlacement(startGame("kim", "liam"));
+        String playerId = game.getCurrentTurnPlayerId();
+        long deadline = game.getActionDeadline(playerId);
+        // A starved timer: its task runs only after the watchdog has handled the deadline
+        Runnable starved = scheduler.lastArmed();
+        game.getTurnTimer().cancel(false);
+        scheduler.advanceBy(Duration.ofMillis(deadline - scheduler.getClock().millis() + GRACE_MS));
+        assertEquals(1, games.recoverMissedTimeouts(GRACE_MS));
+        double timeouts = timeouts();
+
+        starved.run();
+
+        assertEquals(1, fires(GameTimerService.TURN, GameMetrics.TimerOutcome.DOUBLE));
+        assertEquals(1, fires(GameTimerService.TURN, GameMetrics.TimerOutcome.APPLIED));
+        assertEquals(timeouts, timeouts());
+    }
+
+    private long fires(String timer, GameMetrics.TimerOutcome outcome) {
+        return (long) registry.get("game.timer.fires").tag("timer", timer).tag("outcome", outcome.name())
+                .counter().count();
+    }
+
+    // Timeout moves applied in placement
+    private double timeouts() {
+        return registry.get("game.timeouts").tag("phase", GamePhase.PLACEMENT.name()).counter().count();
+    }
+
+    private Game startGame(String p1, String p2) {
+        Game game = games.createGame(p1, p2);
+        games.playerReady(game.getGameId(), "p1", p1);
+        games.playerReady(game.getGameId(), "p2", p2);
+        assertEquals(GamePhase.AMBUSH, game.getPhase());
+        return game;
+    }
+
+    // Both ambush timers run out, which moves the game on to placement
+    private Game toPlacement(Game game) {
+        scheduler.advanceBy(Duration.ofSeconds(15));
+        assertEquals(GamePhase.PLACEMENT, game.getPhase());
+        return game;
+    }
+
+    private static int[] freeSquare(Game game) {
+        for (int r = 0; r < 6; r++) {
+            for (int c = 0; c < 6; c++) {
+                if (game.getBoard().getSquare(r, c).getOwnerId() == null) {
+                    return new int[] { r, c };
+                }
+            }
+        }
+        throw new IllegalStateException("board is full");
+    }
+
+    private static MoveRequest move(String playerId, int r, int c) {
+        MoveRequest move = new MoveRequest();
+        move.setPlayerId(playerId);
+        move.setR(r);
+        move.setC(c);
+        return move;
+    }
+
+    private GameService newGameService() {
+        GameMetrics metrics = new GameMetrics(registry);
+        GameService service = new GameService(mock(RatingUpdatePipeline.class),
+                mock(SimpMessagingTemplate.class, withSettings().stubOnly()),
+                new GameTimerService(scheduler, metrics, scheduler.getClock()),
+                mock(GamePersistenceService.class),
+                mock(GameLoadingCache.class, withSettings().stubOnly()),
+                mock(SpectatorService.class, withSettings().stubOnly()),
+                new ObjectMapper(),
+                metrics,
+                scheduler.getClock());
+        ReflectionTestUtils.setField(service, "resumeBufferSize", 32);
+        return service;
+    }
+
+    /**
+     * Runs each timer {@code skewMillis} before its deadline, and keeps the tasks
+     * it was given so a test can run one again.
+     */
+    private static class SkewedScheduler extends VirtualTimeScheduler {
+
+        private final List<Runnable> armed = new ArrayList<>();
+        long skewMillis;
+
+        SkewedScheduler(Instant start) {
+            super(start);
+        }
+
+        @Override
+        public ScheduledFuture<?> schedule(Runnable task, Instant startTime) {
+            armed.add(task);
+            return super.schedule(task, startTime.minusMillis(skewMillis));
+        }
+
+        Runnable lastArmed() {
+            return armed.get(armed.size() - 1);
+        }
+    }
+}
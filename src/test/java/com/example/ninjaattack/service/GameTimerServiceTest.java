@@ -0,0 +1,58 @@
+package com.example.ninjaattack.service;
+
+import com.example.ninjaattack.model.domain.Game;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.scheduling.TaskScheduler;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+public class GameTimerServiceTest {
+
+    @Test
+    public void testTimerFiresAtTheStoredDeadlineAndReportsIt() {
+        TaskScheduler scheduler = mock(TaskScheduler.class);
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        GameTimerService timers = new GameTimerService(scheduler, new GameMetrics(registry), Clock.systemUTC());
+        Game game = new Game("alice", "bob");
+        AtomicLong handled = new AtomicLong();
+
+        timers.scheduleTurnTimer(game, "p1", 15, handled::set);
+
+        ArgumentCaptor<Runnable> task = ArgumentCaptor.forClass(Runnable.class);
+        ArgumentCaptor<Instant> at = ArgumentCaptor.forClass(Instant.class);
+        verify(scheduler).schedule(task.capture(), at.capture());
+        // The handler's now >= deadline check can never see a punctual fire as early
+        assertEquals(game.getP1ActionDeadline(), at.getValue().toEpochMilli());
+
+        task.getValue().run();
+        assertEquals(game.getP1ActionDeadline(), handled.get());
+        assertEquals(1, registry.get("game.timer.lateness").tag("timer", "TURN").timer().count());
+    }
+
+    @Test
+    public void testCancelDisarmsBothPlayers() {
+        TaskScheduler scheduler = mock(TaskScheduler.class);
+        doReturn(mock(ScheduledFuture.class)).when(scheduler).schedule(any(), any(Instant.class));
+        GameTimerService timers = new GameTimerService(scheduler, new GameMetrics(new SimpleMeterRegistry()),
+                Clock.systemUTC());
+        Game game = new Game("alice", "bob");
+
+        timers.scheduleAmbushTimer(game, 15, deadline -> {
+        });
+        assertEquals(game.getP1ActionDeadline(), game.getP2ActionDeadline());
+
+        timers.cancelTurnTimer(game);
+        assertEquals(Long.MAX_VALUE, game.getP1ActionDeadline());
+        assertEquals(Long.MAX_VALUE, game.getP2ActionDeadline());
+        assertNull(game.getTurnTimer());
+    }
+}
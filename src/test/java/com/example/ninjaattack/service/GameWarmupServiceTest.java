@@ -0,0 +1,43 @@
+package com.example.ninjaattack.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Clock;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class GameWarmupServiceTest {
+
+    @Test
+    public void testWarmupGamesFinishWithoutSideEffects() {
+        TaskScheduler scheduler = mock(TaskScheduler.class);
+        GamePersistenceService persistence = mock(GamePersistenceService.class);
+        RatingUpdatePipeline ratings = mock(RatingUpdatePipeline.class);
+        GameMetrics metrics = new GameMetrics(new SimpleMeterRegistry());
+        // Conversion is exercised, but nothing may actually be sent
+        SimpMessagingTemplate messaging = new SimpMessagingTemplate((message, timeout) -> {
+            throw new AssertionError("warm-up sent " + message);
+        });
+        GameService games = new GameService(ratings, messaging,
+                new GameTimerService(scheduler, metrics, Clock.systemUTC()), persistence,
+                mock(GameLoadingCache.class), mock(SpectatorService.class), new ObjectMapper(), metrics,
+                Clock.systemUTC());
+        GameWarmupService warmup = new GameWarmupService(games);
+        ReflectionTestUtils.setField(warmup, "enabled", true);
+        ReflectionTestUtils.setField(warmup, "games", 20);
+        ReflectionTestUtils.setField(warmup, "maxMillis", 60_000L);
+
+        assertTrue(games.playWarmupGame() > 0);
+        warmup.warmUp();
+
+        verifyNoInteractions(scheduler, persistence, ratings);
+        assertNull(games.findActiveGameByUsername("warmup-p1"));
+        assertEquals(0.0, metrics.getTimerFires(GameTimerService.TURN, GameMetrics.TimerOutcome.APPLIED));
+    }
+}
@@ -0,0 +1,61 @@
+package com.example.ninjaattack.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PlayerPresenceTrackerTest {
+
+    @Test
+    public void testUserWatchesUntilLastSubscriptionEnds() {
+        PlayerPresenceTracker tracker = new PlayerPresenceTracker(Clock.systemUTC());
+        tracker.subscribed("s1", "sub-0", "alice", "g1");
+        tracker.subscribed("s2", "sub-0", "alice", "g1");
+
+        tracker.disconnected("s1");
+        assertTrue(tracker.isWatching("g1", "alice"));
+        assertFalse(tracker.isAbsentFor("g1", "alice", 0, 0));
+
+        tracker.unsubscribed("s2", "sub-0");
+        assertFalse(tracker.isWatching("g1", "alice"));
+        assertTrue(tracker.isAbsentFor("g1", "alice", 0, 0));
+        assertFalse(tracker.isAbsentFor("g1", "alice", 0, 60_000));
+    }
+
+    @Test
+    public void testPresenceIsPerGame() {
+        PlayerPresenceTracker tracker = new PlayerPresenceTracker(Clock.systemUTC());
+        // Connected, but watching another game only
+        tracker.subscribed("s1", "sub-0", "alice", "g2");
+
+        assertFalse(tracker.isWatching("g1", "alice"));
+        assertTrue(tracker.isAbsentFor("g1", "alice", 0, 0));
+        assertFalse(tracker.isAbsentFor("g2", "alice", 0, 0));
+    }
+
+    @Test
+    public void testUnknownUserIsAbsentSinceTheGameWentLive() {
+        Clock clock = Clock.systemUTC();
+        PlayerPresenceTracker tracker = new PlayerPresenceTracker(clock);
+
+        assertTrue(tracker.isAbsentFor("g1", "bob", 0, 0));
+        assertFalse(tracker.isAbsentFor("g1", "bob", 0, 60_000));
+        // A game that only just went live gives its players the whole grace
+        assertFalse(tracker.isAbsentFor("g1", "bob", clock.millis() + 1_000, 0));
+    }
+
+    @Test
+    public void testResubscribeClearsAbsence() {
+        PlayerPresenceTracker tracker = new PlayerPresenceTracker(Clock.systemUTC());
+        tracker.subscribed("s1", "sub-0", "alice", "g1");
+        tracker.disconnected("s1");
+        tracker.subscribed("s2", "sub-3", "alice", "g1");
+
+        assertFalse(tracker.isAbsentFor("g1", "alice", 0, 0));
+        tracker.disconnected("unknown-session");
+        tracker.unsubscribed("s2", "unknown-subscription");
+        assertTrue(tracker.isWatching("g1", "alice"));
+    }
+}
@@ -0,0 +1,135 @@
+package com.example.ninjaattack.service;
+
+import com.example.ninjaattack.model.domain.Game;
+import com.example.ninjaattack.model.domain.GameResult;
+import com.example.ninjaattack.model.dto.RatingUpdateDTO;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+public class RatingUpdatePipelineTest {
+
+    private final UserService userService = mock(UserService.class);
+    private final GamePersistenceService persistence = mock(GamePersistenceService.class);
+    private final RatingUpdatePipeline pipeline = new RatingUpdatePipeline(userService, persistence,
+            mock(SimpMessagingTemplate.class), new GameMetrics(new SimpleMeterRegistry()));
+
+    @AfterEach
+    public void tearDown() throws InterruptedException {
+        pipeline.stop();
+    }
+
+    @Test
+    public void testGamesQueuedTogetherAreBatchedInSubmissionOrder() throws Exception {
+        CountDownLatch firstBatchStarted = new CountDownLatch(1);
+        CountDownLatch releaseFirstBatch = new CountDownLatch(1);
+        List<List<String>> batches = new CopyOnWriteArrayList<>();
+        when(userService.processGameResults(anyList())).thenAnswer(inv -> {
+            List<Game> games = inv.getArgument(0);
+            batches.add(games.stream().map(Game::getGameId).toList());
+            if (batches.size() == 1) {
+                firstBatchStarted.countDown();
+                releaseFirstBatch.await(5, TimeUnit.SECONDS);
+            }
+            return updatesFor(games);
+        });
+        ReflectionTestUtils.setField(pipeline, "batchSize", 64);
+        pipeline.start();
+
+        pipeline.submit(game("g0"));
+        assertTrue(firstBatchStarted.await(5, TimeUnit.SECONDS));
+        for (int i = 1; i <= 5; i++) {
+            pipeline.submit(game("g" + i));
+        }
+        releaseFirstBatch.countDown();
+
+        awaitProcessed(6);
+        assertEquals(List.of(List.of("g0"), List.of("g1", "g2", "g3", "g4", "g5")), batches);
+        // Deltas are stored in the result before the game is written again
+        verify(persistence, times(6)).saveGame(argThat(game -> game.getResult().getP1RatingChange() == 16
+                && game.getResult().isRated()));
+    }
+
+    @Test
+    public void testFailedBatchFallsBackToSingleGames() throws Exception {
+        when(userService.processGameResults(anyList())).thenAnswer(inv -> {
+            List<Game> games = inv.getArgument(0);
+            if (games.size() > 1 || games.get(0).getGameId().equals("bad")) {
+                throw new IllegalStateException("user deleted");
+            }
+            return updatesFor(games);
+        });
+        ReflectionTestUtils.setField(pipeline, "batchSize", 64);
+
+        // Queued before the worker starts, so all three arrive in one batch
+        pipeline.submit(game("a"));
+        pipeline.submit(game("bad"));
+        pipeline.submit(game("b"));
+        pipeline.start();
+
+        awaitProcessed(2);
+        long deadline = System.currentTimeMillis() + 5000;
+        while (pipeline.getFailedCount() == 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(1, pipeline.getFailedCount());
+        verify(persistence, times(2)).saveGame(any());
+        verify(persistence, never()).saveGame(argThat(game -> game.getGameId().equals("bad")));
+    }
+
+    @Test
+    public void testGamesLeftPendingByAPreviousRunAreRequeuedOnStart() throws Exception {
+        when(persistence.loadRatingPendingGames()).thenReturn(List.of(game("p1"), game("p2")));
+        when(userService.processGameResults(anyList())).thenAnswer(inv -> updatesFor(inv.getArgument(0)));
+        ReflectionTestUtils.setField(pipeline, "batchSize", 64);
+
+        pipeline.start();
+
+        awaitProcessed(2);
+        verify(persistence).saveGame(argThat(game -> game.getGameId().equals("p1") && game.getResult().isRated()));
+        verify(persistence).saveGame(argThat(game -> game.getGameId().equals("p2") && game.getResult().isRated()));
+    }
+
+    @Test
+    public void testGamesWithoutResultAreIgnored() {
+        pipeline.start();
+        pipeline.submit(new Game());
+        assertEquals(0, pipeline.getQueueDepth());
+    }
+
+    private void awaitProcessed(long count) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (pipeline.getProcessedCount() < count && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(count, pipeline.getProcessedCount());
+    }
+
+    private static List<RatingUpdateDTO> updatesFor(List<Game> games) {
+        List<RatingUpdateDTO> updates = new ArrayList<>();
+        for (Game game : games) {
+            updates.add(new RatingUpdateDTO(game.getGameId(), "a", "b", 16, -16, 1216, 1184));
+        }
+        return updates;
+    }
+
+    private static Game game(String gameId) {
+        Game game = new Game();
+        game.setGameId(gameId);
+        game.setResult(new GameResult());
+        return game;
+    }
+}
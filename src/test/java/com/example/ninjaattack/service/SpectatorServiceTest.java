@@ -0,0 +1,106 @@
+package com.example.ninjaattack.service;
+
+import com.example.ninjaattack.model.domain.Board;
+import com.example.ninjaattack.model.dto.GameStateDTO;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+import org.springframework.web.socket.messaging.SessionSubscribeEvent;
+import org.mockito.ArgumentCaptor;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class SpectatorServiceTest {
+
+    private SimpMessagingTemplate messagingTemplate;
+    private SpectatorService spectatorService;
+
+    @BeforeEach
+    public void setUp() {
+        messagingTemplate = mock(SimpMessagingTemplate.class);
+        spectatorService = new SpectatorService(messagingTemplate, new ObjectMapper());
+    }
+
+    @Test
+    public void testCountsFollowSubscriptions() {
+        spectatorService.onSubscribe(subscribe("s1", "sub-0", "/topic/spectate/g1"));
+        spectatorService.onSubscribe(subscribe("s2", "sub-0", "/topic/spectate/g1"));
+        spectatorService.onSubscribe(subscribe("s2", "sub-1", "/topic/game/g1"));
+        assertEquals(2, spectatorService.getSpectatorCount("g1"));
+
+        spectatorService.onDisconnect(new SessionDisconnectEvent(this, disconnectMessage("s2"), "s2",
+                CloseStatus.NORMAL));
+        assertEquals(1, spectatorService.getSpectatorCount("g1"));
+        assertTrue(spectatorService.isWatched("g1"));
+
+        spectatorService.onDisconnect(new SessionDisconnectEvent(this, disconnectMessage("s1"), "s1",
+                CloseStatus.NORMAL));
+        assertFalse(spectatorService.isWatched("g1"));
+        assertEquals(0, spectatorService.getWatchedGameCount());
+    }
+
+    @Test
+    public void testOnlyLatestRedactedStateIsPublished() throws Exception {
+        spectatorService.onSubscribe(subscribe("s1", "sub-0", "/topic/spectate/g1"));
+        GameStateDTO older = state(1);
+        GameStateDTO newer = state(2);
+        newer.getBoard().getSquare(2, 3).setP1Ambush(true);
+        newer.getBoard().getSquare(0, 0).setOwnerId("p2");
+
+        spectatorService.offer("g1", older);
+        spectatorService.offer("g1", newer);
+        spectatorService.publishDue();
+        spectatorService.publishDue();
+
+        ArgumentCaptor<Object> payload = ArgumentCaptor.forClass(Object.class);
+        verify(messagingTemplate, times(1)).convertAndSend(eq("/topic/spectate/g1"), payload.capture());
+        GameStateDTO sent = new ObjectMapper().readValue((String) payload.getValue(), GameStateDTO.class);
+        assertEquals(2, sent.getSeq());
+        assertFalse(sent.getBoard().getSquare(2, 3).isP1Ambush());
+        assertEquals("p2", sent.getBoard().getSquare(0, 0).getOwnerId());
+        assertTrue(newer.getBoard().getSquare(2, 3).isP1Ambush());
+        assertEquals(payload.getValue(), spectatorService.getLatestSnapshot("g1"));
+    }
+
+    @Test
+    public void testDelayedStatesWaitTheirTurn() {
+        ReflectionTestUtils.setField(spectatorService, "delayMillis", 60_000L);
+        spectatorService.onSubscribe(subscribe("s1", "sub-0", "/topic/spectate/g1"));
+
+        spectatorService.offer("g1", state(1));
+        spectatorService.publishDue();
+
+        verifyNoInteractions(messagingTemplate);
+    }
+
+    private SessionSubscribeEvent subscribe(String sessionId, String subscriptionId, String destination) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.create(StompCommand.SUBSCRIBE);
+        accessor.setSessionId(sessionId);
+        accessor.setSubscriptionId(subscriptionId);
+        accessor.setDestination(destination);
+        return new SessionSubscribeEvent(this, MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders()));
+    }
+
+    private static Message<byte[]> disconnectMessage(String sessionId) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.create(StompCommand.DISCONNECT);
+        accessor.setSessionId(sessionId);
+        return MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders());
+    }
+
+    private static GameStateDTO state(long seq) {
+        GameStateDTO dto = new GameStateDTO();
+        dto.setSeq(seq);
+        dto.setGameId("g1");
+        dto.setBoard(new Board());
+        return dto;
+    }
+}
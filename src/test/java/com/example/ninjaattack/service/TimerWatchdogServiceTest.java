@@ -0,0 +1,96 @@
+package com.example.ninjaattack.service;
+
+import com.example.ninjaattack.model.domain.Game;
+import com.example.ninjaattack.model.domain.GamePhase;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Clock;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * The watchdog against a timer thread that is stuck, on real time.
+ */
+public class TimerWatchdogServiceTest {
+
+    private final ThreadPoolTaskScheduler timerThread = new ThreadPoolTaskScheduler();
+    private final CountDownLatch release = new CountDownLatch(1);
+    private TimerWatchdogService watchdog;
+
+    @AfterEach
+    public void tearDown() {
+        release.countDown();
+        if (watchdog != null) {
+            watchdog.shutdown();
+        }
+        timerThread.shutdown();
+    }
+
+    @Test
+    public void testMissedTimeoutIsAppliedWhileTheTimerThreadIsBlocked() throws Exception {
+        timerThread.setPoolSize(1);
+        timerThread.initialize();
+        GameMetrics metrics = new GameMetrics(new SimpleMeterRegistry());
+        GameTimerService timers = new GameTimerService(timerThread, metrics, Clock.systemUTC());
+        GameService games = newGameService(timers, metrics);
+        Game game = games.createGame("alice", "bob");
+        games.playerReady(game.getGameId(), "p1", "alice");
+        games.playerReady(game.getGameId(), "p2", "bob");
+        assertEquals(GamePhase.AMBUSH, game.getPhase());
+
+        // The only timer thread hangs (a slow save, a lock), then the ambush deadline
+        // comes up behind it
+        CountDownLatch blocked = new CountDownLatch(1);
+        timerThread.execute(() -> {
+            blocked.countDown();
+            try {
+                release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        assertTrue(blocked.await(5, TimeUnit.SECONDS));
+        synchronized (game) {
+            timers.scheduleAmbushTimerAt(game, System.currentTimeMillis() + 100, deadline -> {
+            });
+        }
+
+        watchdog = new TimerWatchdogService(games, true, 100, 50);
+
+        long deadline = System.currentTimeMillis() + 5000;
+        while (game.getPhase() == GamePhase.AMBUSH && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        assertEquals(GamePhase.PLACEMENT, game.getPhase());
+        assertEquals(1, release.getCount());
+    }
+
+    private GameService newGameService(GameTimerService timers, GameMetrics metrics) {
+        GameService service = new GameService(mock(RatingUpdatePipeline.class),
+                mock(SimpMessagingTemplate.class, withSettings().stubOnly()),
+                timers,
+                mock(GamePersistenceService.class),
+                mock(GameLoadingCache.class, withSettings().stubOnly()),
+                mock(SpectatorService.class, withSettings().stubOnly()),
+                new ObjectMapper(),
+                metrics,
+                Clock.systemUTC());
+        ReflectionTestUtils.setField(service, "resumeBufferSize", 32);
+        ReflectionTestUtils.setField(service, "recoveryPageSize", 200);
+        ReflectionTestUtils.setField(service, "recoveryThreads", 1);
+        ReflectionTestUtils.setField(service, "catchUpWorkers", 1);
+        ReflectionTestUtils.setField(service, "catchUpQueueSize", 10);
+        ReflectionTestUtils.setField(service, "catchUpTimeoutMs", 60_000L);
+        service.loadActiveGames();
+        return service;
+    }
+}
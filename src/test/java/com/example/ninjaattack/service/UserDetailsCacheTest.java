@@ -0,0 +1,97 @@
+package com.example.ninjaattack.service;
+
+import com.example.ninjaattack.model.domain.User;
+import com.example.ninjaattack.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class UserDetailsCacheTest {
+
+    private UserRepository userRepository;
+
+    @BeforeEach
+    public void setUp() {
+        userRepository = mock(UserRepository.class);
+        when(userRepository.findByUsername(anyString()))
+                .thenAnswer(inv -> Optional.of(new User(inv.getArgument(0), "pw", 1200)));
+    }
+
+    @Test
+    public void testSecondLookupIsServedFromCache() {
+        UserDetailsCache cache = new UserDetailsCache(userRepository, 10, 300);
+
+        cache.findByUsername("alice");
+        cache.findByUsername("alice");
+
+        verify(userRepository, times(1)).findByUsername("alice");
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+    }
+
+    @Test
+    public void testReturnedUserIsACopy() {
+        UserDetailsCache cache = new UserDetailsCache(userRepository, 10, 300);
+
+        User first = cache.findByUsername("alice").orElseThrow();
+        first.setScore(9999);
+
+        assertEquals(1200, cache.findByUsername("alice").orElseThrow().getScore());
+    }
+
+    @Test
+    public void testWriteThroughReplacesEntry() {
+        UserDetailsCache cache = new UserDetailsCache(userRepository, 10, 300);
+        User updated = new User("alice", "pw", 1250);
+
+        cache.put(updated);
+
+        assertEquals(1250, cache.findByUsername("alice").orElseThrow().getScore());
+        verify(userRepository, never()).findByUsername("alice");
+    }
+
+    @Test
+    public void testMissFillDoesNotOverwriteANewerWrite() {
+        UserDetailsCache cache = new UserDetailsCache(userRepository, 10, 300);
+        // A rating update commits and caches its score while the miss is still reading the old row
+        when(userRepository.findByUsername("alice")).thenAnswer(inv -> {
+            cache.put(new User("alice", "pw", 1250));
+            return Optional.of(new User("alice", "pw", 1200));
+        });
+
+        cache.findByUsername("alice");
+
+        assertEquals(1250, cache.findByUsername("alice").orElseThrow().getScore());
+        verify(userRepository, times(1)).findByUsername("alice");
+    }
+
+    @Test
+    public void testLeastRecentlyUsedEntryIsEvicted() {
+        UserDetailsCache cache = new UserDetailsCache(userRepository, 2, 300);
+
+        cache.findByUsername("a");
+        cache.findByUsername("b");
+        cache.findByUsername("a"); // touch "a" so "b" becomes eldest
+        cache.findByUsername("c");
+
+        assertEquals(2, cache.size());
+        assertEquals(1, cache.getEvictionCount());
+        cache.findByUsername("b");
+        verify(userRepository, times(2)).findByUsername("b");
+    }
+
+    @Test
+    public void testExpiredEntryIsReloaded() {
+        UserDetailsCache cache = new UserDetailsCache(userRepository, 10, 0);
+
+        cache.findByUsername("alice");
+        cache.findByUsername("alice");
+
+        verify(userRepository, times(2)).findByUsername("alice");
+        assertEquals(1, cache.getExpirationCount());
+    }
+}
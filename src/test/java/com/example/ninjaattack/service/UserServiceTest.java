@@ -0,0 +1,110 @@
+package com.example.ninjaattack.service;
+
+import com.example.ninjaattack.model.domain.Game;
+import com.example.ninjaattack.model.domain.GameResult;
+import com.example.ninjaattack.model.domain.User;
+import com.example.ninjaattack.model.dto.RatingUpdateDTO;
+import com.example.ninjaattack.model.entity.RatedGame;
+import com.example.ninjaattack.repository.GameRepository;
+import com.example.ninjaattack.repository.RatedGameRepository;
+import com.example.ninjaattack.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyIterable;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+public class UserServiceTest {
+
+    private final UserRepository userRepository = mock(UserRepository.class);
+    private final RatedGameRepository ratedGameRepository = mock(RatedGameRepository.class);
+    private final Map<String, User> users = new ConcurrentHashMap<>();
+    private final Map<String, RatedGame> ratedGames = new ConcurrentHashMap<>();
+    private UserService userService;
+
+    @BeforeEach
+    public void setUp() {
+        users.put("alice", new User("alice", "pw", 1200));
+        users.put("bob", new User("bob", "pw", 1200));
+        when(userRepository.findForUpdateByUsername(anyString()))
+                .thenAnswer(inv -> Optional.ofNullable(users.get(inv.<String>getArgument(0))));
+        when(userRepository.saveAll(anyIterable())).thenAnswer(inv -> {
+            List<User> saved = new ArrayList<>();
+            inv.<Iterable<User>>getArgument(0).forEach(saved::add);
+            return saved;
+        });
+        when(ratedGameRepository.findById(anyString()))
+                .thenAnswer(inv -> Optional.ofNullable(ratedGames.get(inv.<String>getArgument(0))));
+        when(ratedGameRepository.saveAll(anyIterable())).thenAnswer(inv -> {
+            inv.<Iterable<RatedGame>>getArgument(0).forEach(rated -> ratedGames.put(rated.getGameId(), rated));
+            return List.of();
+        });
+
+        EloRatingService elo = new EloRatingService();
+        ReflectionTestUtils.setField(elo, "fmaBonus", 30);
+        ReflectionTestUtils.setField(elo, "kFactorProvisional", 40);
+        ReflectionTestUtils.setField(elo, "kFactorDefault", 32);
+        ReflectionTestUtils.setField(elo, "provisionalThreshold", 30);
+        userService = new UserService(userRepository, mock(GameRepository.class), ratedGameRepository,
+                mock(GamePersistenceService.class), mock(PasswordEncoder.class), elo,
+                new UserDetailsCache(userRepository, 10, 300));
+    }
+
+    @Test
+    public void testRatingIsRecordedWithTheUserRows() {
+        List<RatingUpdateDTO> updates = userService.processGameResults(List.of(game("g1")));
+
+        assertEquals(18, updates.get(0).getP1RatingChange());
+        assertEquals(1218, users.get("alice").getScore());
+        RatedGame rated = ratedGames.get("g1");
+        assertNotNull(rated);
+        assertEquals(18, rated.getP1RatingChange());
+        assertEquals(updates.get(0).getP2RatingChange(), rated.getP2RatingChange());
+    }
+
+    @Test
+    public void testGameRatedBeforeIsNotRatedAgain() {
+        // Rated before a restart, whose write of the deltas never landed
+        userService.processGameResults(List.of(game("g2")));
+        int aliceScore = users.get("alice").getScore();
+        int bobScore = users.get("bob").getScore();
+
+        List<RatingUpdateDTO> again = userService.processGameResults(List.of(game("g2")));
+
+        assertEquals(aliceScore, users.get("alice").getScore());
+        assertEquals(bobScore, users.get("bob").getScore());
+        assertEquals(18, again.get(0).getP1RatingChange());
+        assertEquals(aliceScore, again.get(0).getP1NewRating());
+    }
+
+    @Test
+    public void testGameQueuedTwiceInOneBatchIsRatedOnce() {
+        List<RatingUpdateDTO> updates = userService.processGameResults(List.of(game("g3"), game("g3")));
+
+        assertEquals(1218, users.get("alice").getScore());
+        assertEquals(updates.get(0).getP1RatingChange(), updates.get(1).getP1RatingChange());
+        verify(ratedGameRepository, never()).save(any());
+    }
+
+    // alice (p1, first mover) beats bob
+    private static Game game(String gameId) {
+        Game game = new Game("alice", "bob");
+        game.setGameId(gameId);
+        game.setFirstMovePlayerId("p1");
+        GameResult result = new GameResult();
+        result.setWinnerId("p1");
+        game.setResult(result);
+        return game;
+    }
+}
@@ -0,0 +1,239 @@
+package com.example.ninjaattack.service;
+
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.scheduling.Trigger;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.PriorityQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A {@link TaskScheduler} on virtual time. Nothing runs until the test advances
+ * the clock; due tasks then run on the calling thread in deadline order (ties in
+ * scheduling order), with {@link #getClock()} set to each task's time. A game
+ * where every turn times out plays through in milliseconds, and the same
+ * schedule always runs the same way.
+ * <p>
+ * Scheduling is thread-safe, so tasks may also be submitted from other threads
+ * (e.g. the recovery catch-up pool).
+ */
+public class VirtualTimeScheduler implements TaskScheduler {
+
+    private final VirtualClock clock;
+    private final PriorityQueue<VirtualTask> queue = new PriorityQueue<>();
+    private long scheduled;
+
+    public VirtualTimeScheduler(Instant start) {
+        this.clock = new VirtualClock(start.toEpochMilli());
+    }
+
+    @Override
+    public Clock getClock() {
+        return clock;
+    }
+
+    @Override
+    public ScheduledFuture<?> schedule(Runnable task, Trigger trigger) {
+        throw new UnsupportedOperationException("Triggers are not supported on virtual time");
+    }
+
+    @Override
+    public ScheduledFuture<?> schedule(Runnable task, Instant startTime) {
+        return enqueue(task, startTime.toEpochMilli(), 0);
+    }
+
+    @Override
+    public ScheduledFuture<?> scheduleAtFixedRate(Runnable task, Instant startTime, Duration period) {
+        return enqueue(task, startTime.toEpochMilli(), period.toMillis());
+    }
+
+    @Override
+    public ScheduledFuture<?> scheduleAtFixedRate(Runnable task, Duration period) {
+        return enqueue(task, clock.millis(), period.toMillis());
+    }
+
+    // Tasks take no virtual time, so a fixed delay is the same as a fixed rate
+    @Override
+    public ScheduledFuture<?> scheduleWithFixedDelay(Runnable task, Instant startTime, Duration delay) {
+        return enqueue(task, startTime.toEpochMilli(), delay.toMillis());
+    }
+
+    @Override
+    public ScheduledFuture<?> scheduleWithFixedDelay(Runnable task, Duration delay) {
+        return enqueue(task, clock.millis(), delay.toMillis());
+    }
+
+    private synchronized VirtualTask enqueue(Runnable task, long at, long period) {
+        VirtualTask scheduledTask = new VirtualTask(task, at, period, scheduled++);
+        queue.add(scheduledTask);
+        return scheduledTask;
+    }
+
+    /**
+     * Run every task due within {@code duration} from now, then leave the clock
+     * at the end of it.
+     *
+     * @return number of tasks run
+     */
+    public int advanceBy(Duration duration) {
+        long until = clock.millis() + duration.toMillis();
+        int ran = runUntil(until, Integer.MAX_VALUE);
+        clock.advanceTo(until);
+        return ran;
+    }
+
+    /**
+     * Keep running the next due task, however far ahead, until none are left.
+     *
+     * @throws IllegalStateException if more than {@code maxTasks} would run
+     *                               (a timer that keeps re-arming itself)
+     */
+    public int runUntilIdle(int maxTasks) {
+        int ran = runUntil(Long.MAX_VALUE, maxTasks);
+        if (pendingTasks() > 0) {
+            throw new IllegalStateException("Still " + pendingTasks() + " tasks pending after " + ran);
+        }
+        return ran;
+    }
+
+    private int runUntil(long until, int maxTasks) {
+        int ran = 0;
+        while (ran < maxTasks) {
+            VirtualTask next;
+            synchronized (this) {
+                next = queue.peek();
+                if (next == null || next.at > until) {
+                    break;
+                }
+                queue.poll();
+                if (next.cancelled) {
+                    continue;
+                }
+                clock.advanceTo(next.at);
+            }
+            // Outside the lock: the task usually schedules its successor
+            next.run();
+            ran++;
+        }
+        return ran;
+    }
+
+    public synchronized int pendingTasks() {
+        return (int) queue.stream().filter(task -> !task.cancelled).count();
+    }
+
+    private final class VirtualTask implements ScheduledFuture<Object> {
+
+        private final Runnable task;
+        private final long period;
+        private final long order;
+        private volatile long at;
+        private volatile boolean cancelled;
+        private volatile boolean done;
+
+        VirtualTask(Runnable task, long at, long period, long order) {
+            this.task = task;
+            this.at = at;
+            this.period = period;
+            this.order = order;
+        }
+
+        void run() {
+            task.run();
+            if (period <= 0) {
+                done = true;
+                return;
+            }
+            synchronized (VirtualTimeScheduler.this) {
+                if (!cancelled) {
+                    at += period;
+                    queue.add(this);
+                }
+            }
+        }
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(at - clock.millis(), TimeUnit.MILLISECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed other) {
+            if (other instanceof VirtualTask task) {
+                int byTime = Long.compare(at, task.at);
+                return byTime != 0 ? byTime : Long.compare(order, task.order);
+            }
+            return Long.compare(getDelay(TimeUnit.MILLISECONDS), other.getDelay(TimeUnit.MILLISECONDS));
+        }
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            if (done || cancelled) {
+                return false;
+            }
+            cancelled = true;
+            return true;
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return cancelled;
+        }
+
+        @Override
+        public boolean isDone() {
+            return done || cancelled;
+        }
+
+        @Override
+        public Object get() {
+            return null;
+        }
+
+        @Override
+        public Object get(long timeout, TimeUnit unit) {
+            return null;
+        }
+    }
+
+    private static final class VirtualClock extends Clock {
+
+        private volatile long millis;
+
+        VirtualClock(long millis) {
+            this.millis = millis;
+        }
+
+        void advanceTo(long target) {
+            if (target > millis) {
+                millis = target;
+            }
+        }
+
+        @Override
+        public long millis() {
+            return millis;
+        }
+
+        @Override
+        public Instant instant() {
+            return Instant.ofEpochMilli(millis);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return Clock.fixed(instant(), zone);
+        }
+    }
+}